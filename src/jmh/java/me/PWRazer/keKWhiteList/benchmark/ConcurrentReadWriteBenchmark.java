@@ -0,0 +1,71 @@
+package me.PWRazer.keKWhiteList.benchmark;
+
+import me.PWRazer.keKWhiteList.WhitelistManager;
+import me.PWRazer.keKWhiteList.WhitelistSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Login checks running while an admin keeps adding and removing entries.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConcurrentReadWriteBenchmark {
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    private WhitelistManager manager;
+    private String[] probes;
+    private int readIndex;
+    private boolean present;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<String> names = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            names.add("player" + i);
+        }
+        manager = new WhitelistManager();
+        manager.replaceAll(WhitelistSnapshot.of(names));
+        probes = new String[1024];
+        for (int i = 0; i < probes.length; i++) {
+            probes[i] = (i & 1) == 0 ? "player" + (i * 7919 % size) : "bot" + i;
+        }
+    }
+
+    @Benchmark
+    @Group("readDuringWrite")
+    @GroupThreads(3)
+    public boolean read() {
+        return manager.isWhitelisted(probes[readIndex++ & (probes.length - 1)]);
+    }
+
+    @Benchmark
+    @Group("readDuringWrite")
+    @GroupThreads(1)
+    public boolean write() {
+        present = !present;
+        return present ? manager.addPlayer("admin_added") : manager.removePlayer("admin_added");
+    }
+}
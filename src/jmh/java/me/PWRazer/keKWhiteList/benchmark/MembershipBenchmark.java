@@ -0,0 +1,97 @@
+package me.PWRazer.keKWhiteList.benchmark;
+
+import me.PWRazer.keKWhiteList.WhitelistManager;
+import me.PWRazer.keKWhiteList.WhitelistSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Login membership checks against lists of different sizes. Run with {@code -prof gc} for allocation rates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MembershipBenchmark {
+    private static final int PROBES = 1024;
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private WhitelistManager manager;
+    private WhitelistSnapshot snapshot;
+    private final String[] hits = new String[PROBES];
+    private final String[] misses = new String[PROBES];
+    private final UUID[] uuidHits = new UUID[PROBES];
+    private final UUID[] uuidMisses = new UUID[PROBES];
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<String> names = new ArrayList<>(size);
+        Map<UUID, String> uuids = new HashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            names.add("Player" + i);
+            uuids.put(new UUID(i, ~i), "Uuid" + i);
+        }
+        manager = new WhitelistManager();
+        manager.replaceAll(WhitelistSnapshot.of(names, uuids));
+        snapshot = manager.snapshot();
+        for (int i = 0; i < PROBES; i++) {
+            int member = (int) ((i * 2654435761L) % size);
+            hits[i] = "Player" + member;
+            misses[i] = "Bot" + i + "x";
+            uuidHits[i] = new UUID(member, ~member);
+            uuidMisses[i] = new UUID(-1 - i, i);
+        }
+        snapshot.mightContain("warm-up");
+    }
+
+    private int next() {
+        return index++ & (PROBES - 1);
+    }
+
+    @Benchmark
+    public boolean nameHit() {
+        return manager.isWhitelisted(hits[next()]);
+    }
+
+    @Benchmark
+    public boolean nameMiss() {
+        return manager.isWhitelisted(misses[next()]);
+    }
+
+    @Benchmark
+    public boolean uuidHit() {
+        return manager.isWhitelisted(uuidHits[next()]);
+    }
+
+    @Benchmark
+    public boolean uuidMiss() {
+        return manager.isWhitelisted(uuidMisses[next()]);
+    }
+
+    @Benchmark
+    public boolean bloomMiss() {
+        return snapshot.mightContain(misses[next()]);
+    }
+}
@@ -0,0 +1,90 @@
+package me.PWRazer.keKWhiteList.benchmark;
+
+import com.velocitypowered.api.event.connection.LoginEvent;
+import com.velocitypowered.api.proxy.Player;
+import me.PWRazer.keKWhiteList.AdmissionThrottle;
+import me.PWRazer.keKWhiteList.AuditLog;
+import me.PWRazer.keKWhiteList.BypassCache;
+import me.PWRazer.keKWhiteList.BypassRegistry;
+import me.PWRazer.keKWhiteList.ConfigManager;
+import me.PWRazer.keKWhiteList.DenialLog;
+import me.PWRazer.keKWhiteList.LanguageManager;
+import me.PWRazer.keKWhiteList.LoginChecker;
+import me.PWRazer.keKWhiteList.WhitelistManager;
+import me.PWRazer.keKWhiteList.WhitelistMetrics;
+import net.kyori.adventure.text.Component;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.helpers.NOPLogger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-denial cost: the disconnect message, a command reply with a placeholder, and a full denied login.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageRenderingBenchmark {
+    private LanguageManager languageManager;
+    private ConfigManager configManager;
+    private LoginChecker loginChecker;
+    private Player deniedPlayer;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Path dataDirectory = Files.createTempDirectory("kwl-bench");
+        WhitelistManager whitelistManager = new WhitelistManager();
+        configManager = new ConfigManager(dataDirectory, NOPLogger.NOP_LOGGER, whitelistManager, new WhitelistMetrics());
+        configManager.loadConfig();
+        languageManager = new LanguageManager(dataDirectory, NOPLogger.NOP_LOGGER);
+        languageManager.loadLanguage("en");
+        loginChecker = new LoginChecker(configManager, whitelistManager, languageManager,
+                new DenialLog(NOPLogger.NOP_LOGGER, 10), new BypassRegistry(dataDirectory, NOPLogger.NOP_LOGGER),
+                new AdmissionThrottle(configManager), new BypassCache(configManager),
+                new AuditLog(dataDirectory, configManager, new WhitelistMetrics(), NOPLogger.NOP_LOGGER, 1024),
+                NOPLogger.NOP_LOGGER);
+        deniedPlayer = Stubs.player("RandomBot123", UUID.randomUUID(), false);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        loginChecker.shutdown();
+        configManager.shutdown();
+    }
+
+    @Benchmark
+    public Component disconnectMessage() {
+        return languageManager.getDisconnectMessage(Locale.ENGLISH);
+    }
+
+    @Benchmark
+    public Component playerMessage() {
+        return languageManager.getMessage(Locale.ENGLISH, "added", "player", "SomePlayer");
+    }
+
+    @Benchmark
+    public LoginEvent deniedLogin() {
+        LoginEvent event = new LoginEvent(deniedPlayer);
+        loginChecker.check(event).join();
+        return event;
+    }
+}
@@ -0,0 +1,93 @@
+package me.PWRazer.keKWhiteList.benchmark;
+
+import me.PWRazer.keKWhiteList.ConfigManager;
+import me.PWRazer.keKWhiteList.WhitelistManager;
+import me.PWRazer.keKWhiteList.WhitelistMetrics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.helpers.NOPLogger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Cost of one persisted change and of a full load, by list size and storage backend.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersistenceBenchmark {
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    @Param({"yaml", "journal"})
+    public String storage;
+
+    private Path dataDirectory;
+    private WhitelistManager whitelistManager;
+    private ConfigManager configManager;
+    private int counter;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dataDirectory = Files.createTempDirectory("kwl-bench");
+        Files.writeString(dataDirectory.resolve("config.yml"),
+                "whitelist: true\nlanguage: en\nstorage: " + storage + "\nwhitelisted: []\n");
+        whitelistManager = new WhitelistManager();
+        configManager = new ConfigManager(dataDirectory, NOPLogger.NOP_LOGGER, whitelistManager, new WhitelistMetrics());
+        configManager.loadConfig();
+        List<String> names = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            names.add("player" + i);
+        }
+        whitelistManager.apply(names, List.of());
+        configManager.saveConfig();
+        configManager.flush();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        configManager.shutdown();
+        try (Stream<Path> files = Files.walk(dataDirectory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean saveOneChange() {
+        boolean changed = whitelistManager.addPlayer("bench" + (counter++ & 1023))
+                || whitelistManager.removePlayer("bench" + (counter & 1023));
+        configManager.saveConfig();
+        configManager.flush();
+        return changed;
+    }
+
+    @Benchmark
+    public int load() {
+        configManager.loadConfig();
+        return whitelistManager.snapshot().size();
+    }
+}
@@ -0,0 +1,49 @@
+package me.PWRazer.keKWhiteList.benchmark;
+
+import com.velocitypowered.api.permission.Tristate;
+import com.velocitypowered.api.proxy.Player;
+
+import java.lang.reflect.Proxy;
+import java.net.InetSocketAddress;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Minimal stand-ins for Velocity objects. Only the methods the plugin calls on the login path are answered.
+ */
+final class Stubs {
+
+    private Stubs() {
+    }
+
+    static Player player(String username, UUID uuid, boolean bypass) {
+        InetSocketAddress address = new InetSocketAddress("127.0.0.1", 25565);
+        return (Player) Proxy.newProxyInstance(Player.class.getClassLoader(), new Class<?>[]{Player.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getUsername" -> username;
+                    case "getUniqueId" -> uuid;
+                    case "hasPermission" -> bypass;
+                    case "getPermissionValue" -> bypass ? Tristate.TRUE : Tristate.FALSE;
+                    case "getEffectiveLocale" -> Locale.ENGLISH;
+                    case "getRemoteAddress" -> address;
+                    case "isActive" -> true;
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "StubPlayer[" + username + "]";
+                    default -> defaultValue(method.getReturnType());
+                });
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == int.class || type == long.class || type == short.class || type == byte.class) {
+            return 0;
+        }
+        if (type == java.util.Optional.class) {
+            return java.util.Optional.empty();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,441 @@
+package me.PWRazer.keKWhiteList.loadtest;
+
+import com.velocitypowered.api.event.connection.LoginEvent;
+import com.velocitypowered.api.proxy.Player;
+import me.PWRazer.keKWhiteList.AdmissionThrottle;
+import me.PWRazer.keKWhiteList.AuditLog;
+import me.PWRazer.keKWhiteList.BypassCache;
+import me.PWRazer.keKWhiteList.BypassRegistry;
+import me.PWRazer.keKWhiteList.ConfigManager;
+import me.PWRazer.keKWhiteList.ConfigReloader;
+import me.PWRazer.keKWhiteList.DenialLog;
+import me.PWRazer.keKWhiteList.GroupManager;
+import me.PWRazer.keKWhiteList.LanguageManager;
+import me.PWRazer.keKWhiteList.LatencyHistogram;
+import me.PWRazer.keKWhiteList.LoginChecker;
+import me.PWRazer.keKWhiteList.WhitelistManager;
+import me.PWRazer.keKWhiteList.WhitelistMetrics;
+import org.slf4j.Logger;
+import org.slf4j.helpers.NOPLogger;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * Drives the real login path ({@link LoginChecker} → {@link WhitelistManager} → {@link LanguageManager}
+ * → denial) with a storm of simultaneous logins while admin threads keep adding players and reloading,
+ * then reports decision latency percentiles, throughput, GC and allocation figures and wrong decisions.
+ *
+ * <p>Run with {@code mvn -P loadtest verify -Dloadtest.options="players=20000 rate=0"}. Options are
+ * {@code key=value} pairs, see {@link #DEFAULTS}. Logins run on virtual threads when the JVM has them
+ * (Java 21+) and on a platform thread pool of {@code driver-threads} otherwise.</p>
+ *
+ * <p>Latency is measured from the moment a login was due, not from when the driver got to it, so a
+ * stalled driver shows up in the tail instead of hiding it. The process exits with status 1 if a listed
+ * player was denied for any reason other than the fail-closed fallback, an unlisted one was let in,
+ * or an admin addition or removal did not survive the reloads (a lost update).</p>
+ */
+public final class LoginStormSimulator {
+    private static final Logger LOGGER = NOPLogger.NOP_LOGGER;
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        DEFAULTS.put("players", "20000");           // logins per storm
+        DEFAULTS.put("list-size", "50000");         // whitelist size
+        DEFAULTS.put("whitelisted", "0.8");         // share of logins by listed players
+        DEFAULTS.put("bypass", "0.01");             // share of logins by unlisted players with kekwhitelist.bypass
+        DEFAULTS.put("rate", "0");                  // logins per second, 0 = all at once
+        DEFAULTS.put("adds-per-second", "20");      // concurrent /kwl add; every fourth one also removes an earlier add
+        DEFAULTS.put("reloads-per-second", "1");    // concurrent /kwl reload
+        DEFAULTS.put("storage", "yaml");
+        DEFAULTS.put("login-threads", "4");
+        DEFAULTS.put("timeout-ms", "500");
+        DEFAULTS.put("driver-threads", "512");
+        DEFAULTS.put("warmup", "2");
+        DEFAULTS.put("rounds", "3");
+        DEFAULTS.put("seed", "42");
+    }
+
+    private final Map<String, String> options;
+    private final Path dataDirectory;
+    private final WhitelistManager whitelistManager = new WhitelistManager();
+    private final WhitelistMetrics metrics = new WhitelistMetrics();
+    private final ConfigManager configManager;
+    private final LanguageManager languageManager;
+    private final GroupManager groupManager;
+    private final BypassCache bypassCache;
+    private final BypassRegistry bypassRegistry;
+    private final AuditLog auditLog;
+    private final LoginChecker loginChecker;
+    private final ConfigReloader reloader;
+    private final ExecutorService driver;
+    private final String driverKind;
+    private final AtomicInteger adminCounter = new AtomicInteger();
+
+    private LoginStormSimulator(Map<String, String> options) throws IOException {
+        this.options = options;
+        this.dataDirectory = Files.createTempDirectory("kwl-loadtest");
+        Files.writeString(dataDirectory.resolve("config.yml"), "whitelist: true\nlanguage: en\n"
+                + "storage: " + options.get("storage") + "\n"
+                + "login-check-threads: " + integer("login-threads") + "\n"
+                + "login-check-timeout-ms: " + integer("timeout-ms") + "\n"
+                + "whitelisted: []\n", StandardCharsets.UTF_8);
+        configManager = new ConfigManager(dataDirectory, LOGGER, whitelistManager, metrics);
+        configManager.loadConfig();
+        List<String> names = new ArrayList<>(integer("list-size"));
+        for (int i = 0; i < integer("list-size"); i++) {
+            names.add(listedName(i));
+        }
+        whitelistManager.apply(names, List.of());
+        configManager.saveConfig();
+        configManager.flush();
+
+        languageManager = new LanguageManager(dataDirectory, LOGGER);
+        languageManager.loadLanguage(configManager.getLanguage());
+        groupManager = new GroupManager(dataDirectory, LOGGER);
+        groupManager.load();
+        bypassCache = new BypassCache(configManager);
+        bypassRegistry = new BypassRegistry(dataDirectory, LOGGER);
+        auditLog = new AuditLog(dataDirectory, configManager, metrics, LOGGER, configManager.getAuditBufferSize());
+        auditLog.start();
+        loginChecker = new LoginChecker(configManager, whitelistManager, languageManager,
+                new DenialLog(LOGGER, configManager.getDenialLogIntervalSeconds()), bypassRegistry,
+                new AdmissionThrottle(configManager), bypassCache, auditLog, LOGGER);
+        reloader = new ConfigReloader(dataDirectory, configManager, languageManager, groupManager, bypassCache, LOGGER);
+
+        ExecutorService virtual = newVirtualThreadExecutor();
+        if (virtual != null) {
+            driver = virtual;
+            driverKind = "virtual threads";
+        } else {
+            int threads = integer("driver-threads");
+            AtomicInteger index = new AtomicInteger();
+            driver = Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "KeKWhiteList-Loadtest-" + index.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            driverKind = threads + " platform threads";
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>(DEFAULTS);
+        for (String arg : args) {
+            for (String token : arg.trim().split("\\s+")) {
+                if (token.isEmpty()) {
+                    continue;
+                }
+                int separator = token.indexOf('=');
+                String key = separator > 0 ? token.substring(0, separator) : token;
+                if (!DEFAULTS.containsKey(key)) {
+                    System.err.println("Unknown option " + key + ", known options: " + DEFAULTS.keySet());
+                    System.exit(2);
+                }
+                options.put(key, separator > 0 ? token.substring(separator + 1) : "");
+            }
+        }
+        System.out.println("Options: " + options);
+
+        LoginStormSimulator simulator = new LoginStormSimulator(options);
+        boolean correct = true;
+        int lostUpdates = 0;
+        try {
+            int warmup = simulator.integer("warmup");
+            int rounds = simulator.integer("rounds");
+            for (int round = 0; round < warmup + rounds; round++) {
+                Result result = simulator.storm(round);
+                if (round < warmup) {
+                    System.out.printf("Warm-up storm %d/%d done.%n", round + 1, warmup);
+                    continue;
+                }
+                System.out.printf("%nStorm %d/%d%n", round - warmup + 1, rounds);
+                result.print();
+                correct &= result.isCorrect();
+                lostUpdates += result.lostAdds() + result.lostRemoves();
+            }
+        } finally {
+            simulator.shutdown();
+        }
+        if (lostUpdates > 0) {
+            System.out.printf("%nFAILED: %d admin updates were lost across reloads.%n", lostUpdates);
+            System.exit(1);
+        }
+        System.exit(correct ? 0 : 1);
+    }
+
+    /**
+     * One storm: every player logs in once, at the configured rate or all at once, while the admin
+     * threads run. Afterwards the list is reloaded once more; every admin addition must still be there
+     * and every admin removal must still be gone.
+     */
+    private Result storm(int round) throws InterruptedException {
+        int players = integer("players");
+        List<Player> logins = new ArrayList<>(players);
+        boolean[] expected = new boolean[players];
+        Random random = new Random(integer("seed") + round);
+        double whitelisted = decimal("whitelisted");
+        double bypass = decimal("bypass");
+        for (int i = 0; i < players; i++) {
+            double roll = random.nextDouble();
+            String name;
+            boolean hasBypass = false;
+            if (roll < whitelisted) {
+                name = listedName(random.nextInt(integer("list-size")));
+            } else if (roll < whitelisted + bypass) {
+                name = "staff" + i;
+                hasBypass = true;
+            } else {
+                name = "bot" + round + "_" + i;
+            }
+            expected[i] = roll < whitelisted + bypass;
+            logins.add(StandIns.player(i, name, offlineUuid(name), hasBypass));
+        }
+
+        LatencyHistogram latency = new LatencyHistogram();
+        LongAdder allowed = new LongAdder();
+        LongAdder wrongDenials = new LongAdder();
+        LongAdder wrongAllows = new LongAdder();
+        CountDownLatch remaining = new CountDownLatch(players);
+        Queue<String> added = new ConcurrentLinkedQueue<>();
+        Queue<String> removed = new ConcurrentLinkedQueue<>();
+        AtomicInteger reloads = new AtomicInteger();
+        AtomicBoolean running = new AtomicBoolean(true);
+        long fallbacksBefore = metrics.getFallbackDecisions();
+        long gcCountBefore = gcCount();
+        long gcTimeBefore = gcTimeMillis();
+        long allocatedBefore = allocatedBytes();
+
+        Thread adder = admin("Adder", decimal("adds-per-second"), running, () -> {
+            int index = adminCounter.incrementAndGet();
+            String name = "admin" + index;
+            if (whitelistManager.addPlayer(name)) {
+                configManager.saveConfig();
+            }
+            added.add(name);
+            String earlier = index % 4 == 0 ? added.poll() : null;
+            if (earlier != null) {
+                if (whitelistManager.removePlayer(earlier)) {
+                    configManager.saveConfig();
+                }
+                removed.add(earlier);
+            }
+        });
+        Thread reloading = admin("Reloader", decimal("reloads-per-second"), running, () -> {
+            reloader.reload().join();
+            reloads.incrementAndGet();
+        });
+
+        double rate = decimal("rate");
+        long interval = rate > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / rate) : 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < players; i++) {
+            long due = start + i * interval;
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Player player = logins.get(i);
+            boolean shouldAllow = expected[i];
+            driver.execute(() -> {
+                try {
+                    LoginEvent event = new LoginEvent(player);
+                    loginChecker.check(event).join();
+                    latency.record(System.nanoTime() - due);
+                    boolean isAllowed = event.getResult().isAllowed();
+                    if (isAllowed) {
+                        allowed.increment();
+                    }
+                    if (isAllowed != shouldAllow) {
+                        (isAllowed ? wrongAllows : wrongDenials).increment();
+                    }
+                } finally {
+                    remaining.countDown();
+                }
+            });
+        }
+        remaining.await();
+        long elapsed = System.nanoTime() - start;
+        running.set(false);
+        adder.join();
+        reloading.join();
+
+        long allocated = allocatedBytes() - allocatedBefore;
+        long gcCount = gcCount() - gcCountBefore;
+        long gcTime = gcTimeMillis() - gcTimeBefore;
+        reloader.reload().join();
+        int lostAdds = 0;
+        for (String name : added) {
+            if (!whitelistManager.isWhitelisted(name)) {
+                lostAdds++;
+            }
+        }
+        int lostRemoves = 0;
+        for (String name : removed) {
+            if (whitelistManager.isWhitelisted(name)) {
+                lostRemoves++;
+            }
+        }
+        // Keep the list the same size from storm to storm
+        whitelistManager.apply(List.of(), new ArrayList<>(added));
+        configManager.saveConfig();
+        configManager.flush();
+
+        return new Result(players, elapsed, latency, allowed.sum(), metrics.getFallbackDecisions() - fallbacksBefore,
+                wrongDenials.sum(), wrongAllows.sum(), added.size() + removed.size(), removed.size(), reloads.get(),
+                lostAdds, lostRemoves, gcCount, gcTime, allocated, driverKind);
+    }
+
+    private Thread admin(String name, double perSecond, AtomicBoolean running, Runnable action) {
+        Thread thread = new Thread(() -> {
+            if (perSecond <= 0) {
+                return;
+            }
+            long interval = (long) (TimeUnit.SECONDS.toNanos(1) / perSecond);
+            long next = System.nanoTime();
+            while (running.get()) {
+                action.run();
+                next += interval;
+                long wait = next - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+            }
+        }, "KeKWhiteList-Loadtest-" + name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    private void shutdown() throws IOException {
+        driver.shutdownNow();
+        reloader.shutdown();
+        loginChecker.shutdown();
+        auditLog.shutdown();
+        bypassRegistry.shutdown();
+        groupManager.shutdown();
+        configManager.shutdown();
+        try (Stream<Path> files = Files.walk(dataDirectory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private int integer(String key) {
+        return Integer.parseInt(options.get(key));
+    }
+
+    private double decimal(String key) {
+        return Double.parseDouble(options.get(key));
+    }
+
+    private static String listedName(int index) {
+        return "player" + index;
+    }
+
+    private static UUID offlineUuid(String name) {
+        return UUID.nameUUIDFromBytes(("OfflinePlayer:" + name).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * The plugin targets Java 17, so virtual threads are looked up reflectively.
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static long gcCount() {
+        long total = 0;
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, bean.getCollectionCount());
+        }
+        return total;
+    }
+
+    private static long gcTimeMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, bean.getCollectionTime());
+        }
+        return total;
+    }
+
+    /**
+     * Bytes allocated so far by live platform threads: the plugin's login pool, the reloader, the admin
+     * threads and the fallback driver pool. Virtual threads are not visible here.
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean extended) || !extended.isThreadAllocatedMemorySupported()) {
+            return -1;
+        }
+        long total = 0;
+        for (long bytes : extended.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+            total += Math.max(0, bytes);
+        }
+        return total;
+    }
+
+    private record Result(int logins, long elapsedNanos, LatencyHistogram latency, long allowed, long fallbacks,
+                          long wrongDenials, long wrongAllows, int adds, int removes, int reloads, int lostAdds,
+                          int lostRemoves, long gcCount, long gcTimeMillis, long allocatedBytes, String driverKind) {
+
+        /**
+         * Denials of listed players are expected only as fail-closed fallbacks (full queue or timeout).
+         */
+        boolean isCorrect() {
+            return wrongDenials <= fallbacks && wrongAllows == 0 && lostAdds == 0 && lostRemoves == 0;
+        }
+
+        void print() {
+            double seconds = elapsedNanos / 1e9;
+            System.out.printf("  Throughput:   %d logins in %.0f ms, %.0f logins/s on %s%n",
+                    logins, seconds * 1000, logins / seconds, driverKind);
+            System.out.printf("  Latency:      p50 %s, p99 %s, p99.9 %s, max %s%n",
+                    millis(latency.percentileNanos(0.5)), millis(latency.percentileNanos(0.99)),
+                    millis(latency.percentileNanos(0.999)), millis(latency.maxNanos()));
+            System.out.printf("  Decisions:    %d allowed, %d denied, %d by fallback policy%n",
+                    allowed, logins - allowed, fallbacks);
+            System.out.printf("  Admin:        %d adds, %d removes, %d reloads during the storm%n", adds, removes, reloads);
+            System.out.printf("  GC:           %d collections, %d ms%n", gcCount, gcTimeMillis);
+            if (allocatedBytes >= 0) {
+                System.out.printf("  Allocation:   %.1f MB on platform threads, %d bytes per login%n",
+                        allocatedBytes / 1048576.0, allocatedBytes / Math.max(1, logins));
+            }
+            System.out.printf("  Correctness:  %d listed players denied, %d unlisted allowed, %d adds and %d removes lost -> %s%n",
+                    wrongDenials, wrongAllows, lostAdds, lostRemoves, isCorrect() ? "OK" : "FAILED");
+        }
+
+        private static String millis(long nanos) {
+            return String.format("%.2f ms", nanos / 1e6);
+        }
+    }
+}
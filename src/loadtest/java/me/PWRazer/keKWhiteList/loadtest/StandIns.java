@@ -0,0 +1,62 @@
+package me.PWRazer.keKWhiteList.loadtest;
+
+import com.velocitypowered.api.permission.Tristate;
+import com.velocitypowered.api.proxy.Player;
+
+import java.lang.reflect.Proxy;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * In-memory stand-ins for Velocity objects. Only the methods the plugin calls on the login path are answered;
+ * every player gets its own address in 10.0.0.0/8 so per-address throttling sees separate clients.
+ */
+final class StandIns {
+
+    private StandIns() {
+    }
+
+    static Player player(int index, String username, UUID uuid, boolean bypass) {
+        InetSocketAddress address = new InetSocketAddress(address(index), 25565);
+        return (Player) Proxy.newProxyInstance(Player.class.getClassLoader(), new Class<?>[]{Player.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getUsername" -> username;
+                    case "getUniqueId" -> uuid;
+                    case "hasPermission" -> bypass;
+                    case "getPermissionValue" -> bypass ? Tristate.TRUE : Tristate.FALSE;
+                    case "getEffectiveLocale" -> Locale.ENGLISH;
+                    case "getRemoteAddress" -> address;
+                    case "isActive" -> true;
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "SimulatedPlayer[" + username + "]";
+                    default -> defaultValue(method.getReturnType());
+                });
+    }
+
+    private static InetAddress address(int index) {
+        byte[] bytes = {10, (byte) (index >>> 16), (byte) (index >>> 8), (byte) index};
+        try {
+            return InetAddress.getByAddress(bytes);
+        } catch (UnknownHostException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == int.class || type == long.class || type == short.class || type == byte.class) {
+            return 0;
+        }
+        if (type == Optional.class) {
+            return Optional.empty();
+        }
+        return null;
+    }
+}
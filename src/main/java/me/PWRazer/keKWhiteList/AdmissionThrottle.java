@@ -0,0 +1,122 @@
+package me.PWRazer.keKWhiteList;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token buckets for denied logins: one per remote address and one global. Only denials cost tokens,
+ * so players who get in are never slowed down. An address whose bucket is empty is rejected at
+ * pre-login without the full check; when the global bucket is empty (a flood from many addresses)
+ * every connection that does not pass the cheap pre-login check is rejected there.
+ *
+ * <p>Each bucket is a single {@link AtomicLong} holding the time at which it will be full again
+ * (GCRA), updated with CAS. IPv6 addresses are bucketed by their /64, since one client usually holds
+ * a whole /64. Buckets that have refilled are evicted by {@link #evictIdle()}, and no more than
+ * {@code throttle-max-tracked} addresses are tracked at once; beyond that only the global cap applies.</p>
+ */
+public class AdmissionThrottle {
+    private static final long MINUTE_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final long SECOND_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final ConfigManager configManager;
+    private final Map<Long, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong global = new AtomicLong(System.nanoTime());
+
+    public AdmissionThrottle(ConfigManager configManager) {
+        this.configManager = configManager;
+    }
+
+    /**
+     * @return true if the address has used up its denials and should be rejected without a check.
+     */
+    public boolean isThrottled(InetAddress address) {
+        if (address == null || !configManager.isThrottleEnabled()) {
+            return false;
+        }
+        AtomicLong bucket = buckets.get(key(address));
+        return bucket != null && bucket.get() - System.nanoTime() > perAddressTolerance();
+    }
+
+    /**
+     * @return true while denials arrive faster than {@code throttle-global-denials-per-second}.
+     */
+    public boolean isOverloaded() {
+        return configManager.isThrottleEnabled() && global.get() - System.nanoTime() > globalTolerance();
+    }
+
+    /**
+     * Takes a token from the address's bucket and from the global one. Rejections of an already
+     * throttled address count too, which keeps a reconnect loop throttled until it pauses.
+     */
+    public void recordDenial(InetAddress address) {
+        if (!configManager.isThrottleEnabled()) {
+            return;
+        }
+        long now = System.nanoTime();
+        long globalInterval = SECOND_NANOS / Math.max(1, configManager.getThrottleGlobalDenialsPerSecond());
+        take(global, now, globalInterval, globalTolerance());
+        if (address == null) {
+            return;
+        }
+        Long key = key(address);
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null) {
+            if (buckets.size() >= configManager.getThrottleMaxTracked()) {
+                return;
+            }
+            bucket = buckets.computeIfAbsent(key, ignored -> new AtomicLong(now));
+        }
+        take(bucket, now, perAddressInterval(), perAddressTolerance());
+    }
+
+    /**
+     * Drops buckets that have refilled completely; called by a repeating task.
+     */
+    public void evictIdle() {
+        long now = System.nanoTime();
+        buckets.values().removeIf(bucket -> bucket.get() - now <= 0);
+    }
+
+    public int getTrackedAddresses() {
+        return buckets.size();
+    }
+
+    /**
+     * Moves the bucket's "full again" time one interval forward, at most to one interval past the
+     * throttling threshold so it drains within one interval once the client stops.
+     */
+    private static void take(AtomicLong bucket, long now, long interval, long tolerance) {
+        while (true) {
+            long current = bucket.get();
+            long next = Math.min(Math.max(current, now) + interval, now + tolerance + interval);
+            if (next == current || bucket.compareAndSet(current, next)) {
+                return;
+            }
+        }
+    }
+
+    private long perAddressInterval() {
+        return MINUTE_NANOS / Math.max(1, configManager.getThrottlePerMinute());
+    }
+
+    private long perAddressTolerance() {
+        return perAddressInterval() * Math.max(1, configManager.getThrottleBurst());
+    }
+
+    private long globalTolerance() {
+        // One second worth of denials
+        return SECOND_NANOS;
+    }
+
+    private static Long key(InetAddress address) {
+        if (address instanceof Inet4Address) {
+            // Inet4Address.hashCode() is the address itself; IPv4 keys only use the low 32 bits
+            return address.hashCode() & 0xFFFFFFFFL;
+        }
+        return CidrRange.toLong(address.getAddress(), 0);
+    }
+}
@@ -0,0 +1,443 @@
+package me.PWRazer.keKWhiteList;
+
+import org.slf4j.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Audit trail of whitelist changes and login decisions in {@code audit/audit.ndjson}, one JSON object
+ * per line, rotated to {@code audit.1.ndjson}, {@code audit.2.ndjson}, ... by size.
+ *
+ * <p>Callers put a record into a bounded lock-free ring buffer; a single background thread drains it
+ * in batches. Login decisions are low priority and are dropped once the buffer is three quarters full,
+ * so the login path never waits. Changes are not dropped: when the buffer is full, a change waits for the
+ * appender to make room, which only slows bulk operations such as an import of more names than the
+ * buffer holds. Drops are counted in {@link WhitelistMetrics}.</p>
+ */
+public class AuditLog {
+    private static final String DIRECTORY = "audit";
+    private static final String FILE_PREFIX = "audit";
+    private static final String FILE_SUFFIX = ".ndjson";
+    private static final int BATCH_SIZE = 512;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final int READ_CHUNK = 8192;
+    private static final int HISTORY_ATTEMPTS = 3;
+    private static final long BACK_OFF_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final Path directory;
+    private final ConfigManager configManager;
+    private final WhitelistMetrics metrics;
+    private final Logger logger;
+    private final AtomicReferenceArray<Record> slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+    private volatile boolean running;
+    private volatile Thread appender;
+    // Bumped after every rotation, so a history scan can tell that the files moved under it
+    private volatile long rotations;
+    private OutputStream out;
+    private long fileBytes;
+
+    public AuditLog(Path dataDirectory, ConfigManager configManager, WhitelistMetrics metrics, Logger logger, int capacity) {
+        this.directory = dataDirectory.resolve(DIRECTORY);
+        this.configManager = configManager;
+        this.metrics = metrics;
+        this.logger = logger;
+        int size = Integer.highestOneBit(Math.max(16, capacity - 1)) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        this.mask = size - 1;
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        appender = new Thread(this::run, "KeKWhiteList-Audit");
+        appender.setDaemon(true);
+        appender.start();
+    }
+
+    /**
+     * Records a whitelist change. Waits while the buffer is full; dropped only if the log is not running.
+     *
+     * @param actor  who made the change: a player name, {@code console}, {@code api} or a subsystem.
+     * @param action what was done, e.g. {@code add}, {@code remove}, {@code group-add:staff}.
+     * @param target the player name (lowercase), UUID or range the action applies to.
+     * @param result the outcome, e.g. {@code added} or {@code unchanged}.
+     */
+    public void change(String actor, String action, String target, String result) {
+        offer(new Record(System.currentTimeMillis(), actor, action, target, result), slots.length(), true);
+    }
+
+    /**
+     * Records a login decision. Low priority: dropped once the buffer is three quarters full.
+     */
+    public void login(String username, String result) {
+        offer(new Record(System.currentTimeMillis(), "login", "login",
+                WhitelistManager.normalize(username), result), slots.length() - slots.length() / 4, false);
+    }
+
+    /**
+     * Reads records for {@code target} from the newest backwards, file by file, and stops as soon as
+     * {@code limit} are found, so the cost depends on how far back they are rather than on the log size.
+     * A rotation during the scan shifts every file by one index, so the scan starts over; if rotations keep
+     * coming, the last attempt skips files that moved away and may repeat or miss a few records.
+     *
+     * @return records, newest first.
+     */
+    public List<Record> history(String target, int limit) throws IOException {
+        String needle = "\"target\":" + quote(target) + ",";
+        List<Record> found = new ArrayList<>();
+        for (int attempt = 1; ; attempt++) {
+            long rotationsBefore = rotations;
+            boolean last = attempt == HISTORY_ATTEMPTS;
+            found.clear();
+            boolean complete = true;
+            for (int index = 0; index <= configManager.getAuditMaxFiles() && found.size() < limit; index++) {
+                Path file = file(index);
+                if (!Files.isRegularFile(file)) {
+                    continue;
+                }
+                try {
+                    scanBackwards(file, needle, found, limit);
+                } catch (FileNotFoundException | NoSuchFileException e) {
+                    // Moved by a rotation between the check and the open
+                    complete = false;
+                    if (!last) {
+                        break;
+                    }
+                }
+            }
+            if (last || (complete && rotations == rotationsBefore)) {
+                return found;
+            }
+        }
+    }
+
+    public void shutdown() {
+        Thread thread;
+        synchronized (this) {
+            running = false;
+            thread = appender;
+        }
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(2));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Multi-producer enqueue: a producer claims a position with one CAS on {@code tail} and publishes
+     * the slot by advancing its sequence; the single consumer frees it by moving the sequence one lap on.
+     *
+     * @param wait whether to wait for room instead of dropping the record while the appender is running.
+     */
+    private void offer(Record record, int limit, boolean wait) {
+        if (!configManager.isAuditEnabled()) {
+            return;
+        }
+        while (true) {
+            long position = tail.get();
+            if (position - head >= limit) {
+                if (wait && running) {
+                    backOff();
+                    continue;
+                }
+                metrics.recordAuditDrop();
+                return;
+            }
+            int index = (int) position & mask;
+            long sequence = sequences.get(index);
+            if (sequence == position) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots.set(index, record);
+                    sequences.set(index, position + 1);
+                    if (position - head == slots.length() / 2) {
+                        // Wake the appender early instead of letting the buffer fill up while it is parked
+                        Thread thread = appender;
+                        if (thread != null) {
+                            LockSupport.unpark(thread);
+                        }
+                    }
+                    return;
+                }
+            } else if (sequence < position) {
+                // The consumer has not freed this slot yet
+                if (wait && running) {
+                    backOff();
+                    continue;
+                }
+                metrics.recordAuditDrop();
+                return;
+            }
+        }
+    }
+
+    private void backOff() {
+        Thread thread = appender;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+        LockSupport.parkNanos(BACK_OFF_NANOS);
+    }
+
+    private Record poll() {
+        long position = head;
+        int index = (int) position & mask;
+        if (sequences.get(index) != position + 1) {
+            return null;
+        }
+        Record record = slots.get(index);
+        slots.set(index, null);
+        sequences.set(index, position + slots.length());
+        head = position + 1;
+        return record;
+    }
+
+    private void run() {
+        List<Record> batch = new ArrayList<>(BATCH_SIZE);
+        while (true) {
+            Record record;
+            while (batch.size() < BATCH_SIZE && (record = poll()) != null) {
+                batch.add(record);
+            }
+            if (batch.isEmpty()) {
+                if (!running) {
+                    break;
+                }
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+            try {
+                write(batch);
+            } catch (IOException e) {
+                logger.error("Failed to write {} audit records.", batch.size(), e);
+                closeFile();
+            }
+            batch.clear();
+        }
+        closeFile();
+    }
+
+    private void write(List<Record> batch) throws IOException {
+        long maxFileBytes = configManager.getAuditMaxFileBytes();
+        for (Record record : batch) {
+            if (out == null) {
+                Files.createDirectories(directory);
+                Path file = file(0);
+                fileBytes = Files.isRegularFile(file) ? Files.size(file) : 0;
+                out = new BufferedOutputStream(Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND));
+            }
+            // Bytes, not chars: names and reasons may be outside ASCII, and the size limit is on disk
+            byte[] line = record.toJson().getBytes(StandardCharsets.UTF_8);
+            out.write(line);
+            out.write('\n');
+            fileBytes += line.length + 1;
+            if (fileBytes >= maxFileBytes) {
+                out.flush();
+                rotate();
+            }
+        }
+        if (out != null) {
+            out.flush();
+        }
+    }
+
+    private void rotate() throws IOException {
+        closeFile();
+        int maxFiles = configManager.getAuditMaxFiles();
+        Files.deleteIfExists(file(maxFiles));
+        for (int index = maxFiles - 1; index >= 0; index--) {
+            if (Files.exists(file(index))) {
+                Files.move(file(index), file(index + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        rotations++;
+    }
+
+    private void closeFile() {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close audit log.", e);
+            }
+            out = null;
+        }
+    }
+
+    private Path file(int index) {
+        return directory.resolve(index == 0 ? FILE_PREFIX + FILE_SUFFIX : FILE_PREFIX + "." + index + FILE_SUFFIX);
+    }
+
+    /**
+     * Reads the file in chunks from the end. The part of a line cut by a chunk boundary is carried over
+     * and completed by the next (earlier) chunk.
+     */
+    private static void scanBackwards(Path file, String needle, List<Record> found, int limit) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "r")) {
+            long position = raf.length();
+            byte[] carry = new byte[0];
+            while (position > 0 && found.size() < limit) {
+                int length = (int) Math.min(READ_CHUNK, position);
+                position -= length;
+                byte[] buffer = new byte[length + carry.length];
+                raf.seek(position);
+                raf.readFully(buffer, 0, length);
+                System.arraycopy(carry, 0, buffer, length, carry.length);
+                int end = buffer.length;
+                for (int i = buffer.length - 1; i >= 0 && found.size() < limit; i--) {
+                    if (buffer[i] == '\n') {
+                        match(new String(buffer, i + 1, end - i - 1, StandardCharsets.UTF_8), needle, found);
+                        end = i;
+                    }
+                }
+                if (position == 0 && found.size() < limit) {
+                    match(new String(buffer, 0, end, StandardCharsets.UTF_8), needle, found);
+                }
+                carry = Arrays.copyOf(buffer, end);
+            }
+        }
+    }
+
+    private static void match(String line, String needle, List<Record> found) {
+        if (line.contains(needle)) {
+            Record record = Record.parse(line);
+            if (record != null) {
+                found.add(record);
+            }
+        }
+    }
+
+    static String quote(String value) {
+        StringBuilder builder = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> builder.append("\\\"");
+                case '\\' -> builder.append("\\\\");
+                case '\n' -> builder.append("\\n");
+                case '\r' -> builder.append("\\r");
+                case '\t' -> builder.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        builder.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        builder.append(c);
+                    }
+                }
+            }
+        }
+        return builder.append('"').toString();
+    }
+
+    public record Record(long timestamp, String actor, String action, String target, String result) {
+        String toJson() {
+            return "{\"ts\":" + timestamp + ",\"actor\":" + quote(actor) + ",\"action\":" + quote(action)
+                    + ",\"target\":" + quote(target) + ",\"result\":" + quote(result) + "}";
+        }
+
+        /**
+         * Parses a line written by {@link #toJson()}.
+         *
+         * @return the record, or null if the line is not one.
+         */
+        static Record parse(String line) {
+            try {
+                Reader reader = new Reader(line);
+                reader.expect("{\"ts\":");
+                long timestamp = reader.number();
+                reader.expect(",\"actor\":");
+                String actor = reader.string();
+                reader.expect(",\"action\":");
+                String action = reader.string();
+                reader.expect(",\"target\":");
+                String target = reader.string();
+                reader.expect(",\"result\":");
+                String result = reader.string();
+                return new Record(timestamp, actor, action, target, result);
+            } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+                return null;
+            }
+        }
+    }
+
+    private static final class Reader {
+        private final String line;
+        private int position;
+
+        Reader(String line) {
+            this.line = line;
+        }
+
+        void expect(String text) {
+            if (!line.startsWith(text, position)) {
+                throw new IllegalArgumentException();
+            }
+            position += text.length();
+        }
+
+        long number() {
+            int start = position;
+            while (position < line.length() && (Character.isDigit(line.charAt(position)) || line.charAt(position) == '-')) {
+                position++;
+            }
+            return Long.parseLong(line.substring(start, position));
+        }
+
+        String string() {
+            expect("\"");
+            StringBuilder builder = new StringBuilder();
+            while (true) {
+                char c = line.charAt(position++);
+                if (c == '"') {
+                    return builder.toString();
+                }
+                if (c != '\\') {
+                    builder.append(c);
+                    continue;
+                }
+                char escaped = line.charAt(position++);
+                switch (escaped) {
+                    case 'n' -> builder.append('\n');
+                    case 'r' -> builder.append('\r');
+                    case 't' -> builder.append('\t');
+                    case 'u' -> {
+                        builder.append((char) Integer.parseInt(line.substring(position, position + 4), 16));
+                        position += 4;
+                    }
+                    default -> builder.append(escaped);
+                }
+            }
+        }
+    }
+}
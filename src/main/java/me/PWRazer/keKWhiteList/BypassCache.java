@@ -0,0 +1,75 @@
+package me.PWRazer.keKWhiteList;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded, TTL-evicting cache of {@code kekwhitelist.bypass} results by UUID, so a player who is not on
+ * the list does not cost a permission lookup (possibly a remote database query) on every login.
+ * Both outcomes are cached. Size and TTL are read from the config on each use, so a reload applies them.
+ */
+public class BypassCache {
+    private final ConfigManager configManager;
+    private final Map<UUID, Entry> entries = new ConcurrentHashMap<>();
+
+    public BypassCache(ConfigManager configManager) {
+        this.configManager = configManager;
+    }
+
+    /**
+     * @return the cached decision, or null if there is none or it has expired.
+     */
+    public Boolean get(UUID uuid) {
+        Entry entry = entries.get(uuid);
+        if (entry == null) {
+            return null;
+        }
+        if (!entry.isValid(System.nanoTime())) {
+            entries.remove(uuid, entry);
+            return null;
+        }
+        return entry.bypass();
+    }
+
+    public void put(UUID uuid, boolean bypass) {
+        long ttlNanos = TimeUnit.SECONDS.toNanos(configManager.getBypassCacheTtlSeconds());
+        if (ttlNanos <= 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        entries.put(uuid, new Entry(bypass, now + ttlNanos));
+        evictIfNeeded(now);
+    }
+
+    public void invalidate(UUID uuid) {
+        entries.remove(uuid);
+    }
+
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    private void evictIfNeeded(long now) {
+        int maxSize = Math.max(1, configManager.getBypassCacheSize());
+        if (entries.size() <= maxSize) {
+            return;
+        }
+        entries.values().removeIf(entry -> !entry.isValid(now));
+        // Still full: drop arbitrary entries down to 90% so the sweep is not repeated on every insert
+        int target = maxSize - maxSize / 10;
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (entries.size() > target && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    private record Entry(boolean bypass, long expiresAt) {
+        boolean isValid(long now) {
+            return now - expiresAt < 0;
+        }
+    }
+}
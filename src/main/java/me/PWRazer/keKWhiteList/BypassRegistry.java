@@ -0,0 +1,111 @@
+package me.PWRazer.keKWhiteList;
+
+import org.slf4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Players seen holding {@code kekwhitelist.bypass} at login. Permissions are not available before
+ * authentication, so the pre-login check lets these identities through and leaves the real
+ * permission check to {@code LoginEvent}. Persisted to {@code bypass-cache.txt} ({@code uuid name} per line).
+ */
+public class BypassRegistry {
+    private static final String FILE_NAME = "bypass-cache.txt";
+
+    private final Path file;
+    private final Logger logger;
+    private final Map<UUID, String> players = new ConcurrentHashMap<>();
+    private final Map<String, UUID> uuidsByName = new ConcurrentHashMap<>();
+    private final WriteBehindWriter writer;
+
+    public BypassRegistry(Path dataDirectory, Logger logger) {
+        this.file = dataDirectory.resolve(FILE_NAME);
+        this.logger = logger;
+        this.writer = new WriteBehindWriter(FILE_NAME, 1000, this::write, logger);
+    }
+
+    public void load() {
+        if (!Files.isRegularFile(file)) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.strip().split("\\s+");
+                if (parts.length == 2) {
+                    try {
+                        put(UUID.fromString(parts[0]), parts[1]);
+                    } catch (IllegalArgumentException e) {
+                        logger.warn("Skipping invalid line in {}: {}", FILE_NAME, line);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Failed to read {}", file, e);
+        }
+    }
+
+    public boolean isKnown(UUID uuid) {
+        return uuid != null && players.containsKey(uuid);
+    }
+
+    public boolean isKnown(String username) {
+        return uuidsByName.containsKey(WhitelistManager.normalize(username));
+    }
+
+    /**
+     * Records the result of a real permission check made at login.
+     */
+    public void update(UUID uuid, String username, boolean hasBypass) {
+        if (hasBypass) {
+            if (!username.equals(players.get(uuid))) {
+                put(uuid, username);
+                writer.markDirty();
+            }
+        } else {
+            String previous = players.remove(uuid);
+            if (previous != null) {
+                uuidsByName.remove(WhitelistManager.normalize(previous), uuid);
+                writer.markDirty();
+            }
+        }
+    }
+
+    public void shutdown() {
+        writer.shutdown();
+    }
+
+    private void put(UUID uuid, String username) {
+        String previous = players.put(uuid, username);
+        if (previous != null) {
+            uuidsByName.remove(WhitelistManager.normalize(previous), uuid);
+        }
+        uuidsByName.put(WhitelistManager.normalize(username), uuid);
+    }
+
+    private void write() throws IOException {
+        Files.createDirectories(file.getParent());
+        Path tempPath = file.resolveSibling(FILE_NAME + ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(tempPath, StandardCharsets.UTF_8)) {
+            for (Map.Entry<UUID, String> entry : players.entrySet()) {
+                out.write(entry.getKey() + " " + entry.getValue());
+                out.newLine();
+            }
+        }
+        try {
+            Files.move(tempPath, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempPath, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
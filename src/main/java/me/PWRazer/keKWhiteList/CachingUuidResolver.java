@@ -0,0 +1,94 @@
+package me.PWRazer.keKWhiteList;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded, TTL-evicting cache in front of another resolver. Concurrent lookups of the same name share
+ * one future, so the delegate sees at most one request per name per TTL. Failed lookups are not cached.
+ */
+public class CachingUuidResolver implements UuidResolver {
+    private final UuidResolver delegate;
+    private final int maxSize;
+    private final long ttlNanos;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public CachingUuidResolver(UuidResolver delegate, int maxSize, long ttl, TimeUnit unit) {
+        this.delegate = delegate;
+        this.maxSize = Math.max(1, maxSize);
+        this.ttlNanos = unit.toNanos(ttl);
+    }
+
+    public UuidResolver getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public CompletableFuture<Optional<UUID>> resolve(String username) {
+        String key = WhitelistManager.normalize(username);
+        long now = System.nanoTime();
+        Entry existing = entries.get(key);
+        if (existing != null && existing.isValid(now)) {
+            return existing.future;
+        }
+        Entry created = new Entry(new CompletableFuture<>(), now + ttlNanos);
+        Entry winner = entries.compute(key, (k, old) -> old != null && old.isValid(now) ? old : created);
+        if (winner != created) {
+            return winner.future;
+        }
+        evictIfNeeded(now);
+        CompletableFuture<Optional<UUID>> lookup;
+        try {
+            lookup = delegate.resolve(username);
+        } catch (RuntimeException e) {
+            lookup = CompletableFuture.failedFuture(e);
+        }
+        lookup.whenComplete((result, throwable) -> {
+            if (throwable != null) {
+                entries.remove(key, created);
+                created.future.completeExceptionally(throwable);
+            } else {
+                created.future.complete(result);
+            }
+        });
+        return created.future;
+    }
+
+    /**
+     * Stores a known mapping, e.g. from a player that just logged in.
+     */
+    public void remember(String username, UUID uuid) {
+        entries.put(WhitelistManager.normalize(username),
+                new Entry(CompletableFuture.completedFuture(Optional.of(uuid)), System.nanoTime() + ttlNanos));
+        evictIfNeeded(System.nanoTime());
+    }
+
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    private void evictIfNeeded(long now) {
+        if (entries.size() <= maxSize) {
+            return;
+        }
+        entries.values().removeIf(entry -> !entry.isValid(now));
+        // Still full: drop arbitrary entries down to 90% so the sweep is not repeated on every insert
+        int target = maxSize - maxSize / 10;
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (entries.size() > target && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    private record Entry(CompletableFuture<Optional<UUID>> future, long expiresAt) {
+        boolean isValid(long now) {
+            return now - expiresAt < 0;
+        }
+    }
+}
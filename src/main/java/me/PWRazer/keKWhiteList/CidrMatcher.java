@@ -0,0 +1,145 @@
+package me.PWRazer.keKWhiteList;
+
+import java.net.Inet4Address;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Immutable set of {@link CidrRange}s answering "is this address inside any range". Each address family
+ * is a compressed binary radix tree: a node stores its whole prefix, so one masked compare skips any run
+ * of single-child bits and a lookup visits at most one node per distinct prefix length on its path.
+ * Lookups do not allocate for IPv4; IPv6 needs the 16 address bytes, which {@link InetAddress} only
+ * hands out as a copy.
+ */
+public final class CidrMatcher {
+    static final CidrMatcher EMPTY = new CidrMatcher(Set.of(), null, null);
+
+    private final Set<CidrRange> ranges;
+    private final Node ipv4;
+    private final Node ipv6;
+
+    private CidrMatcher(Set<CidrRange> ranges, Node ipv4, Node ipv6) {
+        this.ranges = ranges;
+        this.ipv4 = ipv4;
+        this.ipv6 = ipv6;
+    }
+
+    public static CidrMatcher of(Collection<CidrRange> ranges) {
+        Node ipv4 = null;
+        Node ipv6 = null;
+        for (CidrRange range : ranges) {
+            if (range.ipv6()) {
+                ipv6 = insert(ipv6, range.hi(), range.lo(), range.prefixLength());
+            } else {
+                ipv4 = insert(ipv4, range.hi(), range.lo(), range.prefixLength());
+            }
+        }
+        return new CidrMatcher(Set.copyOf(ranges), ipv4, ipv6);
+    }
+
+    public boolean matches(InetAddress address) {
+        if (address instanceof Inet4Address) {
+            // Inet4Address.hashCode() is the address itself, which saves copying it out with getAddress()
+            return ipv4 != null && lookup(ipv4, (long) address.hashCode() << 32, 0);
+        }
+        if (address instanceof Inet6Address && ipv6 != null) {
+            byte[] bytes = address.getAddress();
+            return lookup(ipv6, CidrRange.toLong(bytes, 0), CidrRange.toLong(bytes, 8));
+        }
+        return false;
+    }
+
+    public Set<CidrRange> ranges() {
+        return ranges;
+    }
+
+    public boolean isEmpty() {
+        return ranges.isEmpty();
+    }
+
+    private static boolean lookup(Node node, long hi, long lo) {
+        while (node != null && node.covers(hi, lo)) {
+            if (node.terminal) {
+                return true;
+            }
+            node = bit(hi, lo, node.length) == 0 ? node.zero : node.one;
+        }
+        return false;
+    }
+
+    private static Node insert(Node node, long hi, long lo, int length) {
+        if (node == null) {
+            return new Node(hi, lo, length, true);
+        }
+        int common = Math.min(Math.min(node.length, length), commonPrefix(node.hi, node.lo, hi, lo));
+        if (common == node.length) {
+            if (node.terminal) {
+                // Already covered by a shorter range
+                return node;
+            }
+            if (length == node.length) {
+                return new Node(node.hi, node.lo, length, true);
+            }
+            if (bit(hi, lo, node.length) == 0) {
+                node.zero = insert(node.zero, hi, lo, length);
+            } else {
+                node.one = insert(node.one, hi, lo, length);
+            }
+            return node;
+        }
+        Node branch = new Node(hi & CidrRange.mask(Math.min(common, 64)), lo & CidrRange.mask(Math.max(common - 64, 0)),
+                common, common == length);
+        if (!branch.terminal) {
+            Node leaf = new Node(hi, lo, length, true);
+            if (bit(hi, lo, common) == 0) {
+                branch.zero = leaf;
+            } else {
+                branch.one = leaf;
+            }
+            if (bit(node.hi, node.lo, common) == 0) {
+                branch.zero = node;
+            } else {
+                branch.one = node;
+            }
+        }
+        return branch;
+    }
+
+    private static int commonPrefix(long hi1, long lo1, long hi2, long lo2) {
+        long hiDiff = hi1 ^ hi2;
+        return hiDiff != 0 ? Long.numberOfLeadingZeros(hiDiff) : 64 + Long.numberOfLeadingZeros(lo1 ^ lo2);
+    }
+
+    private static int bit(long hi, long lo, int index) {
+        return (int) ((index < 64 ? hi >>> (63 - index) : lo >>> (127 - index)) & 1);
+    }
+
+    /**
+     * A prefix of {@code length} bits. Terminal nodes are ranges and never have children, since
+     * everything below them is already covered; other nodes are branch points with two children.
+     */
+    private static final class Node {
+        private final long hi;
+        private final long lo;
+        private final int length;
+        private final boolean terminal;
+        private Node zero;
+        private Node one;
+
+        Node(long hi, long lo, int length, boolean terminal) {
+            this.hi = hi;
+            this.lo = lo;
+            this.length = length;
+            this.terminal = terminal;
+        }
+
+        boolean covers(long addressHi, long addressLo) {
+            if (length <= 64) {
+                return ((addressHi ^ hi) & CidrRange.mask(length)) == 0;
+            }
+            return addressHi == hi && ((addressLo ^ lo) & CidrRange.mask(length - 64)) == 0;
+        }
+    }
+}
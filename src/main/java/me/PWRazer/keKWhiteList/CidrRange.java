@@ -0,0 +1,85 @@
+package me.PWRazer.keKWhiteList;
+
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.regex.Pattern;
+
+/**
+ * An IPv4 or IPv6 address range such as {@code 10.0.0.0/8} or {@code 2001:db8::/32}. The address is kept
+ * as a 128-bit key in two longs, most significant bit first; IPv4 uses the top 32 bits of {@code hi}.
+ * Bits past the prefix length are always zero.
+ */
+public record CidrRange(boolean ipv6, long hi, long lo, int prefixLength) {
+    private static final Pattern IPV4 = Pattern.compile("((25[0-5]|2[0-4]\\d|1\\d\\d|[1-9]?\\d)\\.){3}(25[0-5]|2[0-4]\\d|1\\d\\d|[1-9]?\\d)");
+    private static final Pattern IPV6 = Pattern.compile("[0-9a-fA-F:.]+");
+
+    /**
+     * Parses {@code address} or {@code address/prefix}. Only literal addresses are accepted, never host names,
+     * so parsing does not touch DNS.
+     *
+     * @return the range, or null if the text is not a valid range.
+     */
+    public static CidrRange parse(String text) {
+        if (text == null) {
+            return null;
+        }
+        String trimmed = text.strip();
+        int slash = trimmed.indexOf('/');
+        String host = slash < 0 ? trimmed : trimmed.substring(0, slash);
+        if (host.indexOf(':') >= 0 ? !IPV6.matcher(host).matches() : !IPV4.matcher(host).matches()) {
+            return null;
+        }
+        InetAddress address;
+        try {
+            address = InetAddress.getByName(host);
+        } catch (UnknownHostException e) {
+            return null;
+        }
+        boolean ipv6 = address instanceof Inet6Address;
+        int width = ipv6 ? 128 : 32;
+        int length = width;
+        if (slash >= 0) {
+            try {
+                length = Integer.parseInt(trimmed.substring(slash + 1));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            if (length < 0 || length > width) {
+                return null;
+            }
+        }
+        byte[] bytes = address.getAddress();
+        long hi = ipv6 ? toLong(bytes, 0) : (toLong(bytes, 0) >>> 32) << 32;
+        long lo = ipv6 ? toLong(bytes, 8) : 0;
+        return new CidrRange(ipv6, hi & mask(Math.min(length, 64)), lo & mask(Math.max(length - 64, 0)), length);
+    }
+
+    /**
+     * @return a long with the top {@code bits} bits set, {@code bits} in 0..64.
+     */
+    static long mask(int bits) {
+        return bits == 0 ? 0 : -1L << (64 - bits);
+    }
+
+    static long toLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (offset + i < bytes.length ? bytes[offset + i] & 0xFF : 0);
+        }
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        byte[] bytes = new byte[ipv6 ? 16 : 4];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) ((i < 8 ? hi >>> (56 - 8 * i) : lo >>> (120 - 8 * i)) & 0xFF);
+        }
+        try {
+            return InetAddress.getByAddress(bytes).getHostAddress() + "/" + prefixLength;
+        } catch (UnknownHostException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
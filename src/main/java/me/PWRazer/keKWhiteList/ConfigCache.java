@@ -0,0 +1,184 @@
+package me.PWRazer.keKWhiteList;
+
+import org.slf4j.Logger;
+import org.yaml.snakeyaml.Yaml;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary copy of the last parsed config.yml, so a start with an unchanged file skips parsing the
+ * whitelist as YAML. The cache is used only while config.yml has the recorded modification time,
+ * size and CRC-32C; on any mismatch or damage it is ignored and rewritten after the next parse.
+ *
+ * <p>Format: {@code int magic, int version, long mtimeMillis, long size, int crc32c, byte flags,
+ * int settingsLength, byte[] utf8 settings YAML, int count, count x (short length, byte[] utf8 name),
+ * int uuidCount, uuidCount x (short length, byte[] utf8 uuid, short length, byte[] utf8 name)}.
+ * Settings are config.yml without the two whitelist keys; they are small and still stored as YAML.
+ * Flags record which whitelist keys were present, so the result is the same map a YAML parse gives.</p>
+ */
+public class ConfigCache {
+    private static final String FILE_NAME = "config.cache";
+    private static final int MAGIC = 0x4B574C43; // "KWLC"
+    private static final int VERSION = 1;
+    private static final int FLAG_PLAYERS = 1;
+    private static final int FLAG_UUIDS = 2;
+
+    private final Path file;
+    private final String playersKey;
+    private final String uuidsKey;
+    private final Logger logger;
+
+    public ConfigCache(Path dataDirectory, String playersKey, String uuidsKey, Logger logger) {
+        this.file = dataDirectory.resolve(FILE_NAME);
+        this.playersKey = playersKey;
+        this.uuidsKey = uuidsKey;
+        this.logger = logger;
+    }
+
+    /**
+     * Reads the cache through a memory mapping. Everything is copied out before returning, so the
+     * mapping is not used afterwards.
+     *
+     * @param modified    modification time of config.yml, taken before {@code configBytes} were read.
+     * @param configBytes current contents of config.yml.
+     * @return the parsed config.yml, or null if there is no valid cache for exactly these contents.
+     */
+    public Map<String, Object> read(FileTime modified, byte[] configBytes) {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION
+                    || buffer.getLong() != modified.toMillis() || buffer.getLong() != configBytes.length
+                    || buffer.getInt() != checksum(configBytes)) {
+                return null;
+            }
+            int flags = buffer.get();
+            Object loaded = new Yaml().load(string(buffer, buffer.getInt()));
+            Map<String, Object> config = new LinkedHashMap<>();
+            if (loaded instanceof Map<?, ?> settings) {
+                settings.forEach((key, value) -> config.put(String.valueOf(key), value));
+            }
+            int count = buffer.getInt();
+            List<String> players = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                players.add(string(buffer, buffer.getShort() & 0xFFFF));
+            }
+            int uuidCount = buffer.getInt();
+            Map<String, String> uuids = new LinkedHashMap<>(uuidCount * 2);
+            for (int i = 0; i < uuidCount; i++) {
+                String uuid = string(buffer, buffer.getShort() & 0xFFFF);
+                uuids.put(uuid, string(buffer, buffer.getShort() & 0xFFFF));
+            }
+            if ((flags & FLAG_PLAYERS) != 0) {
+                config.put(playersKey, players);
+            }
+            if ((flags & FLAG_UUIDS) != 0) {
+                config.put(uuidsKey, uuids);
+            }
+            return config;
+        } catch (IOException | RuntimeException e) {
+            // Truncated file, bad lengths or settings YAML that no longer parses
+            logger.warn("Ignoring damaged config cache {}: {}", file, e.toString());
+            return null;
+        }
+    }
+
+    /**
+     * Stores {@code config}, the parsed form of {@code configBytes}. Failures are only logged: without
+     * a cache the next start parses config.yml as before.
+     */
+    public void write(FileTime modified, byte[] configBytes, Map<String, Object> config) {
+        Map<String, Object> settings = new HashMap<>(config);
+        Object players = settings.remove(playersKey);
+        Object uuids = settings.remove(uuidsKey);
+        int flags = (config.containsKey(playersKey) ? FLAG_PLAYERS : 0) | (config.containsKey(uuidsKey) ? FLAG_UUIDS : 0);
+        Path tempPath = file.resolveSibling(FILE_NAME + ".tmp");
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + configBytes.length / 2);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(modified.toMillis());
+            out.writeLong(configBytes.length);
+            out.writeInt(checksum(configBytes));
+            out.writeByte(flags);
+            byte[] settingsYaml = new Yaml().dump(settings).getBytes(StandardCharsets.UTF_8);
+            out.writeInt(settingsYaml.length);
+            out.write(settingsYaml);
+            List<String> names = new ArrayList<>();
+            if (players instanceof List<?> list) {
+                for (Object name : list) {
+                    if (name != null) {
+                        names.add(name.toString());
+                    }
+                }
+            }
+            out.writeInt(names.size());
+            for (String name : names) {
+                writeString(out, name);
+            }
+            Map<?, ?> uuidMap = uuids instanceof Map<?, ?> map ? map : Map.of();
+            out.writeInt(uuidMap.size());
+            for (Map.Entry<?, ?> entry : uuidMap.entrySet()) {
+                writeString(out, String.valueOf(entry.getKey()));
+                writeString(out, String.valueOf(entry.getValue()));
+            }
+            out.flush();
+            Files.write(tempPath, bytes.toByteArray());
+            try {
+                Files.move(tempPath, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempPath, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException | RuntimeException e) {
+            // On Windows the file cannot be replaced while an earlier mapping of it is still alive
+            logger.debug("Failed to write config cache {}", file, e);
+            try {
+                Files.deleteIfExists(tempPath);
+            } catch (IOException ignored) {
+                // Nothing left to clean up
+            }
+        }
+    }
+
+    private static int checksum(byte[] bytes) {
+        CRC32C crc = new CRC32C();
+        crc.update(bytes);
+        return (int) crc.getValue();
+    }
+
+    private static String string(ByteBuffer buffer, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IOException("Config cache entry too long");
+        }
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+}
@@ -4,63 +4,277 @@ import org.slf4j.Logger;
 import org.yaml.snakeyaml.Yaml;
 
 import java.io.File;
-import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
 
 public class ConfigManager {
     private static final String CONFIG_FILE_NAME = "config.yml";
     private static final String WHITELIST_KEY = "whitelist";
     private static final String LANGUAGE_KEY = "language";
     private static final String WHITELISTED_PLAYERS_KEY = "whitelisted";
+    private static final String WHITELISTED_UUIDS_KEY = "whitelisted-uuids";
+    private static final String WHITELISTED_IPS_KEY = "whitelisted-ips";
+    private static final String UUID_MODE_KEY = "uuid-mode";
+    private static final String UUID_OFFLINE_FALLBACK_KEY = "uuid-offline-fallback";
+    private static final String UUID_CACHE_SIZE_KEY = "uuid-cache-size";
+    private static final String UUID_CACHE_TTL_KEY = "uuid-cache-ttl-seconds";
+    private static final String BLOOM_FILTER_KEY = "bloom-filter";
+    private static final String DENIAL_LOG_INTERVAL_KEY = "denial-log-interval-seconds";
+    private static final String PRELOGIN_CHECK_KEY = "prelogin-check";
+    private static final String LOGIN_TIMEOUT_KEY = "login-check-timeout-ms";
+    private static final String LOGIN_FAIL_OPEN_KEY = "login-check-fail-open";
+    private static final String LOGIN_THREADS_KEY = "login-check-threads";
+    private static final String SAVE_DELAY_KEY = "save-delay-ms";
+    private static final String STORAGE_KEY = "storage";
+    private static final String JOURNAL_COMPACT_KEY = "journal-compact-bytes";
+    private static final String METRICS_PORT_KEY = "metrics-port";
+    private static final String METRICS_BIND_KEY = "metrics-bind";
+    private static final String AUTO_RELOAD_KEY = "auto-reload";
+    private static final String AUTO_RELOAD_DELAY_KEY = "auto-reload-delay-ms";
+    private static final String BYPASS_CACHE_SIZE_KEY = "bypass-cache-size";
+    private static final String BYPASS_CACHE_TTL_KEY = "bypass-cache-ttl-seconds";
+    private static final String AUDIT_KEY = "audit";
+    private static final String AUDIT_MAX_FILE_BYTES_KEY = "audit-max-file-bytes";
+    private static final String AUDIT_MAX_FILES_KEY = "audit-max-files";
+    private static final String AUDIT_BUFFER_SIZE_KEY = "audit-buffer-size";
+    private static final long DEFAULT_AUDIT_MAX_FILE_BYTES = 10L * 1024 * 1024;
+    private static final String THROTTLE_KEY = "throttle";
+    private static final String THROTTLE_BURST_KEY = "throttle-burst";
+    private static final String THROTTLE_PER_MINUTE_KEY = "throttle-per-minute";
+    private static final String THROTTLE_GLOBAL_KEY = "throttle-global-denials-per-second";
+    private static final String THROTTLE_MAX_TRACKED_KEY = "throttle-max-tracked";
+    private static final String STORAGE_JOURNAL = "journal";
+    private static final String STORAGE_SQL = "sql";
+    private static final String SQL_URL_KEY = "sql-url";
+    private static final String SQL_USER_KEY = "sql-user";
+    private static final String SQL_PASSWORD_KEY = "sql-password";
+    private static final String SQL_DRIVER_KEY = "sql-driver";
+    // JDBC-драйвер кладётся сюда: загрузчик классов плагина не видит драйверы других плагинов
+    private static final String SQL_DRIVER_DIR = "drivers";
+    private static final String SQL_TABLE_PREFIX_KEY = "sql-table-prefix";
+    private static final String SQL_POLL_INTERVAL_KEY = "sql-poll-interval-ms";
+    private static final long DEFAULT_JOURNAL_COMPACT_BYTES = 4L * 1024 * 1024;
 
     private final Path dataDirectory;
     private final Logger logger;
-    private boolean whitelistEnabled;
-    private String language;
-    private final Set<String> whitelistedPlayers;
+    private final WhitelistManager whitelistManager;
+    private final WhitelistMetrics metrics;
+    private volatile boolean whitelistEnabled;
+    private volatile String language;
+    private volatile long loginTimeoutMillis = 500;
+    private volatile boolean loginFailOpen = false;
+    private volatile int loginThreads = 4;
+    private volatile boolean uuidMode = false;
+    private volatile boolean uuidOfflineFallback = false;
+    private volatile int uuidCacheSize = 10000;
+    private volatile long uuidCacheTtlSeconds = 3600;
+    private volatile boolean bloomFilter = true;
+    private volatile long denialLogIntervalSeconds = 10;
+    private volatile boolean preLoginCheck = false;
+    private volatile int metricsPort = 0;
+    private volatile String metricsBind = "127.0.0.1";
+    private volatile boolean autoReload = true;
+    private volatile long autoReloadDelayMillis = 500;
+    private volatile int bypassCacheSize = 10000;
+    private volatile long bypassCacheTtlSeconds = 60;
+    private volatile boolean audit = true;
+    private volatile long auditMaxFileBytes = DEFAULT_AUDIT_MAX_FILE_BYTES;
+    private volatile int auditMaxFiles = 5;
+    private volatile int auditBufferSize = 8192;
+    private volatile boolean throttle = true;
+    private volatile int throttleBurst = 5;
+    private volatile int throttlePerMinute = 6;
+    private volatile int throttleGlobalDenialsPerSecond = 50;
+    private volatile int throttleMaxTracked = 100000;
+    // Время изменения config.yml после последней записи плагином, чтобы не перезагружать собственные записи
+    private volatile FileTime lastWrittenTime;
+    // Время изменения и размер config.yml при последнем чтении или записи: другие значения означают правку извне
+    private FileTime knownConfigTime;
+    private long knownConfigSize = -1;
+    // Настройки, которые меняет и плагин, в том виде, в каком они последний раз были в config.yml.
+    // При чтении применяется только то, что поменялось в файле, чтобы не потерять ещё не записанные изменения.
+    private Boolean storedWhitelistEnabled;
+    private Set<CidrRange> storedIpRules = Set.of();
+    private ScheduledExecutorService syncExecutor;
+    private ScheduledFuture<?> syncTask;
+    private final WriteBehindWriter writer;
+    private final ConfigCache cache;
+    // null означает хранение списка в config.yml (storage: yaml)
+    private volatile WhitelistStore store;
+    private final Map<Object, WhitelistChange> pendingChanges = new ConcurrentHashMap<>();
+    // Что по нашим сведениям лежит в хранилище (config.yml, журнал или база): с ним сравнивается
+    // загруженный список, чтобы перезагрузка применяла только то, что поменялось в хранилище
+    private WhitelistSnapshot storedWhitelist = WhitelistSnapshot.EMPTY;
+    private final AtomicBoolean settingsDirty = new AtomicBoolean();
+    // Ключи, которые плагин не знает, сохраняются как есть при перезаписи config.yml
+    private volatile Map<String, Object> rawConfig = Map.of();
 
-    public ConfigManager(Path dataDirectory, Logger logger) {
+    public ConfigManager(Path dataDirectory, Logger logger, WhitelistManager whitelistManager, WhitelistMetrics metrics) {
         this.dataDirectory = dataDirectory;
         this.logger = logger;
+        this.whitelistManager = whitelistManager;
+        this.metrics = metrics;
         this.whitelistEnabled = true;
         this.language = "en";
-        this.whitelistedPlayers = new HashSet<>();
+        this.writer = new WriteBehindWriter(CONFIG_FILE_NAME, 1000, this::writeConfig, logger);
+        this.cache = new ConfigCache(dataDirectory, WHITELISTED_PLAYERS_KEY, WHITELISTED_UUIDS_KEY, logger);
+        whitelistManager.addListener(this::recordChanges);
+        metrics.setPendingChanges(pendingChanges::size);
+        metrics.setJournalBytes(() -> {
+            WhitelistStore current = store;
+            return current != null ? current.backlogBytes() : 0;
+        });
     }
 
-    public void loadConfig() {
+    /**
+     * Читает config.yml и хранилище и атомарно применяет к whitelist то, что в хранилище изменилось
+     * с прошлого чтения или записи. Изменения в памяти, которые хранилище не затронуло, сохраняются.
+     *
+     * @return что изменилось в whitelist, или null, если загрузить не удалось и текущий список оставлен.
+     */
+    public WhitelistManager.Diff loadConfig() {
+        // Отложенная запись выполняется до чтения, иначе /kwl add сразу перед /kwl reload не попал бы в файл.
+        // Вызывается вне блокировки ConfigManager: запись берёт сначала блокировку writer, затем нашу.
+        writer.flush();
+        return readConfig();
+    }
+
+    private synchronized WhitelistManager.Diff readConfig() {
+        long start = System.nanoTime();
+        flushStore();
         File configFile = new File(dataDirectory.toFile(), CONFIG_FILE_NAME);
         if (!configFile.exists()) {
             saveDefaultConfig();
         }
 
-        try (FileReader reader = new FileReader(configFile)) {
-            Yaml yaml = new Yaml();
-            Map<String, Object> config = yaml.load(reader);
+        try {
+            Path configPath = configFile.toPath();
+            // Время изменения берётся до чтения: если файл поменяется между ними, кеш просто не совпадёт
+            FileTime modified = Files.getLastModifiedTime(configPath);
+            byte[] configBytes = Files.readAllBytes(configPath);
+            Map<String, Object> config = cache.read(modified, configBytes);
+            boolean fromCache = config != null;
+            if (config == null) {
+                config = new Yaml().load(new String(configBytes, StandardCharsets.UTF_8));
+                if (config != null) {
+                    cache.write(modified, configBytes, config);
+                }
+            }
             if (config != null) {
-                whitelistEnabled = (Boolean) config.getOrDefault(WHITELIST_KEY, true);
+                knownConfigTime = modified;
+                knownConfigSize = configBytes.length;
+                Boolean fileWhitelistEnabled = (Boolean) config.getOrDefault(WHITELIST_KEY, true);
+                if (!fileWhitelistEnabled.equals(storedWhitelistEnabled)) {
+                    whitelistEnabled = fileWhitelistEnabled;
+                    storedWhitelistEnabled = fileWhitelistEnabled;
+                }
                 language = (String) config.getOrDefault(LANGUAGE_KEY, "en");
+                loginTimeoutMillis = getNumber(config, LOGIN_TIMEOUT_KEY, 500).longValue();
+                loginFailOpen = (Boolean) config.getOrDefault(LOGIN_FAIL_OPEN_KEY, false);
+                loginThreads = Math.max(1, getNumber(config, LOGIN_THREADS_KEY, 4).intValue());
+                uuidMode = (Boolean) config.getOrDefault(UUID_MODE_KEY, false);
+                uuidOfflineFallback = (Boolean) config.getOrDefault(UUID_OFFLINE_FALLBACK_KEY, false);
+                uuidCacheSize = getNumber(config, UUID_CACHE_SIZE_KEY, 10000).intValue();
+                uuidCacheTtlSeconds = getNumber(config, UUID_CACHE_TTL_KEY, 3600).longValue();
+                bloomFilter = (Boolean) config.getOrDefault(BLOOM_FILTER_KEY, true);
+                denialLogIntervalSeconds = Math.max(1, getNumber(config, DENIAL_LOG_INTERVAL_KEY, 10).longValue());
+                preLoginCheck = (Boolean) config.getOrDefault(PRELOGIN_CHECK_KEY, false);
+                metricsPort = getNumber(config, METRICS_PORT_KEY, 0).intValue();
+                metricsBind = String.valueOf(config.getOrDefault(METRICS_BIND_KEY, "127.0.0.1"));
+                autoReload = (Boolean) config.getOrDefault(AUTO_RELOAD_KEY, true);
+                autoReloadDelayMillis = Math.max(0, getNumber(config, AUTO_RELOAD_DELAY_KEY, 500).longValue());
+                bypassCacheSize = getNumber(config, BYPASS_CACHE_SIZE_KEY, 10000).intValue();
+                bypassCacheTtlSeconds = getNumber(config, BYPASS_CACHE_TTL_KEY, 60).longValue();
+                audit = (Boolean) config.getOrDefault(AUDIT_KEY, true);
+                auditMaxFileBytes = Math.max(4096, getNumber(config, AUDIT_MAX_FILE_BYTES_KEY, DEFAULT_AUDIT_MAX_FILE_BYTES).longValue());
+                auditMaxFiles = Math.max(1, getNumber(config, AUDIT_MAX_FILES_KEY, 5).intValue());
+                auditBufferSize = Math.max(16, getNumber(config, AUDIT_BUFFER_SIZE_KEY, 8192).intValue());
+                throttle = (Boolean) config.getOrDefault(THROTTLE_KEY, true);
+                throttleBurst = Math.max(1, getNumber(config, THROTTLE_BURST_KEY, 5).intValue());
+                throttlePerMinute = Math.max(1, getNumber(config, THROTTLE_PER_MINUTE_KEY, 6).intValue());
+                throttleGlobalDenialsPerSecond = Math.max(1, getNumber(config, THROTTLE_GLOBAL_KEY, 50).intValue());
+                throttleMaxTracked = Math.max(0, getNumber(config, THROTTLE_MAX_TRACKED_KEY, 100000).intValue());
+                writer.setDelayMillis(getNumber(config, SAVE_DELAY_KEY, 1000).longValue());
+                rawConfig = config;
                 Object whitelisted = config.getOrDefault(WHITELISTED_PLAYERS_KEY, new ArrayList<>());
-                whitelistedPlayers.clear();
+                List<String> loadedPlayers = new ArrayList<>();
                 if (whitelisted instanceof List) {
                     ((List<?>) whitelisted).stream()
                             .filter(Objects::nonNull)
                             .map(Object::toString)
-                            .map(String::toLowerCase)
-                            .forEach(whitelistedPlayers::add);
+                            .forEach(loadedPlayers::add);
                 }
-                logger.info("Конфигурация загружена из {}: whitelistEnabled={}, language={}, whitelistedPlayers={}",
-                        configFile.getPath(), whitelistEnabled, language, whitelistedPlayers);
+                Map<UUID, String> loadedUuids = new HashMap<>();
+                Object whitelistedUuids = config.get(WHITELISTED_UUIDS_KEY);
+                if (whitelistedUuids instanceof Map) {
+                    for (Map.Entry<?, ?> entry : ((Map<?, ?>) whitelistedUuids).entrySet()) {
+                        try {
+                            loadedUuids.put(UUID.fromString(String.valueOf(entry.getKey())), String.valueOf(entry.getValue()));
+                        } catch (IllegalArgumentException e) {
+                            logger.warn("Некорректный UUID в {}: {}", WHITELISTED_UUIDS_KEY, entry.getKey());
+                        }
+                    }
+                }
+                Set<CidrRange> ipRules = new HashSet<>();
+                Object whitelistedIps = config.get(WHITELISTED_IPS_KEY);
+                if (whitelistedIps instanceof List) {
+                    for (Object rule : (List<?>) whitelistedIps) {
+                        CidrRange range = CidrRange.parse(String.valueOf(rule));
+                        if (range != null) {
+                            ipRules.add(range);
+                        } else {
+                            logger.warn("Некорректный диапазон в {}: {}", WHITELISTED_IPS_KEY, rule);
+                        }
+                    }
+                }
+                String storage = String.valueOf(config.getOrDefault(STORAGE_KEY, "yaml"));
+                long compactBytes = getNumber(config, JOURNAL_COMPACT_KEY, DEFAULT_JOURNAL_COMPACT_BYTES).longValue();
+                WhitelistSnapshot players = loadWhitelist(storage, compactBytes, config,
+                        WhitelistSnapshot.of(loadedPlayers, loadedUuids));
+                scheduleSync(STORAGE_SQL.equalsIgnoreCase(storage)
+                        ? Math.max(100, getNumber(config, SQL_POLL_INTERVAL_KEY, 2000).longValue()) : 0);
+                // Полная замена потеряла бы изменения, сделанные после flushStore(): применяется только разница.
+                // Для записей, которые хранилище поменяло, побеждает хранилище.
+                List<WhitelistChange> delta = toChanges(WhitelistManager.Diff.between(storedWhitelist, players));
+                storedWhitelist = players;
+                delta.forEach(change -> pendingChanges.remove(change.key()));
+                // Одна атомарная замена: входы во время перезагрузки не видят пустой список
+                WhitelistManager.Diff diff = whitelistManager.applyStored(delta);
+                Set<CidrRange> removedRules = new HashSet<>(storedIpRules);
+                removedRules.removeAll(ipRules);
+                Set<CidrRange> addedRules = new HashSet<>(ipRules);
+                addedRules.removeAll(storedIpRules);
+                storedIpRules = Set.copyOf(ipRules);
+                whitelistManager.updateIpRules(addedRules, removedRules);
+                long elapsed = System.nanoTime() - start;
+                metrics.recordReload(elapsed);
+                logger.info("Конфигурация загружена из {}{} за {} мс: whitelistEnabled={}, language={}, игроков в whitelist: {} (+{} -{})",
+                        configFile.getPath(), fromCache ? " (кеш)" : "", elapsed / 1_000_000, whitelistEnabled, language,
+                        whitelistManager.snapshot().size(), diff.addedCount(), diff.removedCount());
+                return diff;
             } else {
                 logger.warn("Конфигурация пуста, создаётся конфигурация по умолчанию.");
                 saveDefaultConfig();
             }
-        } catch (IOException e) {
-            logger.error("Не удалось загрузить config.yml: ", e);
-            whitelistedPlayers.clear();
+        } catch (IOException | RuntimeException e) {
+            logger.error("Не удалось загрузить config.yml, оставлен текущий whitelist: ", e);
         }
+        return null;
     }
 
     private void saveDefaultConfig() {
@@ -70,6 +284,40 @@ public class ConfigManager {
         Map<String, Object> defaultConfig = new HashMap<>();
         defaultConfig.put(WHITELIST_KEY, true);
         defaultConfig.put(LANGUAGE_KEY, "en");
+        defaultConfig.put(LOGIN_TIMEOUT_KEY, 500);
+        defaultConfig.put(LOGIN_FAIL_OPEN_KEY, false);
+        defaultConfig.put(LOGIN_THREADS_KEY, 4);
+        defaultConfig.put(UUID_MODE_KEY, false);
+        defaultConfig.put(UUID_OFFLINE_FALLBACK_KEY, false);
+        defaultConfig.put(UUID_CACHE_SIZE_KEY, 10000);
+        defaultConfig.put(UUID_CACHE_TTL_KEY, 3600);
+        defaultConfig.put(BLOOM_FILTER_KEY, true);
+        defaultConfig.put(DENIAL_LOG_INTERVAL_KEY, 10);
+        defaultConfig.put(PRELOGIN_CHECK_KEY, false);
+        defaultConfig.put(SAVE_DELAY_KEY, 1000);
+        defaultConfig.put(STORAGE_KEY, "yaml");
+        defaultConfig.put(JOURNAL_COMPACT_KEY, DEFAULT_JOURNAL_COMPACT_BYTES);
+        defaultConfig.put(METRICS_PORT_KEY, 0);
+        defaultConfig.put(METRICS_BIND_KEY, "127.0.0.1");
+        defaultConfig.put(AUTO_RELOAD_KEY, true);
+        defaultConfig.put(AUTO_RELOAD_DELAY_KEY, 500);
+        defaultConfig.put(BYPASS_CACHE_SIZE_KEY, 10000);
+        defaultConfig.put(BYPASS_CACHE_TTL_KEY, 60);
+        defaultConfig.put(AUDIT_KEY, true);
+        defaultConfig.put(AUDIT_MAX_FILE_BYTES_KEY, DEFAULT_AUDIT_MAX_FILE_BYTES);
+        defaultConfig.put(AUDIT_MAX_FILES_KEY, 5);
+        defaultConfig.put(AUDIT_BUFFER_SIZE_KEY, 8192);
+        defaultConfig.put(THROTTLE_KEY, true);
+        defaultConfig.put(THROTTLE_BURST_KEY, 5);
+        defaultConfig.put(THROTTLE_PER_MINUTE_KEY, 6);
+        defaultConfig.put(THROTTLE_GLOBAL_KEY, 50);
+        defaultConfig.put(THROTTLE_MAX_TRACKED_KEY, 100000);
+        defaultConfig.put(SQL_URL_KEY, "");
+        defaultConfig.put(SQL_USER_KEY, "");
+        defaultConfig.put(SQL_PASSWORD_KEY, "");
+        defaultConfig.put(SQL_DRIVER_KEY, "");
+        defaultConfig.put(SQL_TABLE_PREFIX_KEY, "kwl_");
+        defaultConfig.put(SQL_POLL_INTERVAL_KEY, 2000);
         defaultConfig.put(WHITELISTED_PLAYERS_KEY, new ArrayList<>(List.of("PWRazer")));
 
         try (FileWriter writer = new FileWriter(configFile)) {
@@ -80,34 +328,464 @@ public class ConfigManager {
         }
     }
 
+    /**
+     * Помечает конфигурацию как изменённую. Запись выполняется в фоне, несколько изменений
+     * в пределах save-delay-ms объединяются в одну запись.
+     */
     public void saveConfig() {
-        File configFile = new File(dataDirectory.toFile(), CONFIG_FILE_NAME);
-        Map<String, Object> config = new HashMap<>();
-        config.put(WHITELIST_KEY, whitelistEnabled);
-        config.put(LANGUAGE_KEY, language);
-        config.put(WHITELISTED_PLAYERS_KEY, new ArrayList<>(whitelistedPlayers));
+        writer.markDirty();
+    }
 
-        try (FileWriter writer = new FileWriter(configFile)) {
-            new Yaml().dump(config, writer);
-            logger.info("Конфигурация сохранена в {}: whitelistedPlayers={}", configFile.getPath(), whitelistedPlayers);
+    /**
+     * Немедленно записывает отложенные изменения на диск.
+     */
+    public void flush() {
+        writer.flush();
+    }
+
+    public void shutdown() {
+        scheduleSync(0);
+        writer.shutdown();
+        closeStore();
+        synchronized (this) {
+            if (syncExecutor != null) {
+                syncExecutor.shutdownNow();
+            }
+        }
+    }
+
+    private synchronized WhitelistSnapshot loadWhitelist(String storage, long compactBytes, Map<String, Object> config,
+                                                         WhitelistSnapshot configPlayers) throws IOException {
+        closeStore();
+        if (STORAGE_SQL.equalsIgnoreCase(storage)) {
+            return loadSqlWhitelist(config, configPlayers);
+        }
+        JournalWhitelistStore journal = new JournalWhitelistStore(dataDirectory, compactBytes, logger);
+        if (!STORAGE_JOURNAL.equalsIgnoreCase(storage)) {
+            if (!config.containsKey(WHITELISTED_PLAYERS_KEY) && journal.exists()) {
+                // Обратный переход с journal на yaml: список переносится обратно в config.yml
+                WhitelistSnapshot players = journal.load();
+                journal.close();
+                writer.markDirty();
+                return players;
+            }
+            return configPlayers;
+        }
+        if (!journal.exists()) {
+            journal.rewrite(configPlayers);
+            logger.info("Whitelist перенесён из config.yml в журнал: {} игроков.", configPlayers.size());
+        }
+        if (config.containsKey(WHITELISTED_PLAYERS_KEY) || config.containsKey(WHITELISTED_UUIDS_KEY)) {
+            // В режиме journal config.yml хранит только настройки
+            settingsDirty.set(true);
+            writer.markDirty();
+        }
+        store = journal;
+        return journal.load();
+    }
+
+    private WhitelistSnapshot loadSqlWhitelist(Map<String, Object> config, WhitelistSnapshot configPlayers)
+            throws IOException {
+        String url = String.valueOf(config.getOrDefault(SQL_URL_KEY, ""));
+        if (url.isEmpty()) {
+            throw new IOException("storage: sql требует заполненного " + SQL_URL_KEY);
+        }
+        // Папка создаётся заранее, чтобы было видно, куда положить драйвер
+        Path driverDirectory = Files.createDirectories(dataDirectory.resolve(SQL_DRIVER_DIR));
+        SqlWhitelistStore sql;
+        try {
+            sql = new SqlWhitelistStore(url, (String) config.get(SQL_USER_KEY), (String) config.get(SQL_PASSWORD_KEY),
+                    (String) config.get(SQL_DRIVER_KEY), driverDirectory,
+                    String.valueOf(config.getOrDefault(SQL_TABLE_PREFIX_KEY, "kwl_")), logger);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+        // Первый прокси, подключившийся к пустой базе, переносит в неё свой список
+        if (!sql.exists()) {
+            sql.rewrite(configPlayers);
+            logger.info("Whitelist перенесён из config.yml в базу данных: {} игроков.", configPlayers.size());
+        }
+        WhitelistSnapshot players;
+        try {
+            players = sql.load();
         } catch (IOException e) {
-            logger.error("Не удалось сохранить config.yml: ", e);
+            sql.close();
+            throw e;
+        }
+        if (config.containsKey(WHITELISTED_PLAYERS_KEY) || config.containsKey(WHITELISTED_UUIDS_KEY)) {
+            settingsDirty.set(true);
+            writer.markDirty();
+        }
+        store = sql;
+        return players;
+    }
+
+    private synchronized void scheduleSync(long intervalMillis) {
+        if (syncTask != null) {
+            syncTask.cancel(false);
+            syncTask = null;
+        }
+        if (intervalMillis <= 0) {
+            return;
+        }
+        if (syncExecutor == null) {
+            syncExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "KeKWhiteList-Sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        syncTask = syncExecutor.scheduleWithFixedDelay(this::syncFromStore, intervalMillis, intervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Применяет изменения, сделанные другими прокси. Записи с ещё не сохранёнными локальными
+     * изменениями пропускаются: локальное изменение будет записано позже и победит.
+     */
+    private synchronized void syncFromStore() {
+        if (store == null) {
+            return;
+        }
+        List<WhitelistChange> changes;
+        try {
+            changes = new ArrayList<>(store.poll());
+            if (store.isResyncRequired()) {
+                // Отдельные изменения потеряны: хранилище читается целиком и применяется разница
+                WhitelistSnapshot loaded = store.load();
+                changes = toChanges(WhitelistManager.Diff.between(storedWhitelist, loaded));
+                storedWhitelist = loaded;
+                logger.warn("Whitelist заново прочитан из общего хранилища: изменений {}.", changes.size());
+            } else {
+                storedWhitelist = storedWhitelist.with(changes);
+            }
+        } catch (IOException e) {
+            logger.warn("Не удалось синхронизировать whitelist с хранилищем: {}", e.getMessage());
+            return;
+        }
+        changes.removeIf(change -> pendingChanges.containsKey(change.key()));
+        WhitelistManager.Diff diff = whitelistManager.applyStored(changes);
+        if (!diff.isEmpty()) {
+            logger.info("Whitelist синхронизирован из общего хранилища: добавлено {}, удалено {}.",
+                    diff.addedCount(), diff.removedCount());
+        }
+    }
+
+    /**
+     * Дописывает в хранилище изменения, ещё не попавшие в журнал, чтобы перезагрузка их не потеряла.
+     * В режиме yaml ничего не делает: там источником истины при перезагрузке служит config.yml.
+     * В режиме sql это защищает и от потери изменений при переподключении к базе.
+     */
+    private synchronized void flushStore() {
+        if (store == null) {
+            return;
+        }
+        List<WhitelistChange> changes = drainChanges();
+        try {
+            writeStore(changes);
+        } catch (IOException e) {
+            changes.forEach(change -> pendingChanges.putIfAbsent(change.key(), change));
+            logger.error("Не удалось записать изменения whitelist перед перезагрузкой: ", e);
+        }
+    }
+
+    /**
+     * @return true, если config.yml на диске не менялся с последней записи плагином.
+     */
+    public boolean isConfigUnchangedSinceWrite() {
+        FileTime written = lastWrittenTime;
+        if (written == null) {
+            return false;
+        }
+        try {
+            return written.equals(Files.getLastModifiedTime(dataDirectory.resolve(CONFIG_FILE_NAME)));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return true, если config.yml существует и его время изменения или размер не те, что были при
+     * последнем чтении или записи.
+     */
+    private boolean isConfigChangedOnDisk(Path configPath) throws IOException {
+        if (knownConfigTime == null) {
+            return false;
+        }
+        try {
+            return !knownConfigTime.equals(Files.getLastModifiedTime(configPath)) || Files.size(configPath) != knownConfigSize;
+        } catch (NoSuchFileException e) {
+            // Удалённый файл просто создаётся заново
+            return false;
+        }
+    }
+
+    private synchronized void closeStore() {
+        if (store != null) {
+            try {
+                store.close();
+            } catch (IOException e) {
+                logger.error("Не удалось закрыть хранилище whitelist: ", e);
+            }
+            store = null;
+        }
+    }
+
+    /**
+     * Записывает изменения в хранилище. Хранилищу передаётся не текущий список в памяти, а ровно то,
+     * что в нём окажется, чтобы сжатие журнала не захватило ещё не записанные изменения.
+     */
+    private void writeStore(List<WhitelistChange> changes) throws IOException {
+        WhitelistSnapshot stored = storedWhitelist.with(changes);
+        store.write(stored, changes);
+        storedWhitelist = stored;
+    }
+
+    private void recordChanges(WhitelistManager.Diff diff) {
+        toChanges(diff).forEach(change -> pendingChanges.put(change.key(), change));
+    }
+
+    private static List<WhitelistChange> toChanges(WhitelistManager.Diff diff) {
+        List<WhitelistChange> changes = new ArrayList<>(diff.addedCount() + diff.removed().size() + diff.removedUuids().size());
+        diff.removed().forEach(name -> changes.add(WhitelistChange.ofName(WhitelistChange.Type.REMOVE, name)));
+        diff.removedUuids().forEach(uuid -> changes.add(WhitelistChange.ofUuid(WhitelistChange.Type.REMOVE, uuid, null)));
+        diff.added().forEach(name -> changes.add(WhitelistChange.ofName(WhitelistChange.Type.ADD, name)));
+        diff.addedUuids().forEach((uuid, name) -> changes.add(WhitelistChange.ofUuid(WhitelistChange.Type.ADD, uuid, name)));
+        return changes;
+    }
+
+    private List<WhitelistChange> drainChanges() {
+        List<WhitelistChange> changes = new ArrayList<>();
+        for (Map.Entry<Object, WhitelistChange> entry : pendingChanges.entrySet()) {
+            if (pendingChanges.remove(entry.getKey(), entry.getValue())) {
+                changes.add(entry.getValue());
+            }
+        }
+        return changes;
+    }
+
+    private synchronized void writeConfig() throws IOException {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            writeConfig(start);
+            success = true;
+        } finally {
+            metrics.recordSave(System.nanoTime() - start, success);
         }
     }
 
+    private void writeConfig(long start) throws IOException {
+        List<WhitelistChange> changes = drainChanges();
+        WhitelistSnapshot snapshot = whitelistManager.snapshot();
+        if (store != null) {
+            try {
+                writeStore(changes);
+            } catch (IOException e) {
+                changes.forEach(change -> pendingChanges.putIfAbsent(change.key(), change));
+                throw e;
+            }
+            if (!settingsDirty.getAndSet(false)) {
+                return;
+            }
+        }
+
+        Path configPath = dataDirectory.resolve(CONFIG_FILE_NAME);
+        Path tempPath = dataDirectory.resolve(CONFIG_FILE_NAME + ".tmp");
+        if (isConfigChangedOnDisk(configPath)) {
+            // Файл поправили после нашего чтения: сначала его изменения объединяются с нашими, иначе запись их затрёт
+            logger.info("config.yml изменён на диске, изменения объединяются перед записью.");
+            if (readConfig() == null) {
+                throw new IOException("config.yml изменён на диске и не читается, запись отложена");
+            }
+            snapshot = whitelistManager.snapshot();
+        }
+        Set<String> whitelistedPlayers = snapshot.names();
+        boolean enabled = whitelistEnabled;
+        Set<CidrRange> ipRules = whitelistManager.getIpRules();
+        Map<String, Object> config = new HashMap<>(rawConfig);
+        config.put(WHITELIST_KEY, enabled);
+        config.put(LANGUAGE_KEY, language);
+        // IP-правила всегда хранятся в config.yml, в том числе при journal и sql
+        if (ipRules.isEmpty()) {
+            config.remove(WHITELISTED_IPS_KEY);
+        } else {
+            config.put(WHITELISTED_IPS_KEY, ipRules.stream()
+                    .map(CidrRange::toString)
+                    .sorted()
+                    .collect(Collectors.toList()));
+        }
+        if (store == null) {
+            config.put(WHITELISTED_PLAYERS_KEY, new ArrayList<>(whitelistedPlayers));
+            if (snapshot.uuidEntries().isEmpty()) {
+                config.remove(WHITELISTED_UUIDS_KEY);
+            } else {
+                Map<String, String> uuids = new LinkedHashMap<>();
+                snapshot.uuidEntries().forEach((uuid, name) -> uuids.put(uuid.toString(), name));
+                config.put(WHITELISTED_UUIDS_KEY, uuids);
+            }
+        } else {
+            config.remove(WHITELISTED_PLAYERS_KEY);
+            config.remove(WHITELISTED_UUIDS_KEY);
+        }
+
+        Files.createDirectories(dataDirectory);
+        byte[] configBytes = new Yaml().dump(config).getBytes(StandardCharsets.UTF_8);
+        Files.write(tempPath, configBytes);
+        // Временный файл + rename: при сбое на диске остаётся либо старый, либо новый config.yml
+        try {
+            Files.move(tempPath, configPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempPath, configPath, StandardCopyOption.REPLACE_EXISTING);
+        }
+        lastWrittenTime = Files.getLastModifiedTime(configPath);
+        knownConfigTime = lastWrittenTime;
+        knownConfigSize = configBytes.length;
+        storedWhitelistEnabled = enabled;
+        storedIpRules = Set.copyOf(ipRules);
+        if (store == null) {
+            storedWhitelist = snapshot;
+        }
+        // Следующий запуск возьмёт только что записанный список из кеша, не разбирая YAML
+        cache.write(lastWrittenTime, configBytes, config);
+        logger.debug("Конфигурация сохранена в {} за {} мс, игроков в whitelist: {}", configPath,
+                (System.nanoTime() - start) / 1_000_000, snapshot.size());
+    }
+
     public boolean isWhitelistEnabled() {
         return whitelistEnabled;
     }
 
     public void setWhitelistEnabled(boolean enabled) {
         this.whitelistEnabled = enabled;
+        settingsDirty.set(true);
+    }
+
+    /**
+     * Сохраняет IP-правила: они хранятся в config.yml вместе с настройками.
+     */
+    public void saveIpRules() {
+        settingsDirty.set(true);
+        writer.markDirty();
     }
 
     public String getLanguage() {
         return language;
     }
 
+    public long getLoginTimeoutMillis() {
+        return loginTimeoutMillis;
+    }
+
+    public boolean isLoginFailOpen() {
+        return loginFailOpen;
+    }
+
+    public int getLoginThreads() {
+        return loginThreads;
+    }
+
+    public boolean isUuidMode() {
+        return uuidMode;
+    }
+
+    public boolean isUuidOfflineFallback() {
+        return uuidOfflineFallback;
+    }
+
+    public int getUuidCacheSize() {
+        return uuidCacheSize;
+    }
+
+    public long getUuidCacheTtlSeconds() {
+        return uuidCacheTtlSeconds;
+    }
+
+    public boolean isBloomFilterEnabled() {
+        return bloomFilter;
+    }
+
+    public long getDenialLogIntervalSeconds() {
+        return denialLogIntervalSeconds;
+    }
+
+    public boolean isPreLoginCheckEnabled() {
+        return preLoginCheck;
+    }
+
+    public int getMetricsPort() {
+        return metricsPort;
+    }
+
+    public String getMetricsBind() {
+        return metricsBind;
+    }
+
+    public boolean isAutoReloadEnabled() {
+        return autoReload;
+    }
+
+    public long getAutoReloadDelayMillis() {
+        return autoReloadDelayMillis;
+    }
+
+    public int getBypassCacheSize() {
+        return bypassCacheSize;
+    }
+
+    public long getBypassCacheTtlSeconds() {
+        return bypassCacheTtlSeconds;
+    }
+
+    public boolean isAuditEnabled() {
+        return audit;
+    }
+
+    public long getAuditMaxFileBytes() {
+        return auditMaxFileBytes;
+    }
+
+    public int getAuditMaxFiles() {
+        return auditMaxFiles;
+    }
+
+    /**
+     * Читается один раз при запуске; при перезагрузке размер буфера не меняется.
+     */
+    public int getAuditBufferSize() {
+        return auditBufferSize;
+    }
+
+    public boolean isThrottleEnabled() {
+        return throttle;
+    }
+
+    public int getThrottleBurst() {
+        return throttleBurst;
+    }
+
+    public int getThrottlePerMinute() {
+        return throttlePerMinute;
+    }
+
+    public int getThrottleGlobalDenialsPerSecond() {
+        return throttleGlobalDenialsPerSecond;
+    }
+
+    public int getThrottleMaxTracked() {
+        return throttleMaxTracked;
+    }
+
+    public WhitelistMetrics getMetrics() {
+        return metrics;
+    }
+
     public Set<String> getWhitelistedPlayers() {
-        return whitelistedPlayers;
+        return whitelistManager.getWhitelistedPlayers();
+    }
+
+    private static Number getNumber(Map<String, Object> config, String key, Number defaultValue) {
+        Object value = config.get(key);
+        return value instanceof Number ? (Number) value : defaultValue;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,168 @@
+package me.PWRazer.keKWhiteList;
+
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs reloads on a single background thread, so neither a command nor an API caller parses files on its
+ * own thread and two reloads never overlap. Optionally watches config.yml and lang/*.yml and reloads
+ * what changed once a burst of file events has been quiet for the configured delay.
+ */
+public class ConfigReloader {
+    private static final String CONFIG_FILE_NAME = "config.yml";
+    private static final String LANG_DIR = "lang";
+
+    private final Path dataDirectory;
+    private final ConfigManager configManager;
+    private final LanguageManager languageManager;
+    private final GroupManager groupManager;
+    private final BypassCache bypassCache;
+    private final Logger logger;
+    private final ScheduledExecutorService executor;
+    private WatchService watchService;
+    private ScheduledFuture<?> pendingReload;
+    private boolean configChanged;
+    private boolean languageChanged;
+    private long debounceMillis;
+
+    public ConfigReloader(Path dataDirectory, ConfigManager configManager, LanguageManager languageManager,
+                          GroupManager groupManager, BypassCache bypassCache, Logger logger) {
+        this.dataDirectory = dataDirectory;
+        this.configManager = configManager;
+        this.languageManager = languageManager;
+        this.groupManager = groupManager;
+        this.bypassCache = bypassCache;
+        this.logger = logger;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "KeKWhiteList-Reload");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Reloads config.yml, the whitelist, groups.yml and the language files in the background and
+     * forgets cached bypass decisions, so permission changes made alongside take effect.
+     *
+     * @return the whitelist difference, or null if config.yml could not be loaded and the current list was kept.
+     */
+    public CompletableFuture<WhitelistManager.Diff> reload() {
+        return CompletableFuture.supplyAsync(() -> {
+            WhitelistManager.Diff diff = configManager.loadConfig();
+            languageManager.loadLanguage(configManager.getLanguage());
+            groupManager.load();
+            bypassCache.invalidateAll();
+            return diff;
+        }, executor);
+    }
+
+    public synchronized void startWatching(long debounceMillis) {
+        this.debounceMillis = debounceMillis;
+        Path langDir = dataDirectory.resolve(LANG_DIR);
+        try {
+            Files.createDirectories(langDir);
+            watchService = dataDirectory.getFileSystem().newWatchService();
+            dataDirectory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            langDir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            logger.error("Failed to watch {} for changes, automatic reload is disabled.", dataDirectory, e);
+            return;
+        }
+        WatchService service = watchService;
+        Thread thread = new Thread(() -> watch(service, langDir), "KeKWhiteList-Watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void watch(WatchService service, Path langDir) {
+        Path configPath = dataDirectory.resolve(CONFIG_FILE_NAME);
+        while (true) {
+            WatchKey key;
+            try {
+                key = service.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            Path directory = (Path) key.watchable();
+            boolean config = false;
+            boolean language = false;
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    config = true;
+                    language = true;
+                    continue;
+                }
+                Path file = directory.resolve((Path) event.context());
+                if (file.equals(configPath)) {
+                    config = true;
+                } else if (directory.equals(langDir) && file.getFileName().toString().endsWith(".yml")) {
+                    language = true;
+                }
+            }
+            key.reset();
+            if (config || language) {
+                schedule(config, language);
+            }
+        }
+    }
+
+    private synchronized void schedule(boolean config, boolean language) {
+        configChanged |= config;
+        languageChanged |= language;
+        if (pendingReload != null) {
+            pendingReload.cancel(false);
+        }
+        pendingReload = executor.schedule(this::reloadChanged, debounceMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void reloadChanged() {
+        boolean config;
+        boolean language;
+        synchronized (this) {
+            config = configChanged;
+            language = languageChanged;
+            configChanged = false;
+            languageChanged = false;
+            pendingReload = null;
+        }
+        // The plugin's own write-behind saves also touch config.yml
+        if (config && !configManager.isConfigUnchangedSinceWrite()) {
+            WhitelistManager.Diff diff = configManager.loadConfig();
+            bypassCache.invalidateAll();
+            if (diff != null) {
+                logger.info("config.yml changed on disk and was reloaded: {} entries added, {} removed.",
+                        diff.addedCount(), diff.removedCount());
+            }
+            language = true;
+        }
+        if (language) {
+            languageManager.loadLanguage(configManager.getLanguage());
+            logger.info("Language files reloaded.");
+        }
+    }
+
+    public synchronized void shutdown() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close file watcher.", e);
+            }
+            watchService = null;
+        }
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,53 @@
+package me.PWRazer.keKWhiteList;
+
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Aggregates denied logins into one periodic log line instead of one line per player,
+ * so a bot flood does not turn into a logging flood.
+ */
+public class DenialLog {
+    private static final int SAMPLE_SIZE = 5;
+
+    private final Logger logger;
+    private final LongAdder denials = new LongAdder();
+    private final AtomicReferenceArray<String> samples = new AtomicReferenceArray<>(SAMPLE_SIZE);
+    private final long intervalSeconds;
+
+    public DenialLog(Logger logger, long intervalSeconds) {
+        this.logger = logger;
+        this.intervalSeconds = intervalSeconds;
+    }
+
+    public void record(String username) {
+        denials.increment();
+        for (int i = 0; i < SAMPLE_SIZE; i++) {
+            if (samples.get(i) == null && samples.compareAndSet(i, null, username)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Logs and resets the counters; called by a repeating task every interval.
+     */
+    public void flush() {
+        long count = denials.sumThenReset();
+        List<String> names = new ArrayList<>(SAMPLE_SIZE);
+        for (int i = 0; i < SAMPLE_SIZE; i++) {
+            String name = samples.getAndSet(i, null);
+            if (name != null) {
+                names.add(name);
+            }
+        }
+        if (count > 0) {
+            logger.info("{} players denied access (not whitelisted) in the last {}s, e.g. {}.",
+                    count, intervalSeconds, String.join(", ", names));
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package me.PWRazer.keKWhiteList;
+
+import com.velocitypowered.api.scheduler.ScheduledTask;
+import com.velocitypowered.api.scheduler.Scheduler;
+import org.slf4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Temporary and scheduled whitelist entries. Start and end times sit in a min-heap with a single
+ * wake-up armed for the earliest one; nothing scans the list. Everything due at a wake-up is applied
+ * as one swap and saved once. Persisted to {@code temporary.txt} ({@code name uuid|- startMillis endMillis}
+ * per line); entries that fell due while the proxy was down are applied on startup, including a window
+ * that opened during the downtime and is still open.
+ * The wake-up runs on the proxy's scheduler, so Velocity cancels it with the plugin.
+ */
+public class ExpiryScheduler {
+    private static final String FILE_NAME = "temporary.txt";
+    private static final Pattern DURATION_PART = Pattern.compile("(\\d+)([smhdw])");
+
+    private final Path file;
+    private final WhitelistManager whitelistManager;
+    private final ConfigManager configManager;
+    private final AuditLog auditLog;
+    private final Logger logger;
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final PriorityQueue<Timer> timers = new PriorityQueue<>();
+    private final WriteBehindWriter writer;
+    private final Scheduler scheduler;
+    private final Object plugin;
+    private ScheduledTask wakeUp;
+    private long wakeUpAt;
+    private boolean stopped;
+
+    public ExpiryScheduler(Path dataDirectory, WhitelistManager whitelistManager, ConfigManager configManager,
+                           AuditLog auditLog, Scheduler scheduler, Object plugin, Logger logger) {
+        this.file = dataDirectory.resolve(FILE_NAME);
+        this.whitelistManager = whitelistManager;
+        this.configManager = configManager;
+        this.auditLog = auditLog;
+        this.scheduler = scheduler;
+        this.plugin = plugin;
+        this.logger = logger;
+        this.writer = new WriteBehindWriter(FILE_NAME, 1000, this::write, logger);
+        // A manual removal also ends the temporary entry
+        whitelistManager.addListener(diff -> diff.removed().forEach(this::cancelActive));
+    }
+
+    public synchronized void load() {
+        if (!Files.isRegularFile(file)) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.strip().split("\\s+");
+                if (parts.length != 4) {
+                    continue;
+                }
+                try {
+                    UUID uuid = parts[1].equals("-") ? null : UUID.fromString(parts[1]);
+                    put(new Entry(parts[0], uuid, Long.parseLong(parts[2]), Long.parseLong(parts[3])), true);
+                } catch (IllegalArgumentException e) {
+                    logger.warn("Skipping invalid line in {}: {}", FILE_NAME, line);
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Failed to read {}", file, e);
+        }
+        rearm();
+    }
+
+    /**
+     * Removes an entry that is already on the whitelist at {@code endMillis}.
+     */
+    public synchronized void expireAt(String username, UUID uuid, long endMillis) {
+        // The caller has just added the entry, so there is no start to apply
+        put(new Entry(WhitelistManager.normalize(username), uuid, System.currentTimeMillis(), endMillis), false);
+        writer.markDirty();
+        rearm();
+    }
+
+    /**
+     * Adds the entry at {@code startMillis} and removes it at {@code endMillis}. A start in the past is
+     * applied at once. Replaces any earlier schedule for the same name.
+     */
+    public synchronized void schedule(String username, UUID uuid, long startMillis, long endMillis) {
+        put(new Entry(WhitelistManager.normalize(username), uuid, startMillis, endMillis), true);
+        writer.markDirty();
+        rearm();
+    }
+
+    /**
+     * Makes a temporary entry permanent, or drops a schedule that has not started yet.
+     *
+     * @return true if there was a schedule for the name.
+     */
+    public synchronized boolean cancel(String username) {
+        Entry entry = entries.remove(WhitelistManager.normalize(username));
+        if (entry == null) {
+            return false;
+        }
+        removeTimers(entry);
+        writer.markDirty();
+        return true;
+    }
+
+    public synchronized boolean isScheduled(String username) {
+        return entries.containsKey(WhitelistManager.normalize(username));
+    }
+
+    /**
+     * @return end time in epoch milliseconds, or -1 if the name has no schedule.
+     */
+    public synchronized long getExpiry(String username) {
+        Entry entry = entries.get(WhitelistManager.normalize(username));
+        return entry != null ? entry.endMillis() : -1;
+    }
+
+    public void shutdown() {
+        synchronized (this) {
+            stopped = true;
+            if (wakeUp != null) {
+                wakeUp.cancel();
+                wakeUp = null;
+            }
+        }
+        writer.shutdown();
+    }
+
+    /**
+     * Parses durations such as {@code 30m}, {@code 12h}, {@code 7d}, {@code 2w} or {@code 1d12h}.
+     *
+     * @return milliseconds, or -1 if the text is not a positive duration.
+     */
+    public static long parseDuration(String text) {
+        Matcher matcher = DURATION_PART.matcher(text.toLowerCase());
+        long total = 0;
+        int end = 0;
+        while (matcher.find() && matcher.start() == end) {
+            long amount;
+            try {
+                amount = Long.parseLong(matcher.group(1));
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+            TimeUnit unit = switch (matcher.group(2)) {
+                case "s" -> TimeUnit.SECONDS;
+                case "m" -> TimeUnit.MINUTES;
+                case "h" -> TimeUnit.HOURS;
+                default -> TimeUnit.DAYS;
+            };
+            if (matcher.group(2).equals("w")) {
+                amount *= 7;
+            }
+            total += unit.toMillis(amount);
+            end = matcher.end();
+        }
+        return end == text.length() && total > 0 ? total : -1;
+    }
+
+    private synchronized void cancelActive(String name) {
+        Entry entry = entries.get(name);
+        if (entry != null && entry.startMillis() <= System.currentTimeMillis()) {
+            entries.remove(name);
+            removeTimers(entry);
+            writer.markDirty();
+        }
+    }
+
+    /**
+     * @param applyPastStart whether a start that has already passed still adds the entry. The add is queued
+     *                       for now rather than applied here, so it goes through the same swap and save as
+     *                       every other timer; it is skipped if the entry is listed or its window is over.
+     */
+    private void put(Entry entry, boolean applyPastStart) {
+        Entry previous = entries.put(entry.name(), entry);
+        if (previous != null) {
+            removeTimers(previous);
+        }
+        long now = System.currentTimeMillis();
+        if (entry.startMillis() > now) {
+            timers.add(new Timer(entry.startMillis(), true, entry));
+        } else if (applyPastStart && entry.endMillis() > now && !isListed(entry)) {
+            timers.add(new Timer(now, true, entry));
+        }
+        timers.add(new Timer(entry.endMillis(), false, entry));
+    }
+
+    private boolean isListed(Entry entry) {
+        return entry.uuid() != null ? whitelistManager.isWhitelisted(entry.uuid()) : whitelistManager.isWhitelisted(entry.name());
+    }
+
+    /**
+     * Drops the timers of a replaced or cancelled entry, so the heap only holds live ones. Linear in the
+     * heap size, which stays small: one or two timers per scheduled entry. A wake-up armed for a removed
+     * timer is left alone; it finds nothing due and rearms.
+     */
+    private void removeTimers(Entry entry) {
+        timers.removeIf(timer -> timer.entry() == entry);
+    }
+
+    /**
+     * Arms the wake-up for the earliest timer.
+     */
+    private synchronized void rearm() {
+        Timer next = timers.peek();
+        if (stopped || next == null || (wakeUp != null && wakeUpAt <= next.at())) {
+            return;
+        }
+        if (wakeUp != null) {
+            wakeUp.cancel();
+        }
+        wakeUpAt = next.at();
+        wakeUp = scheduler.buildTask(plugin, this::fire)
+                .delay(Math.max(0, next.at() - System.currentTimeMillis()), TimeUnit.MILLISECONDS)
+                .schedule();
+    }
+
+    private void fire() {
+        List<WhitelistChange> changes = new ArrayList<>();
+        int started = 0;
+        int expired = 0;
+        synchronized (this) {
+            wakeUp = null;
+            long now = System.currentTimeMillis();
+            while (!timers.isEmpty() && timers.peek().at() <= now) {
+                Timer timer = timers.poll();
+                Entry entry = timer.entry();
+                if (entries.get(entry.name()) != entry) {
+                    continue;
+                }
+                WhitelistChange.Type type = timer.start() ? WhitelistChange.Type.ADD : WhitelistChange.Type.REMOVE;
+                changes.add(entry.uuid() != null
+                        ? WhitelistChange.ofUuid(type, entry.uuid(), entry.name())
+                        : WhitelistChange.ofName(type, entry.name()));
+                if (timer.start()) {
+                    started++;
+                } else {
+                    entries.remove(entry.name());
+                    expired++;
+                }
+                auditLog.change("expiry", timer.start() ? "start" : "expire", entry.name(),
+                        timer.start() ? "added" : "removed");
+            }
+            rearm();
+        }
+        if (changes.isEmpty()) {
+            return;
+        }
+        writer.markDirty();
+        if (!whitelistManager.applyChanges(changes).isEmpty()) {
+            configManager.saveConfig();
+        }
+        logger.info("Temporary whitelist: {} entries started, {} expired.", started, expired);
+    }
+
+    private synchronized void write() throws IOException {
+        Files.createDirectories(file.getParent());
+        Path tempPath = file.resolveSibling(FILE_NAME + ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(tempPath, StandardCharsets.UTF_8)) {
+            for (Entry entry : entries.values()) {
+                out.write(entry.name() + " " + (entry.uuid() != null ? entry.uuid() : "-") + " "
+                        + entry.startMillis() + " " + entry.endMillis());
+                out.newLine();
+            }
+        }
+        try {
+            Files.move(tempPath, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempPath, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private record Entry(String name, UUID uuid, long startMillis, long endMillis) {
+    }
+
+    private record Timer(long at, boolean start, Entry entry) implements Comparable<Timer> {
+        @Override
+        public int compareTo(Timer other) {
+            return Long.compare(at, other.at);
+        }
+    }
+}
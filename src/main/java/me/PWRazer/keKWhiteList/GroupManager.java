@@ -0,0 +1,416 @@
+package me.PWRazer.keKWhiteList;
+
+import org.slf4j.Logger;
+import org.yaml.snakeyaml.Yaml;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.regex.Pattern;
+
+/**
+ * Named whitelist groups assigned to backend servers. A server with groups only admits members of
+ * at least one of them; servers without groups are open to everyone who got onto the proxy.
+ *
+ * <p>Members are interned once into int IDs and every group is a {@link BitSet} over those IDs, so a
+ * connection check is at most two map lookups plus two bit tests per group of the target server. A member
+ * is keyed by UUID when one was known when they were added, so a renamed account stays a member and a new
+ * account that takes the old name does not become one; otherwise by lowercase name. Groups are published
+ * as an immutable state and replaced on every change, like {@link WhitelistSnapshot}. Persisted to
+ * {@code groups.yml}, UUID members with their last known name.</p>
+ */
+public class GroupManager {
+    private static final String FILE_NAME = "groups.yml";
+    private static final String SERVERS_KEY = "servers";
+    private static final String MEMBERS_KEY = "members";
+    private static final String MEMBER_UUIDS_KEY = "member-uuids";
+    private static final Pattern VALID_GROUP = Pattern.compile("[a-z0-9_-]{1,32}");
+
+    private final Path file;
+    private final Logger logger;
+    private final AtomicReference<State> state = new AtomicReference<>(State.of(new MemberTable(), Map.of()));
+    private final WriteBehindWriter writer;
+
+    public GroupManager(Path dataDirectory, Logger logger) {
+        this.file = dataDirectory.resolve(FILE_NAME);
+        this.logger = logger;
+        this.writer = new WriteBehindWriter(FILE_NAME, 1000, this::write, logger);
+    }
+
+    public static boolean isValidGroupName(String group) {
+        return group != null && VALID_GROUP.matcher(group).matches();
+    }
+
+    /**
+     * Reads groups.yml, replacing the current groups. Pending changes are written first.
+     * IDs are assigned afresh, so names removed from every group are dropped from the table.
+     */
+    public void load() {
+        writer.flush();
+        synchronized (this) {
+            MemberTable table = new MemberTable();
+            Map<String, Group> groups = new HashMap<>();
+            if (Files.isRegularFile(file)) {
+                try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                    if (new Yaml().load(reader) instanceof Map<?, ?> loaded) {
+                        loaded.forEach((key, value) -> {
+                            String name = String.valueOf(key).toLowerCase(Locale.ROOT);
+                            if (!isValidGroupName(name) || !(value instanceof Map<?, ?> section)) {
+                                logger.warn("Skipping invalid group in {}: {}", FILE_NAME, key);
+                                return;
+                            }
+                            Set<String> servers = new TreeSet<>();
+                            strings(section.get(SERVERS_KEY)).forEach(server -> servers.add(normalizeServer(server)));
+                            BitSet members = new BitSet();
+                            for (String member : strings(section.get(MEMBERS_KEY))) {
+                                if (WhitelistManager.isValidUsername(member)) {
+                                    members.set(table.intern(null, member));
+                                }
+                            }
+                            if (section.get(MEMBER_UUIDS_KEY) instanceof Map<?, ?> uuidMembers) {
+                                uuidMembers.forEach((uuid, member) -> {
+                                    try {
+                                        members.set(table.intern(UUID.fromString(String.valueOf(uuid)), String.valueOf(member)));
+                                    } catch (IllegalArgumentException e) {
+                                        logger.warn("Skipping invalid member UUID in group {}: {}", name, uuid);
+                                    }
+                                });
+                            }
+                            groups.put(name, new Group(name, Collections.unmodifiableSet(servers), members));
+                        });
+                    }
+                } catch (IOException | RuntimeException e) {
+                    logger.error("Failed to read {}, keeping current groups.", file, e);
+                    return;
+                }
+            }
+            state.set(State.of(table, groups));
+            if (!groups.isEmpty()) {
+                logger.info("Loaded {} whitelist groups with {} distinct members.", groups.size(), table.size());
+            }
+        }
+    }
+
+    /**
+     * @param uuid the player's UUID, or null to check name members only.
+     * @return true if the server has no groups or the player is a member of one of its groups, by UUID or by name.
+     */
+    public boolean canJoin(UUID uuid, String username, String server) {
+        State current = state.get();
+        Group[] required = current.byServer().get(normalizeServer(server));
+        if (required == null) {
+            return true;
+        }
+        int uuidId = uuid != null ? current.table().id(uuid.toString()) : -1;
+        int nameId = current.table().id(WhitelistManager.normalize(username));
+        if (uuidId < 0 && nameId < 0) {
+            return false;
+        }
+        for (Group group : required) {
+            if (uuidId >= 0 && group.members().get(uuidId) || nameId >= 0 && group.members().get(nameId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean exists(String group) {
+        return state.get().groups().containsKey(normalizeGroup(group));
+    }
+
+    /**
+     * @return true if the group has a name member with this name or a UUID member last seen with it.
+     */
+    public boolean isMember(String group, String username) {
+        State current = state.get();
+        Group found = current.groups().get(normalizeGroup(group));
+        return found != null && !current.table().idsOf(found.members(), WhitelistManager.normalize(username)).isEmpty();
+    }
+
+    /**
+     * @return group names with their servers, sorted by group name.
+     */
+    public Map<String, Set<String>> getGroups() {
+        Map<String, Set<String>> result = new TreeMap<>();
+        state.get().groups().forEach((name, group) -> result.put(name, group.servers()));
+        return result;
+    }
+
+    public int memberCount(String group) {
+        Group found = state.get().groups().get(normalizeGroup(group));
+        return found != null ? found.members().cardinality() : 0;
+    }
+
+    /**
+     * @return lowercase member names sorted, UUID members by their last known name, or an empty list if
+     * the group does not exist.
+     */
+    public List<String> getMembers(String group) {
+        State current = state.get();
+        Group found = current.groups().get(normalizeGroup(group));
+        if (found == null) {
+            return List.of();
+        }
+        List<String> names = current.table().names(found.members());
+        Collections.sort(names);
+        return names;
+    }
+
+    public synchronized boolean createGroup(String group) {
+        String name = normalizeGroup(group);
+        State current = state.get();
+        if (!isValidGroupName(name) || current.groups().containsKey(name)) {
+            return false;
+        }
+        return publish(current, new Group(name, Set.of(), new BitSet()));
+    }
+
+    public synchronized boolean deleteGroup(String group) {
+        State current = state.get();
+        String name = normalizeGroup(group);
+        if (!current.groups().containsKey(name)) {
+            return false;
+        }
+        Map<String, Group> groups = new HashMap<>(current.groups());
+        groups.remove(name);
+        state.set(State.of(current.table(), groups));
+        writer.markDirty();
+        return true;
+    }
+
+    /**
+     * @param uuid the account's UUID if known, or null to add the member by name.
+     * @return false if the group does not exist, the name is invalid or the member is already in the group.
+     */
+    public synchronized boolean addMember(String group, UUID uuid, String username) {
+        State current = state.get();
+        Group found = current.groups().get(normalizeGroup(group));
+        if (found == null || !WhitelistManager.isValidUsername(username)) {
+            return false;
+        }
+        int id = current.table().intern(uuid, username);
+        if (found.members().get(id)) {
+            return false;
+        }
+        BitSet members = (BitSet) found.members().clone();
+        members.set(id);
+        return publish(current, new Group(found.name(), found.servers(), members));
+    }
+
+    /**
+     * Removes the name member with this name and any UUID member last seen with it.
+     */
+    public synchronized boolean removeMember(String group, String username) {
+        State current = state.get();
+        Group found = current.groups().get(normalizeGroup(group));
+        if (found == null || username == null) {
+            return false;
+        }
+        List<Integer> ids = current.table().idsOf(found.members(), WhitelistManager.normalize(username));
+        if (ids.isEmpty()) {
+            return false;
+        }
+        BitSet members = (BitSet) found.members().clone();
+        ids.forEach(members::clear);
+        return publish(current, new Group(found.name(), found.servers(), members));
+    }
+
+    public synchronized boolean assignServer(String group, String server) {
+        State current = state.get();
+        Group found = current.groups().get(normalizeGroup(group));
+        String serverName = normalizeServer(server);
+        if (found == null || found.servers().contains(serverName)) {
+            return false;
+        }
+        Set<String> servers = new TreeSet<>(found.servers());
+        servers.add(serverName);
+        return publish(current, new Group(found.name(), Collections.unmodifiableSet(servers), found.members()));
+    }
+
+    public synchronized boolean unassignServer(String group, String server) {
+        State current = state.get();
+        Group found = current.groups().get(normalizeGroup(group));
+        String serverName = normalizeServer(server);
+        if (found == null || !found.servers().contains(serverName)) {
+            return false;
+        }
+        Set<String> servers = new TreeSet<>(found.servers());
+        servers.remove(serverName);
+        return publish(current, new Group(found.name(), Collections.unmodifiableSet(servers), found.members()));
+    }
+
+    public void flush() {
+        writer.flush();
+    }
+
+    public void shutdown() {
+        writer.shutdown();
+    }
+
+    private boolean publish(State current, Group group) {
+        Map<String, Group> groups = new HashMap<>(current.groups());
+        groups.put(group.name(), group);
+        state.set(State.of(current.table(), groups));
+        writer.markDirty();
+        return true;
+    }
+
+    private void write() throws IOException {
+        State current = state.get();
+        Map<String, Object> data = new LinkedHashMap<>();
+        new TreeMap<>(current.groups()).forEach((name, group) -> {
+            List<String> members = new ArrayList<>();
+            Map<String, String> uuidMembers = new TreeMap<>();
+            current.table().forEach(group.members(), (uuid, member) -> {
+                if (uuid != null) {
+                    uuidMembers.put(uuid.toString(), member);
+                } else {
+                    members.add(member);
+                }
+            });
+            Collections.sort(members);
+            Map<String, Object> section = new LinkedHashMap<>();
+            section.put(SERVERS_KEY, new ArrayList<>(group.servers()));
+            section.put(MEMBERS_KEY, members);
+            if (!uuidMembers.isEmpty()) {
+                section.put(MEMBER_UUIDS_KEY, uuidMembers);
+            }
+            data.put(name, section);
+        });
+        Files.createDirectories(file.getParent());
+        Path tempPath = file.resolveSibling(FILE_NAME + ".tmp");
+        try (Writer out = Files.newBufferedWriter(tempPath, StandardCharsets.UTF_8)) {
+            new Yaml().dump(data, out);
+        }
+        try {
+            Files.move(tempPath, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempPath, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static List<String> strings(Object value) {
+        List<String> result = new ArrayList<>();
+        if (value instanceof List<?> list) {
+            for (Object item : list) {
+                if (item != null) {
+                    result.add(item.toString());
+                }
+            }
+        }
+        return result;
+    }
+
+    private static String normalizeGroup(String group) {
+        return group == null ? "" : group.toLowerCase(Locale.ROOT);
+    }
+
+    private static String normalizeServer(String server) {
+        return server.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Append-only member-to-ID table shared by all groups, keyed by the UUID's string form for UUID members
+     * and by lowercase name otherwise (a valid name never looks like a UUID). Lookups are lock-free; IDs are
+     * only handed out under the manager's lock and the reverse list has its own.
+     */
+    private static final class MemberTable {
+        private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+        private final List<Member> members = new ArrayList<>();
+
+        int id(String key) {
+            Integer id = ids.get(key);
+            return id != null ? id : -1;
+        }
+
+        /**
+         * Re-interning a UUID member with a new name keeps its ID and updates the name.
+         */
+        synchronized int intern(UUID uuid, String username) {
+            Member member = new Member(uuid, WhitelistManager.normalize(username));
+            String key = uuid != null ? uuid.toString() : member.name();
+            Integer id = ids.get(key);
+            if (id == null) {
+                id = members.size();
+                members.add(member);
+                ids.put(key, id);
+            } else if (uuid != null) {
+                members.set(id, member);
+            }
+            return id;
+        }
+
+        synchronized List<String> names(BitSet group) {
+            List<String> result = new ArrayList<>(group.cardinality());
+            forEach(group, (uuid, name) -> result.add(name));
+            return result;
+        }
+
+        /**
+         * @return IDs in {@code group} of the name member {@code lowercaseName} and of UUID members last seen with it.
+         */
+        synchronized List<Integer> idsOf(BitSet group, String lowercaseName) {
+            List<Integer> result = new ArrayList<>();
+            for (int id = group.nextSetBit(0); id >= 0; id = group.nextSetBit(id + 1)) {
+                if (members.get(id).name().equals(lowercaseName)) {
+                    result.add(id);
+                }
+            }
+            return result;
+        }
+
+        synchronized void forEach(BitSet group, BiConsumer<UUID, String> action) {
+            for (int id = group.nextSetBit(0); id >= 0; id = group.nextSetBit(id + 1)) {
+                Member member = members.get(id);
+                action.accept(member.uuid(), member.name());
+            }
+        }
+
+        synchronized int size() {
+            return members.size();
+        }
+    }
+
+    private record Member(UUID uuid, String name) {
+    }
+
+    /**
+     * A group's member set is never modified after the group is published; changes copy it.
+     */
+    private record Group(String name, Set<String> servers, BitSet members) {
+    }
+
+    private record State(MemberTable table, Map<String, Group> groups, Map<String, Group[]> byServer) {
+        static State of(MemberTable table, Map<String, Group> groups) {
+            Map<String, List<Group>> byServer = new HashMap<>();
+            for (Group group : groups.values()) {
+                for (String server : group.servers()) {
+                    byServer.computeIfAbsent(server, key -> new ArrayList<>()).add(group);
+                }
+            }
+            Map<String, Group[]> arrays = new HashMap<>(byServer.size() * 2);
+            byServer.forEach((server, list) -> arrays.put(server, list.toArray(new Group[0])));
+            return new State(table, Map.copyOf(groups), Map.copyOf(arrays));
+        }
+    }
+}
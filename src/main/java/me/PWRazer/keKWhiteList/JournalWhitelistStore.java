@@ -0,0 +1,487 @@
+package me.PWRazer.keKWhiteList;
+
+import org.slf4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of add/remove records on top of a compacted snapshot file.
+ *
+ * <p>Journal record: {@code int length, int crc32, byte op, payload}, where length and crc cover the op
+ * byte and the payload. Name records carry the UTF-8 name; UUID records carry {@code long msb, long lsb}
+ * followed by the UTF-8 display name (empty on removal).
+ * Snapshot: {@code int magic, int version, int count, count x (short length, byte[] utf8 name),
+ * int uuidCount, uuidCount x (long msb, long lsb, short length, byte[] utf8 name), long crc32}
+ * over everything before the checksum. Version 1 snapshots have no UUID section.
+ * Replaying the journal is idempotent, so a crash between writing a snapshot and truncating
+ * the journal loses nothing.</p>
+ *
+ * <p>Once the journal reaches the compaction threshold, {@link #write} queues a compaction on the store's
+ * own background thread and returns. The compaction writes the snapshot of everything journaled so far
+ * without holding the store's lock, then swaps it in and drops that part of the journal; records
+ * appended meanwhile are copied into a fresh journal. A {@link #rewrite} or {@link #load} in between
+ * makes the pending compaction a no-op.</p>
+ */
+public class JournalWhitelistStore implements WhitelistStore {
+    private static final String SNAPSHOT_FILE_NAME = "whitelist.snapshot";
+    private static final String JOURNAL_FILE_NAME = "whitelist.journal";
+    private static final int SNAPSHOT_MAGIC = 0x4B574C53; // "KWLS"
+    private static final int SNAPSHOT_VERSION = 2;
+    private static final byte OP_ADD = 1;
+    private static final byte OP_REMOVE = 2;
+    private static final byte OP_ADD_UUID = 3;
+    private static final byte OP_REMOVE_UUID = 4;
+    private static final int MAX_RECORD_LENGTH = 1 + 16 + 1024;
+
+    private final Path snapshotPath;
+    private final Path journalPath;
+    private final Logger logger;
+    private final long compactThresholdBytes;
+    private FileChannel journal;
+    private volatile long journalBytes;
+    // The state after every journaled record, for the next compaction
+    private WhitelistSnapshot latestSnapshot;
+    private ExecutorService compactor;
+    private boolean compactionQueued;
+    // Bumped whenever the files are replaced or reopened, so a compaction started before that is dropped
+    private long generation;
+
+    public JournalWhitelistStore(Path dataDirectory, long compactThresholdBytes, Logger logger) {
+        this.snapshotPath = dataDirectory.resolve(SNAPSHOT_FILE_NAME);
+        this.journalPath = dataDirectory.resolve(JOURNAL_FILE_NAME);
+        this.compactThresholdBytes = compactThresholdBytes;
+        this.logger = logger;
+    }
+
+    @Override
+    public boolean exists() {
+        return Files.exists(snapshotPath) || Files.exists(journalPath);
+    }
+
+    @Override
+    public synchronized WhitelistSnapshot load() throws IOException {
+        Set<String> names = new HashSet<>();
+        Map<UUID, String> uuids = new HashMap<>();
+        if (Files.exists(snapshotPath)) {
+            readSnapshot(names, uuids);
+        }
+        long validLength = replayJournal(names, uuids);
+        openJournal();
+        if (journal.size() > validLength) {
+            logger.warn("Journal {} has a damaged tail after byte {}, truncating.", journalPath, validLength);
+            journal.truncate(validLength);
+        }
+        journalBytes = journal.size();
+        latestSnapshot = WhitelistSnapshot.of(names, uuids);
+        generation++;
+        return latestSnapshot;
+    }
+
+    @Override
+    public synchronized void write(WhitelistSnapshot snapshot, List<WhitelistChange> changes) throws IOException {
+        if (!changes.isEmpty()) {
+            openJournal();
+            byte[][] payloads = new byte[changes.size()][];
+            int size = 0;
+            for (int i = 0; i < payloads.length; i++) {
+                payloads[i] = encodePayload(changes.get(i));
+                if (1 + payloads[i].length > MAX_RECORD_LENGTH) {
+                    throw new IOException("Whitelist entry too long: " + changes.get(i).name());
+                }
+                size += 9 + payloads[i].length;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(size);
+            CRC32 crc = new CRC32();
+            for (int i = 0; i < payloads.length; i++) {
+                WhitelistChange change = changes.get(i);
+                byte[] payload = payloads[i];
+                boolean add = change.type() == WhitelistChange.Type.ADD;
+                byte op = change.uuid() == null ? (add ? OP_ADD : OP_REMOVE) : (add ? OP_ADD_UUID : OP_REMOVE_UUID);
+                crc.reset();
+                crc.update(op);
+                crc.update(payload);
+                buffer.putInt(1 + payload.length).putInt((int) crc.getValue()).put(op).put(payload);
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                journal.write(buffer);
+            }
+            journal.force(false);
+            journalBytes = journal.size();
+        }
+        if (snapshot != null) {
+            latestSnapshot = snapshot;
+        }
+        if (journal != null && journalBytes >= compactThresholdBytes && latestSnapshot != null && !compactionQueued) {
+            compactionQueued = true;
+            compactor().execute(this::compact);
+        }
+    }
+
+    @Override
+    public synchronized void rewrite(WhitelistSnapshot snapshot) throws IOException {
+        Path tempPath = snapshotPath.resolveSibling(SNAPSHOT_FILE_NAME + ".tmp");
+        writeSnapshot(snapshot, tempPath);
+        replace(tempPath, snapshotPath);
+        openJournal();
+        journal.truncate(0);
+        journal.force(true);
+        journalBytes = 0;
+        latestSnapshot = snapshot;
+        generation++;
+    }
+
+    @Override
+    public long backlogBytes() {
+        return journalBytes;
+    }
+
+    /**
+     * Waits for a running compaction to finish before closing the journal.
+     */
+    @Override
+    public void close() throws IOException {
+        ExecutorService executor;
+        synchronized (this) {
+            executor = compactor;
+            compactor = null;
+        }
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                    logger.warn("Whitelist journal compaction did not finish in time, closing anyway.");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            generation++;
+            if (journal != null) {
+                journal.close();
+                journal = null;
+            }
+        }
+    }
+
+    private ExecutorService compactor() {
+        if (compactor == null) {
+            compactor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "KeKWhiteList-Compaction");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return compactor;
+    }
+
+    private void compact() {
+        WhitelistSnapshot snapshot;
+        long coveredBytes;
+        long startGeneration;
+        synchronized (this) {
+            compactionQueued = false;
+            if (journal == null || latestSnapshot == null) {
+                return;
+            }
+            snapshot = latestSnapshot;
+            coveredBytes = journalBytes;
+            startGeneration = generation;
+        }
+        long start = System.nanoTime();
+        Path tempPath = snapshotPath.resolveSibling(SNAPSHOT_FILE_NAME + ".compact.tmp");
+        try {
+            writeSnapshot(snapshot, tempPath);
+            synchronized (this) {
+                if (generation != startGeneration || journal == null) {
+                    Files.deleteIfExists(tempPath);
+                    return;
+                }
+                replace(tempPath, snapshotPath);
+                dropJournalPrefix(coveredBytes);
+            }
+            logger.info("Compacted whitelist journal into {} entries in {} ms.", snapshot.size(),
+                    (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException e) {
+            logger.error("Failed to compact whitelist journal {}, retrying after the next write.", journalPath, e);
+        }
+    }
+
+    /**
+     * Removes the first {@code coveredBytes} of the journal, which the snapshot on disk now holds. Records
+     * after them go into a new file that replaces the journal, so a crash leaves either the whole old
+     * journal (replayed idempotently on top of the snapshot) or the new one, never a mix.
+     */
+    private void dropJournalPrefix(long coveredBytes) throws IOException {
+        long size = journal.size();
+        if (size == coveredBytes) {
+            journal.truncate(0);
+            journal.force(true);
+            journalBytes = 0;
+            return;
+        }
+        ByteBuffer tail = ByteBuffer.allocate(Math.toIntExact(size - coveredBytes));
+        while (tail.hasRemaining()) {
+            if (journal.read(tail, coveredBytes + tail.position()) < 0) {
+                throw new EOFException("Journal " + journalPath + " shrank during compaction");
+            }
+        }
+        tail.flip();
+        Path tempPath = journalPath.resolveSibling(JOURNAL_FILE_NAME + ".tmp");
+        try (FileChannel out = FileChannel.open(tempPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (tail.hasRemaining()) {
+                out.write(tail);
+            }
+            out.force(true);
+        }
+        journal.close();
+        journal = null;
+        replace(tempPath, journalPath);
+        openJournal();
+        journalBytes = journal.size();
+    }
+
+    private static void writeSnapshot(WhitelistSnapshot snapshot, Path tempPath) throws IOException {
+        Files.createDirectories(tempPath.getParent());
+        CRC32 crc = new CRC32();
+        try (OutputStream file = Files.newOutputStream(tempPath);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new ChecksumOutputStream(file, crc)))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeInt(snapshot.names().size());
+            for (String name : snapshot.names()) {
+                writeString(out, name);
+            }
+            out.writeInt(snapshot.uuidEntries().size());
+            for (Map.Entry<UUID, String> entry : snapshot.uuidEntries().entrySet()) {
+                out.writeLong(entry.getKey().getMostSignificantBits());
+                out.writeLong(entry.getKey().getLeastSignificantBits());
+                writeString(out, entry.getValue());
+            }
+            out.flush();
+            // The checksum itself goes straight to the file, bypassing the CRC stream
+            new DataOutputStream(file).writeLong(crc.getValue());
+        }
+        try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+    }
+
+    private static void replace(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void openJournal() throws IOException {
+        if (journal == null || !journal.isOpen()) {
+            Files.createDirectories(journalPath.getParent());
+            journal = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            journal.position(journal.size());
+        }
+    }
+
+    private static byte[] encodePayload(WhitelistChange change) {
+        byte[] name = change.name() == null ? new byte[0] : change.name().getBytes(StandardCharsets.UTF_8);
+        if (change.uuid() == null) {
+            return name;
+        }
+        return ByteBuffer.allocate(16 + name.length)
+                .putLong(change.uuid().getMostSignificantBits())
+                .putLong(change.uuid().getLeastSignificantBits())
+                .put(name)
+                .array();
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_RECORD_LENGTH) {
+            throw new IOException("Whitelist entry too long: " + value);
+        }
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in, byte[] buffer) throws IOException {
+        int length = in.readUnsignedShort();
+        if (length > buffer.length) {
+            throw new IOException("Corrupted whitelist snapshot: entry length " + length);
+        }
+        in.readFully(buffer, 0, length);
+        return new String(buffer, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private void readSnapshot(Set<String> names, Map<UUID, String> uuids) throws IOException {
+        CRC32 crc = new CRC32();
+        try (InputStream file = new BufferedInputStream(Files.newInputStream(snapshotPath));
+             DataInputStream in = new DataInputStream(new ChecksumInputStream(file, crc))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Not a whitelist snapshot: " + snapshotPath);
+            }
+            int version = in.readInt();
+            if (version < 1 || version > SNAPSHOT_VERSION) {
+                throw new IOException("Unsupported whitelist snapshot version " + version);
+            }
+            int count = in.readInt();
+            byte[] buffer = new byte[MAX_RECORD_LENGTH];
+            for (int i = 0; i < count; i++) {
+                names.add(readString(in, buffer));
+            }
+            if (version >= 2) {
+                int uuidCount = in.readInt();
+                for (int i = 0; i < uuidCount; i++) {
+                    UUID uuid = new UUID(in.readLong(), in.readLong());
+                    uuids.put(uuid, readString(in, buffer));
+                }
+            }
+            long expected = crc.getValue();
+            if (new DataInputStream(file).readLong() != expected) {
+                throw new IOException("Checksum mismatch in whitelist snapshot " + snapshotPath);
+            }
+        }
+    }
+
+    /**
+     * @return length of the valid prefix of the journal.
+     */
+    private long replayJournal(Set<String> names, Map<UUID, String> uuids) throws IOException {
+        if (!Files.exists(journalPath)) {
+            return 0;
+        }
+        long validLength = 0;
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[MAX_RECORD_LENGTH];
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(journalPath)))) {
+            while (true) {
+                int length;
+                int checksum;
+                try {
+                    length = in.readInt();
+                    checksum = in.readInt();
+                    if (length < 1 || length > buffer.length) {
+                        break;
+                    }
+                    in.readFully(buffer, 0, length);
+                } catch (EOFException e) {
+                    break;
+                }
+                crc.reset();
+                crc.update(buffer, 0, length);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                byte op = buffer[0];
+                if (op == OP_ADD || op == OP_REMOVE) {
+                    String name = new String(buffer, 1, length - 1, StandardCharsets.UTF_8);
+                    if (op == OP_ADD) {
+                        names.add(name);
+                    } else {
+                        names.remove(name);
+                    }
+                } else if ((op == OP_ADD_UUID || op == OP_REMOVE_UUID) && length >= 17) {
+                    ByteBuffer payload = ByteBuffer.wrap(buffer, 1, 16);
+                    UUID uuid = new UUID(payload.getLong(), payload.getLong());
+                    if (op == OP_ADD_UUID) {
+                        uuids.put(uuid, new String(buffer, 17, length - 17, StandardCharsets.UTF_8));
+                    } else {
+                        uuids.remove(uuid);
+                    }
+                } else {
+                    break;
+                }
+                validLength += 8 + length;
+            }
+        }
+        return validLength;
+    }
+
+    private static final class ChecksumOutputStream extends FilterOutputStream {
+        private final CRC32 crc;
+
+        ChecksumOutputStream(OutputStream out, CRC32 crc) {
+            super(out);
+            this.crc = crc;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            crc.update(b);
+            out.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            crc.update(b, off, len);
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+
+    private static final class ChecksumInputStream extends FilterInputStream {
+        private final CRC32 crc;
+
+        ChecksumInputStream(InputStream in, CRC32 crc) {
+            super(in);
+            this.crc = crc;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b >= 0) {
+                crc.update(b);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = in.read(b, off, len);
+            if (read > 0) {
+                crc.update(b, off, read);
+            }
+            return read;
+        }
+
+        @Override
+        public void close() {
+            // The underlying file stream is closed by its owner
+        }
+    }
+}
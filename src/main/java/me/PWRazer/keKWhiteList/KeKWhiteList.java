@@ -1,15 +1,24 @@
 package me.PWRazer.keKWhiteList;
 
 import com.google.inject.Inject;
+import com.velocitypowered.api.event.EventTask;
 import com.velocitypowered.api.event.Subscribe;
+import com.velocitypowered.api.event.connection.DisconnectEvent;
 import com.velocitypowered.api.event.connection.LoginEvent;
+import com.velocitypowered.api.event.connection.PostLoginEvent;
+import com.velocitypowered.api.event.connection.PreLoginEvent;
+import com.velocitypowered.api.event.player.ServerPreConnectEvent;
 import com.velocitypowered.api.event.proxy.ProxyInitializeEvent;
+import com.velocitypowered.api.event.proxy.ProxyShutdownEvent;
 import com.velocitypowered.api.plugin.Plugin;
 import com.velocitypowered.api.plugin.annotation.DataDirectory;
+import com.velocitypowered.api.proxy.Player;
 import com.velocitypowered.api.proxy.ProxyServer;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
 import org.slf4j.Logger;
 
 import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
 
 @Plugin(
         id = "kekwhitelist",
@@ -19,6 +28,7 @@ import java.nio.file.Path;
         dependencies = {}
 )
 public class KeKWhiteList {
+    private static final long THROTTLE_EVICT_INTERVAL_SECONDS = 10;
 
     private final ProxyServer server;
     private final Logger logger;
@@ -26,33 +36,134 @@ public class KeKWhiteList {
     private final ConfigManager configManager;
     private final WhitelistManager whitelistManager;
     private final LanguageManager languageManager;
+    private final WhitelistMetrics metrics;
+    private final GroupManager groupManager;
+    private final BypassCache bypassCache;
+    private final OnlinePlayerIndex onlinePlayers = new OnlinePlayerIndex();
+    private MetricsServer metricsServer;
+    private ConfigReloader configReloader;
+    private LoginChecker loginChecker;
+    private BypassRegistry bypassRegistry;
+    private ExpiryScheduler expiryScheduler;
+    private AuditLog auditLog;
+    private volatile CachingUuidResolver uuidResolver;
 
     @Inject
     public KeKWhiteList(ProxyServer server, Logger logger, @DataDirectory Path dataDirectory) {
         this.server = server;
         this.logger = logger;
         this.dataDirectory = dataDirectory;
-        this.configManager = new ConfigManager(dataDirectory, logger);
         this.whitelistManager = new WhitelistManager();
+        this.metrics = new WhitelistMetrics();
+        this.configManager = new ConfigManager(dataDirectory, logger, whitelistManager, metrics);
         this.languageManager = new LanguageManager(dataDirectory, logger);
+        this.groupManager = new GroupManager(dataDirectory, logger);
+        this.bypassCache = new BypassCache(configManager);
     }
 
     @Subscribe
     public void onProxyInitialization(ProxyInitializeEvent event) {
+        long start = System.nanoTime();
         configManager.loadConfig();
         languageManager.loadLanguage(configManager.getLanguage());
+        groupManager.load();
+        setUuidResolver(LocalUuidResolver.load(dataDirectory, configManager.isUuidOfflineFallback(), logger));
+        DenialLog denialLog = new DenialLog(logger, configManager.getDenialLogIntervalSeconds());
+        server.getScheduler().buildTask(this, denialLog::flush)
+                .repeat(configManager.getDenialLogIntervalSeconds(), TimeUnit.SECONDS)
+                .schedule();
+        auditLog = new AuditLog(dataDirectory, configManager, metrics, logger, configManager.getAuditBufferSize());
+        auditLog.start();
+        bypassRegistry = new BypassRegistry(dataDirectory, logger);
+        bypassRegistry.load();
+        AdmissionThrottle throttle = new AdmissionThrottle(configManager);
+        server.getScheduler().buildTask(this, throttle::evictIdle)
+                .repeat(THROTTLE_EVICT_INTERVAL_SECONDS, TimeUnit.SECONDS)
+                .schedule();
+        expiryScheduler = new ExpiryScheduler(dataDirectory, whitelistManager, configManager, auditLog,
+                server.getScheduler(), this, logger);
+        expiryScheduler.load();
+        loginChecker = new LoginChecker(configManager, whitelistManager, languageManager, denialLog, bypassRegistry, throttle,
+                bypassCache, auditLog, logger);
+        if (configManager.getMetricsPort() > 0) {
+            metricsServer = new MetricsServer(metrics, () -> whitelistManager.snapshot().size(), logger);
+            metricsServer.start(configManager.getMetricsBind(), configManager.getMetricsPort());
+        }
+        configReloader = new ConfigReloader(dataDirectory, configManager, languageManager, groupManager,
+                bypassCache, logger);
+        if (configManager.isAutoReloadEnabled()) {
+            configReloader.startWatching(configManager.getAutoReloadDelayMillis());
+        }
+        server.getAllPlayers().forEach(player -> onlinePlayers.add(player.getUsername(), player.getUniqueId()));
         server.getCommandManager().register("kekwhitelist", new WhitelistCommand(this, server, configManager, whitelistManager, languageManager), "kwl");
-        logger.info("KeKWhiteList loaded successfully!");
+        logger.info("KeKWhiteList loaded successfully in {} ms!", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    @Subscribe
+    public void onPreLogin(PreLoginEvent event) {
+        if (configManager.isWhitelistEnabled() && event.getResult().isAllowed()) {
+            loginChecker.checkPreLogin(event, configManager.isPreLoginCheckEnabled());
+        }
     }
 
     @Subscribe
-    public void onPlayerLogin(LoginEvent event) {
-        if (configManager.isWhitelistEnabled() && !event.getPlayer().hasPermission("kekwhitelist.bypass")) {
-            String username = event.getPlayer().getUsername().toLowerCase();
-            if (!whitelistManager.isWhitelisted(username)) {
-                event.getPlayer().disconnect(languageManager.getMessage("no-whitelisted"));
-                logger.info("Player {} was denied access (not whitelisted).", username);
-            }
+    public EventTask onPlayerLogin(LoginEvent event) {
+        if (!configManager.isWhitelistEnabled() || !event.getResult().isAllowed()) {
+            return null;
+        }
+        return EventTask.resumeWhenComplete(loginChecker.check(event));
+    }
+
+    /**
+     * Backend servers with whitelist groups only admit members of those groups. Enforced independently
+     * of the proxy-wide whitelist switch.
+     */
+    @Subscribe
+    public void onServerPreConnect(ServerPreConnectEvent event) {
+        if (!event.getResult().isAllowed()) {
+            return;
+        }
+        Player player = event.getPlayer();
+        RegisteredServer target = event.getResult().getServer().orElse(event.getOriginalServer());
+        String serverName = target.getServerInfo().getName();
+        if (groupManager.canJoin(player.getUniqueId(), player.getUsername(), serverName) || loginChecker.hasBypassPermission(player)) {
+            return;
+        }
+        event.setResult(ServerPreConnectEvent.ServerResult.denied());
+        player.sendMessage(languageManager.getMessage(player.getEffectiveLocale(), "group-denied", "server", serverName));
+    }
+
+    @Subscribe
+    public void onPostLogin(PostLoginEvent event) {
+        Player player = event.getPlayer();
+        uuidResolver.remember(player.getUsername(), player.getUniqueId());
+        onlinePlayers.add(player.getUsername(), player.getUniqueId());
+    }
+
+    @Subscribe
+    public void onDisconnect(DisconnectEvent event) {
+        onlinePlayers.remove(event.getPlayer().getUsername(), event.getPlayer().getUniqueId());
+    }
+
+    @Subscribe
+    public void onProxyShutdown(ProxyShutdownEvent event) {
+        if (metricsServer != null) {
+            metricsServer.stop();
+        }
+        if (configReloader != null) {
+            configReloader.shutdown();
+        }
+        if (expiryScheduler != null) {
+            expiryScheduler.shutdown();
+        }
+        if (loginChecker != null) {
+            loginChecker.shutdown();
+            bypassRegistry.shutdown();
+        }
+        groupManager.shutdown();
+        configManager.shutdown();
+        if (auditLog != null) {
+            auditLog.shutdown();
         }
     }
 
@@ -64,10 +175,54 @@ public class KeKWhiteList {
         return whitelistManager;
     }
 
+    public WhitelistMetrics getMetrics() {
+        return metrics;
+    }
+
+    public AuditLog getAuditLog() {
+        return auditLog;
+    }
+
+    public BypassCache getBypassCache() {
+        return bypassCache;
+    }
+
+    public GroupManager getGroupManager() {
+        return groupManager;
+    }
+
+    public ExpiryScheduler getExpiryScheduler() {
+        return expiryScheduler;
+    }
+
+    public ConfigReloader getConfigReloader() {
+        return configReloader;
+    }
+
+    public OnlinePlayerIndex getOnlinePlayers() {
+        return onlinePlayers;
+    }
+
     public LanguageManager getLanguageManager() {
         return languageManager;
     }
 
+    public UuidResolver getUuidResolver() {
+        return uuidResolver;
+    }
+
+    /**
+     * Replaces the name-to-UUID resolver. The resolver is wrapped in a fresh cache.
+     */
+    public void setUuidResolver(UuidResolver resolver) {
+        this.uuidResolver = new CachingUuidResolver(resolver, configManager.getUuidCacheSize(),
+                configManager.getUuidCacheTtlSeconds(), TimeUnit.SECONDS);
+    }
+
+    public Path getDataDirectory() {
+        return dataDirectory;
+    }
+
     public Logger getLogger() {
         return logger;
     }
@@ -5,70 +5,129 @@ import net.kyori.adventure.text.minimessage.MiniMessage;
 import org.slf4j.Logger;
 import org.yaml.snakeyaml.Yaml;
 
-import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Loads every {@code lang/*.yml} file. The two disconnect messages sent on the login path are rendered
+ * while the file is loaded, so the first denied login does not deserialize MiniMessage; every other
+ * message is compiled into a {@link MessageTemplate} on first use, which keeps startup and reload from
+ * parsing dozens of command messages nobody may ask for. The loaded set is replaced as a whole on
+ * reload, so readers on any thread never see a half-loaded language.
+ * Messages for a player are picked by {@link com.velocitypowered.api.proxy.Player#getEffectiveLocale()},
+ * falling back to the configured language.
+ */
 public class LanguageManager {
     private static final String LANG_DIR = "lang";
     private static final String DEFAULT_LANGUAGE = "en";
+    private static final List<String> BUILT_IN_LANGUAGES = List.of("en", "ru");
+    private static final String DISCONNECT_KEY = "no-whitelisted";
+    private static final String THROTTLED_KEY = "throttled";
 
     private final Path dataDirectory;
     private final Logger logger;
-    private final Map<String, String> messages = new HashMap<>();
-    private final Map<String, Component> cachedMessages = new HashMap<>();
     private final MiniMessage miniMessage = MiniMessage.miniMessage();
+    private volatile Catalog catalog;
 
     public LanguageManager(Path dataDirectory, Logger logger) {
         this.dataDirectory = dataDirectory;
         this.logger = logger;
+        this.catalog = new Catalog(DEFAULT_LANGUAGE, Map.of(DEFAULT_LANGUAGE, templates(DEFAULT_LANGUAGE, defaultMessages(DEFAULT_LANGUAGE))));
     }
 
     public void loadLanguage(String language) {
-        File langDir = new File(dataDirectory.toFile(), LANG_DIR);
-        if (!langDir.exists()) {
-            langDir.mkdirs();
-        }
-
-        File langFile = new File(langDir, language + ".yml");
-        if (!langFile.exists()) {
-            saveDefaultLanguageFile(language);
-        }
-
-        try (FileReader reader = new FileReader(langFile)) {
-            Yaml yaml = new Yaml();
-            Map<String, Object> loaded = yaml.load(reader);
-            messages.clear();
-            cachedMessages.clear();
-            if (loaded instanceof Map) {
-                loaded.forEach((key, value) -> {
-                    if (value != null) {
-                        messages.put(key, value.toString());
-                        cachedMessages.put(key, miniMessage.deserialize(value.toString()));
+        Path langDir = dataDirectory.resolve(LANG_DIR);
+        try {
+            Files.createDirectories(langDir);
+        } catch (IOException e) {
+            logger.error("Failed to create language directory {}", langDir, e);
+        }
+        for (String lang : BUILT_IN_LANGUAGES) {
+            saveDefaultLanguageFile(langDir, lang);
+        }
+        saveDefaultLanguageFile(langDir, language);
+
+        Map<String, Templates> languages = new HashMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(langDir, "*.yml")) {
+            for (Path file : files) {
+                String fileName = file.getFileName().toString();
+                String lang = fileName.substring(0, fileName.length() - ".yml".length()).toLowerCase(Locale.ROOT);
+                Templates templates = loadLanguageFile(file, lang);
+                if (templates != null) {
+                    languages.put(lang, templates);
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Failed to list language files in {}", langDir, e);
+        }
+
+        String selected = language.toLowerCase(Locale.ROOT);
+        if (!languages.containsKey(selected)) {
+            logger.error("Failed to load language file {}.yml, falling back to default", language);
+            selected = DEFAULT_LANGUAGE;
+            languages.computeIfAbsent(selected, lang -> templates(lang, defaultMessages(lang)));
+        }
+        catalog = new Catalog(selected, Map.copyOf(languages));
+    }
+
+    private Templates loadLanguageFile(Path file, String lang) {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            Object loaded = new Yaml().load(reader);
+            // Keys missing from older language files fall back to the built-in defaults
+            Map<String, String> messages = defaultMessages(lang);
+            if (loaded instanceof Map<?, ?> map) {
+                map.forEach((key, value) -> {
+                    if (key != null && value != null) {
+                        messages.put(key.toString(), value.toString());
                     }
                 });
             }
+            return templates(lang, messages);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Failed to load language file {}", file, e);
+            return null;
+        }
+    }
+
+    private Templates templates(String lang, Map<String, String> messages) {
+        return new Templates(lang, Map.copyOf(messages), miniMessage, logger);
+    }
+
+    private void saveDefaultLanguageFile(Path langDir, String lang) {
+        Path langFile = langDir.resolve(lang + ".yml");
+        if (Files.exists(langFile)) {
+            return;
+        }
+        try (Writer writer = Files.newBufferedWriter(langFile, StandardCharsets.UTF_8)) {
+            new Yaml().dump(defaultMessages(lang), writer);
         } catch (IOException e) {
-            logger.error("Failed to load language file {}.yml, falling back to default", language, e);
-            if (!language.equals(DEFAULT_LANGUAGE)) {
-                loadLanguage(DEFAULT_LANGUAGE);
-            }
+            logger.error("Failed to save default language file {}.yml", lang, e);
         }
     }
 
-    private void saveDefaultLanguageFile(String lang) {
-        File langFile = new File(dataDirectory.toFile(), LANG_DIR + "/" + lang + ".yml");
+    private static Map<String, String> defaultMessages(String lang) {
         Map<String, String> defaultMessages = new HashMap<>();
 
         if (lang.equals("ru")) {
             defaultMessages.put("no-whitelisted", "<white>Вас нет в Whitelist сервера. Подайте заявку на вступление в дискорде!\n<aqua>wiki.mkek.fun");
-            defaultMessages.put("usage", "<red>Использование: /kekwhitelist <add|remove|on|off|list|reload> [игрок]");
+            defaultMessages.put("throttled", "<red>Слишком много попыток входа. Подождите минуту перед повторным подключением.");
+            defaultMessages.put("usage", "<red>Использование: /kekwhitelist <add|schedule|remove|addip|removeip|on|off|list|search|reload|import|export|stats|group|history> [игрок|диапазон|файл|страница]");
             defaultMessages.put("no-permission", "<red>Нет прав!");
-            defaultMessages.put("add-usage", "<red>Использование: /kekwhitelist add <игрок>");
+            defaultMessages.put("add-usage", "<red>Использование: /kekwhitelist add <игрок> [срок]");
+            defaultMessages.put("schedule-usage", "<red>Использование: /kekwhitelist schedule <игрок> <через> <срок>");
+            defaultMessages.put("invalid-duration", "<red>Неверный срок! Примеры: 30m, 12h, 7d, 1d12h");
+            defaultMessages.put("added-temporary", "<green>{player} добавлен в whitelist на {duration}!");
+            defaultMessages.put("scheduled", "<green>{player} будет добавлен в whitelist через {delay} на {duration}!");
             defaultMessages.put("invalid-username", "<red>Некорректное имя игрока! Используйте 3-16 символов (буквы, цифры, подчёркивания).");
             defaultMessages.put("already-whitelisted", "<yellow>{player} уже в whitelist!");
             defaultMessages.put("added", "<green>{player} добавлен в whitelist!");
@@ -80,13 +139,64 @@ public class LanguageManager {
             defaultMessages.put("already-disabled", "<yellow>Whitelist уже выключен!");
             defaultMessages.put("disabled", "<green>Whitelist выключен!");
             defaultMessages.put("list-header", "<green>Игроки в whitelist: ");
-            defaultMessages.put("reloaded", "<green>Конфиг перезагружен!");
-            defaultMessages.put("unknown-subcommand", "<red>Неизвестная подкоманда! Используйте: add, remove, on, off, list, reload");
+            defaultMessages.put("list-usage", "<red>Использование: /kekwhitelist list [страница]");
+            defaultMessages.put("search-usage", "<red>Использование: /kekwhitelist search <начало имени> [страница]");
+            defaultMessages.put("search-header", "<green>Игроки, чьё имя начинается с {prefix}: ");
+            defaultMessages.put("list-empty", "<gray>нет");
+            defaultMessages.put("list-page", "<gray>Страница {page} из {pages}, всего игроков: {total}");
+            defaultMessages.put("list-next", "<gray>Следующая страница: <aqua>{command}");
+            defaultMessages.put("invalid-page", "<red>Номер страницы должен быть положительным числом!");
+            defaultMessages.put("reloaded", "<green>Конфиг перезагружен! Добавлено записей: {added}, удалено: {removed}.");
+            defaultMessages.put("reload-failed", "<red>Не удалось перезагрузить конфиг, текущий whitelist сохранён. Подробности в консоли.");
+            defaultMessages.put("unknown-subcommand", "<red>Неизвестная подкоманда! Используйте: add, schedule, remove, addip, removeip, on, off, list, search, reload, import, export, stats, group, history");
+            defaultMessages.put("group-usage", "<red>Использование: /kekwhitelist group <list|create|delete|members|add|remove|assign|unassign> [группа] [игрок|сервер]");
+            defaultMessages.put("group-invalid-name", "<red>Имя группы: 1-32 символа (строчные буквы, цифры, '_' и '-').");
+            defaultMessages.put("group-exists", "<yellow>Группа {group} уже существует!");
+            defaultMessages.put("group-not-found", "<red>Группа {group} не найдена!");
+            defaultMessages.put("group-created", "<green>Группа {group} создана.");
+            defaultMessages.put("group-deleted", "<green>Группа {group} удалена.");
+            defaultMessages.put("group-added", "<green>{player} добавлен в группу {group}!");
+            defaultMessages.put("group-already-member", "<yellow>{player} уже в группе {group}!");
+            defaultMessages.put("group-removed", "<green>{player} удалён из группы {group}!");
+            defaultMessages.put("group-not-member", "<yellow>{player} не в группе {group}!");
+            defaultMessages.put("group-assigned", "<green>Для входа на сервер {server} теперь нужна группа {group}.");
+            defaultMessages.put("group-already-assigned", "<yellow>Сервер {server} уже требует группу {group}!");
+            defaultMessages.put("group-unassigned", "<green>Сервер {server} больше не требует группу {group}.");
+            defaultMessages.put("group-not-assigned", "<yellow>Сервер {server} не требует группу {group}!");
+            defaultMessages.put("group-list-empty", "<yellow>Группы whitelist не созданы.");
+            defaultMessages.put("group-entry", "<gold>{group}<gray>: участников: {members}, серверы: <white>{servers}");
+            defaultMessages.put("group-members", "<gold>{group} ({count}): <white>{members}");
+            defaultMessages.put("group-denied", "<red>Вас нет в whitelist сервера {server}.");
+            defaultMessages.put("addip-usage", "<red>Использование: /kekwhitelist addip <адрес[/префикс]>");
+            defaultMessages.put("removeip-usage", "<red>Использование: /kekwhitelist removeip <адрес[/префикс]>");
+            defaultMessages.put("invalid-cidr", "<red>Некорректный диапазон! Примеры: 203.0.113.7, 10.0.0.0/8, 2001:db8::/32");
+            defaultMessages.put("ip-added", "<green>Диапазон {range} добавлен в whitelist!");
+            defaultMessages.put("ip-already-whitelisted", "<yellow>Диапазон {range} уже в whitelist!");
+            defaultMessages.put("ip-removed", "<green>Диапазон {range} удалён из whitelist!");
+            defaultMessages.put("ip-not-whitelisted", "<yellow>Диапазона {range} нет в whitelist!");
+            defaultMessages.put("history-usage", "<red>Использование: /kekwhitelist history <игрок>");
+            defaultMessages.put("history-header", "<green>История {player}:");
+            defaultMessages.put("history-entry", "<gray>{time} <white>{actor}</white> {action}: <white>{result}");
+            defaultMessages.put("history-empty", "<yellow>Записей о {player} нет.");
+            defaultMessages.put("import-usage", "<red>Использование: /kekwhitelist import <файл>");
+            defaultMessages.put("export-usage", "<red>Использование: /kekwhitelist export <файл>");
+            defaultMessages.put("imported", "<green>Импорт из {file}: добавлено {added}, уже в whitelist {skipped}, некорректных имён {invalid}.");
+            defaultMessages.put("exported", "<green>Экспортировано {count} игроков в {file}.");
+            defaultMessages.put("file-error", "<red>Не удалось обработать файл {file}. Подробности в консоли.");
+            defaultMessages.put("stats", "<green>Входы: <white>{allowed}</white> разрешено (<white>{bypassed}</white> по bypass), <white>{denied}</white> отклонено, <white>{fallback}</white> по политике таймаута\n"
+                    + "<green>Время решения: p50 <white>{decision-p50}</white>, p99 <white>{decision-p99}</white>, макс. <white>{decision-max}</white>, очередь <white>{queue}</white>\n"
+                    + "<green>Сохранения: <white>{saves}</white> (ошибок <white>{save-failures}</white>), p99 <white>{save-p99}</white>, несохранённых изменений <white>{pending}</white>, журнал <white>{journal}</white> байт\n"
+                    + "<green>Перезагрузки: <white>{reloads}</white>, p99 <white>{reload-p99}</white>; записей в whitelist: <white>{size}</white>");
         } else {
             defaultMessages.put("no-whitelisted", "<white>You are not on the server's whitelist. Apply to join on our Discord!\n<aqua>wiki.mkek.fun");
-            defaultMessages.put("usage", "<red>Usage: /kekwhitelist <add|remove|on|off|list|reload> [player]");
+            defaultMessages.put("throttled", "<red>Too many login attempts. Please wait a minute before reconnecting.");
+            defaultMessages.put("usage", "<red>Usage: /kekwhitelist <add|schedule|remove|addip|removeip|on|off|list|search|reload|import|export|stats|group|history> [player|range|file|page]");
             defaultMessages.put("no-permission", "<red>No permission!");
-            defaultMessages.put("add-usage", "<red>Usage: /kekwhitelist add <player>");
+            defaultMessages.put("add-usage", "<red>Usage: /kekwhitelist add <player> [duration]");
+            defaultMessages.put("schedule-usage", "<red>Usage: /kekwhitelist schedule <player> <starts-in> <duration>");
+            defaultMessages.put("invalid-duration", "<red>Invalid duration! Examples: 30m, 12h, 7d, 1d12h");
+            defaultMessages.put("added-temporary", "<green>{player} added to whitelist for {duration}!");
+            defaultMessages.put("scheduled", "<green>{player} will be whitelisted in {delay} for {duration}!");
             defaultMessages.put("invalid-username", "<red>Invalid username! Use 3-16 characters (letters, numbers, underscores).");
             defaultMessages.put("already-whitelisted", "<yellow>{player} is already whitelisted!");
             defaultMessages.put("added", "<green>{player} added to whitelist!");
@@ -98,19 +208,178 @@ public class LanguageManager {
             defaultMessages.put("already-disabled", "<yellow>Whitelist is already disabled!");
             defaultMessages.put("disabled", "<green>Whitelist disabled!");
             defaultMessages.put("list-header", "<green>Whitelisted players: ");
-            defaultMessages.put("reloaded", "<green>Config reloaded!");
-            defaultMessages.put("unknown-subcommand", "<red>Unknown subcommand! Use: add, remove, on, off, list, reload");
+            defaultMessages.put("list-usage", "<red>Usage: /kekwhitelist list [page]");
+            defaultMessages.put("search-usage", "<red>Usage: /kekwhitelist search <prefix> [page]");
+            defaultMessages.put("search-header", "<green>Players starting with {prefix}: ");
+            defaultMessages.put("list-empty", "<gray>None");
+            defaultMessages.put("list-page", "<gray>Page {page} of {pages}, {total} players total");
+            defaultMessages.put("list-next", "<gray>Next page: <aqua>{command}");
+            defaultMessages.put("invalid-page", "<red>Page number must be a positive number!");
+            defaultMessages.put("reloaded", "<green>Config reloaded! {added} entries added, {removed} removed.");
+            defaultMessages.put("reload-failed", "<red>Reload failed, the current whitelist was kept. See console for details.");
+            defaultMessages.put("unknown-subcommand", "<red>Unknown subcommand! Use: add, schedule, remove, addip, removeip, on, off, list, search, reload, import, export, stats, group, history");
+            defaultMessages.put("group-usage", "<red>Usage: /kekwhitelist group <list|create|delete|members|add|remove|assign|unassign> [group] [player|server]");
+            defaultMessages.put("group-invalid-name", "<red>Group names use 1-32 characters: lowercase letters, digits, '_' and '-'.");
+            defaultMessages.put("group-exists", "<yellow>Group {group} already exists!");
+            defaultMessages.put("group-not-found", "<red>Group {group} does not exist!");
+            defaultMessages.put("group-created", "<green>Group {group} created.");
+            defaultMessages.put("group-deleted", "<green>Group {group} deleted.");
+            defaultMessages.put("group-added", "<green>{player} added to group {group}!");
+            defaultMessages.put("group-already-member", "<yellow>{player} is already in group {group}!");
+            defaultMessages.put("group-removed", "<green>{player} removed from group {group}!");
+            defaultMessages.put("group-not-member", "<yellow>{player} is not in group {group}!");
+            defaultMessages.put("group-assigned", "<green>Server {server} now requires group {group}.");
+            defaultMessages.put("group-already-assigned", "<yellow>Server {server} already requires group {group}!");
+            defaultMessages.put("group-unassigned", "<green>Server {server} no longer requires group {group}.");
+            defaultMessages.put("group-not-assigned", "<yellow>Server {server} does not require group {group}!");
+            defaultMessages.put("group-list-empty", "<yellow>No whitelist groups.");
+            defaultMessages.put("group-entry", "<gold>{group}<gray>: {members} members, servers: <white>{servers}");
+            defaultMessages.put("group-members", "<gold>{group} ({count}): <white>{members}");
+            defaultMessages.put("group-denied", "<red>You are not whitelisted on {server}.");
+            defaultMessages.put("addip-usage", "<red>Usage: /kekwhitelist addip <address[/prefix]>");
+            defaultMessages.put("removeip-usage", "<red>Usage: /kekwhitelist removeip <address[/prefix]>");
+            defaultMessages.put("invalid-cidr", "<red>Invalid range! Examples: 203.0.113.7, 10.0.0.0/8, 2001:db8::/32");
+            defaultMessages.put("ip-added", "<green>Range {range} added to whitelist!");
+            defaultMessages.put("ip-already-whitelisted", "<yellow>Range {range} is already whitelisted!");
+            defaultMessages.put("ip-removed", "<green>Range {range} removed from whitelist!");
+            defaultMessages.put("ip-not-whitelisted", "<yellow>Range {range} is not whitelisted!");
+            defaultMessages.put("history-usage", "<red>Usage: /kekwhitelist history <player>");
+            defaultMessages.put("history-header", "<green>History of {player}:");
+            defaultMessages.put("history-entry", "<gray>{time} <white>{actor}</white> {action}: <white>{result}");
+            defaultMessages.put("history-empty", "<yellow>No records for {player}.");
+            defaultMessages.put("import-usage", "<red>Usage: /kekwhitelist import <file>");
+            defaultMessages.put("export-usage", "<red>Usage: /kekwhitelist export <file>");
+            defaultMessages.put("imported", "<green>Imported from {file}: {added} added, {skipped} already whitelisted, {invalid} invalid names.");
+            defaultMessages.put("exported", "<green>Exported {count} players to {file}.");
+            defaultMessages.put("file-error", "<red>Could not process file {file}. See console for details.");
+            defaultMessages.put("stats", "<green>Logins: <white>{allowed}</white> allowed (<white>{bypassed}</white> by bypass), <white>{denied}</white> denied, <white>{fallback}</white> by timeout policy\n"
+                    + "<green>Decision time: p50 <white>{decision-p50}</white>, p99 <white>{decision-p99}</white>, max <white>{decision-max}</white>, queue <white>{queue}</white>\n"
+                    + "<green>Saves: <white>{saves}</white> (<white>{save-failures}</white> failed), p99 <white>{save-p99}</white>, unsaved changes <white>{pending}</white>, journal <white>{journal}</white> bytes\n"
+                    + "<green>Reloads: <white>{reloads}</white>, p99 <white>{reload-p99}</white>; whitelist entries: <white>{size}</white>");
         }
+        return defaultMessages;
+    }
 
-        try (FileWriter writer = new FileWriter(langFile)) {
-            new Yaml().dump(defaultMessages, writer);
-        } catch (IOException e) {
-            logger.error("Failed to save default language file {}.yml", lang, e);
+    /**
+     * @param placeholders alternating placeholder names (without braces) and values,
+     *                     e.g. {@code getMessage("added", "player", name)}.
+     */
+    public Component getMessage(String key, Object... placeholders) {
+        Catalog current = catalog;
+        return current.template(current.defaultTemplates, key).render(placeholders);
+    }
+
+    /**
+     * Same as {@link #getMessage(String, Object...)} in the language matching {@code locale};
+     * a null locale (client settings not received yet) selects the configured language.
+     */
+    public Component getMessage(Locale locale, String key, Object... placeholders) {
+        Catalog current = catalog;
+        return current.template(current.forLocale(locale), key).render(placeholders);
+    }
+
+    /**
+     * @return the "not whitelisted" disconnect message for {@code locale}, rendered when the language was loaded.
+     */
+    public Component getDisconnectMessage(Locale locale) {
+        return catalog.forLocale(locale).disconnect();
+    }
+
+    /**
+     * @return the "too many attempts" disconnect message in the configured language, rendered when it was loaded.
+     */
+    public Component getThrottledMessage() {
+        return catalog.defaultTemplates.throttled();
+    }
+
+    /**
+     * Raw messages of one language, compiled on first use except for the disconnect messages, which are
+     * rendered up front. Compiling the same key twice in a race is harmless: both results are equal and
+     * one of them is kept.
+     */
+    private static final class Templates {
+        private final String lang;
+        private final Map<String, String> raw;
+        private final MiniMessage miniMessage;
+        private final Logger logger;
+        private final Map<String, MessageTemplate> compiled = new ConcurrentHashMap<>();
+        private final Component disconnect;
+        private final Component throttled;
+
+        private Templates(String lang, Map<String, String> raw, MiniMessage miniMessage, Logger logger) {
+            this.lang = lang;
+            this.raw = raw;
+            this.miniMessage = miniMessage;
+            this.logger = logger;
+            this.disconnect = prerender(DISCONNECT_KEY);
+            this.throttled = prerender(THROTTLED_KEY);
+        }
+
+        /**
+         * @return the compiled message, or null if this language does not define the key.
+         */
+        private MessageTemplate get(String key) {
+            MessageTemplate template = compiled.get(key);
+            if (template != null) {
+                return template;
+            }
+            String value = raw.get(key);
+            if (value == null) {
+                return null;
+            }
+            try {
+                template = MessageTemplate.compile(miniMessage, value);
+            } catch (RuntimeException e) {
+                logger.error("Invalid message {} in language {}, showing it as plain text", key, lang, e);
+                template = MessageTemplate.compile(miniMessage, miniMessage.escapeTags(value));
+            }
+            compiled.put(key, template);
+            return template;
+        }
+
+        private Component disconnect() {
+            return disconnect;
+        }
+
+        private Component throttled() {
+            return throttled;
+        }
+
+        private Component prerender(String key) {
+            MessageTemplate template = get(key);
+            return template != null ? template.render() : Component.text(key);
         }
     }
 
-    public Component getMessage(String key) {
-        return cachedMessages.computeIfAbsent(key, k ->
-                miniMessage.deserialize(messages.getOrDefault(k, "Message not found: " + k)));
+    private static final class Catalog {
+        private final Map<String, Templates> languages;
+        private final Templates defaultTemplates;
+        private final Map<Locale, Templates> byLocale = new ConcurrentHashMap<>();
+
+        private Catalog(String defaultLanguage, Map<String, Templates> languages) {
+            this.languages = Map.copyOf(languages);
+            this.defaultTemplates = this.languages.get(defaultLanguage);
+        }
+
+        private Templates forLocale(Locale locale) {
+            if (locale == null) {
+                return defaultTemplates;
+            }
+            return byLocale.computeIfAbsent(locale, key -> {
+                Templates exact = languages.get(key.toString().toLowerCase(Locale.ROOT));
+                if (exact != null) {
+                    return exact;
+                }
+                return languages.getOrDefault(key.getLanguage(), defaultTemplates);
+            });
+        }
+
+        private MessageTemplate template(Templates templates, String key) {
+            MessageTemplate template = templates.get(key);
+            if (template == null && templates != defaultTemplates) {
+                template = defaultTemplates.get(key);
+            }
+            return template != null ? template : MessageTemplate.compile(MiniMessage.miniMessage(), "Message not found: " + key);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,72 @@
+package me.PWRazer.keKWhiteList;
+
+import org.slf4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolver that needs no external service. Names come from {@code uuids.txt} in the data directory
+ * ({@code name,uuid} per line) and from players seen logging in. With offline fallback enabled, unknown
+ * names resolve to the offline-mode UUID the proxy would assign.
+ */
+public class LocalUuidResolver implements UuidResolver {
+    public static final String FILE_NAME = "uuids.txt";
+
+    private final Map<String, UUID> known = new ConcurrentHashMap<>();
+    private final boolean offlineFallback;
+
+    public LocalUuidResolver(boolean offlineFallback) {
+        this.offlineFallback = offlineFallback;
+    }
+
+    public static LocalUuidResolver load(Path dataDirectory, boolean offlineFallback, Logger logger) {
+        LocalUuidResolver resolver = new LocalUuidResolver(offlineFallback);
+        Path file = dataDirectory.resolve(FILE_NAME);
+        if (!Files.isRegularFile(file)) {
+            return resolver;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.strip().split("[,;\\s]+");
+                if (parts.length < 2 || parts[0].startsWith("#")) {
+                    continue;
+                }
+                try {
+                    resolver.put(parts[0], UUID.fromString(parts[1]));
+                } catch (IllegalArgumentException e) {
+                    logger.warn("Skipping invalid UUID in {}: {}", FILE_NAME, line);
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Failed to read {}", file, e);
+        }
+        return resolver;
+    }
+
+    public void put(String username, UUID uuid) {
+        known.put(WhitelistManager.normalize(username), uuid);
+    }
+
+    @Override
+    public CompletableFuture<Optional<UUID>> resolve(String username) {
+        UUID uuid = known.get(WhitelistManager.normalize(username));
+        if (uuid == null && offlineFallback) {
+            uuid = offlineUuid(username);
+        }
+        return CompletableFuture.completedFuture(Optional.ofNullable(uuid));
+    }
+
+    public static UUID offlineUuid(String username) {
+        return UUID.nameUUIDFromBytes(("OfflinePlayer:" + username).getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,203 @@
+package me.PWRazer.keKWhiteList;
+
+import com.velocitypowered.api.event.ResultedEvent;
+import com.velocitypowered.api.event.connection.LoginEvent;
+import com.velocitypowered.api.event.connection.PreLoginEvent;
+import com.velocitypowered.api.proxy.Player;
+import org.slf4j.Logger;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Makes the whitelist decision for a login off the Velocity event thread, on a small bounded pool.
+ * If the decision does not arrive in time (slow permission backend, full queue) the configured
+ * fail-open/fail-closed policy is applied instead.
+ */
+public class LoginChecker {
+    private static final int QUEUE_CAPACITY = 1024;
+
+    private final ConfigManager configManager;
+    private final WhitelistManager whitelistManager;
+    private final LanguageManager languageManager;
+    private final Logger logger;
+    private final DenialLog denialLog;
+    private final BypassRegistry bypassRegistry;
+    private final AdmissionThrottle throttle;
+    private final BypassCache bypassCache;
+    private final AuditLog auditLog;
+    private final WhitelistMetrics metrics;
+    private final ThreadPoolExecutor executor;
+
+    public LoginChecker(ConfigManager configManager, WhitelistManager whitelistManager,
+                        LanguageManager languageManager, DenialLog denialLog, BypassRegistry bypassRegistry,
+                        AdmissionThrottle throttle, BypassCache bypassCache, AuditLog auditLog, Logger logger) {
+        this.configManager = configManager;
+        this.whitelistManager = whitelistManager;
+        this.languageManager = languageManager;
+        this.denialLog = denialLog;
+        this.bypassRegistry = bypassRegistry;
+        this.throttle = throttle;
+        this.bypassCache = bypassCache;
+        this.auditLog = auditLog;
+        this.logger = logger;
+        this.metrics = configManager.getMetrics();
+        int threads = configManager.getLoginThreads();
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), runnable -> {
+                    Thread thread = new Thread(runnable, "KeKWhiteList-Login-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        metrics.setLoginQueueDepth(() -> executor.getQueue().size());
+    }
+
+    /**
+     * Cheap check before authentication: only the claimed name and UUID are known and no permissions.
+     * Anything that might be allowed passes on to the full check in {@code LoginEvent}. Throttled
+     * addresses are rejected here; other connections only when {@code deny} is set or the global
+     * denial cap is exceeded.
+     */
+    public void checkPreLogin(PreLoginEvent event, boolean deny) {
+        InetSocketAddress address = event.getConnection().getRemoteAddress();
+        if (mightBeAllowed(event, address)) {
+            return;
+        }
+        InetAddress remote = address != null ? address.getAddress() : null;
+        if (throttle.isThrottled(remote)) {
+            event.setResult(PreLoginEvent.PreLoginComponentResult.denied(languageManager.getThrottledMessage()));
+            throttle.recordDenial(remote);
+            metrics.recordThrottled();
+            auditLog.login(event.getUsername(), "throttled");
+            return;
+        }
+        if (!deny && !throttle.isOverloaded()) {
+            return;
+        }
+        event.setResult(PreLoginEvent.PreLoginComponentResult.denied(languageManager.getDisconnectMessage(null)));
+        throttle.recordDenial(remote);
+        denialLog.record(event.getUsername());
+        metrics.recordEarlyDenial();
+        auditLog.login(event.getUsername(), "denied");
+    }
+
+    private boolean mightBeAllowed(PreLoginEvent event, InetSocketAddress address) {
+        String username = event.getUsername();
+        UUID uuid = event.getUniqueId();
+        WhitelistSnapshot snapshot = whitelistManager.snapshot();
+        if (uuid != null && (snapshot.contains(uuid) || bypassRegistry.isKnown(uuid))) {
+            return true;
+        }
+        if (snapshot.mightContain(username)
+                && snapshot.contains(WhitelistManager.normalize(username))) {
+            return true;
+        }
+        return bypassRegistry.isKnown(username) || isAllowedAddress(address);
+    }
+
+    public CompletableFuture<Void> check(LoginEvent event) {
+        Player player = event.getPlayer();
+        boolean failOpen = configManager.isLoginFailOpen();
+        long start = System.nanoTime();
+        CompletableFuture<Boolean> decision;
+        try {
+            decision = CompletableFuture.supplyAsync(() -> isAllowed(player), executor);
+        } catch (RejectedExecutionException e) {
+            logger.warn("Login check queue is full, applying {} policy to {}.",
+                    failOpen ? "fail-open" : "fail-closed", player.getUsername());
+            decision = CompletableFuture.completedFuture(null);
+        }
+        // null means no decision was made and the fail-open/fail-closed policy applies
+        return decision
+                .completeOnTimeout(null, configManager.getLoginTimeoutMillis(), TimeUnit.MILLISECONDS)
+                .exceptionally(throwable -> {
+                    logger.error("Login check failed for {}, applying {} policy.",
+                            player.getUsername(), failOpen ? "fail-open" : "fail-closed", throwable);
+                    return null;
+                })
+                .thenAccept(result -> {
+                    if (result == null) {
+                        metrics.recordFallback();
+                    }
+                    boolean allowed = result != null ? result : failOpen;
+                    metrics.recordLogin(allowed, System.nanoTime() - start);
+                    auditLog.login(player.getUsername(), (allowed ? "allowed" : "denied") + (result == null ? "-fallback" : ""));
+                    if (!allowed) {
+                        event.setResult(ResultedEvent.ComponentResult.denied(
+                                languageManager.getDisconnectMessage(player.getEffectiveLocale())));
+                        InetSocketAddress address = player.getRemoteAddress();
+                        throttle.recordDenial(address != null ? address.getAddress() : null);
+                        denialLog.record(player.getUsername());
+                    }
+                });
+    }
+
+    private boolean isAllowed(Player player) {
+        WhitelistSnapshot snapshot = whitelistManager.snapshot();
+        UUID uuid = player.getUniqueId();
+        if (snapshot.contains(uuid)) {
+            return true;
+        }
+        String username = player.getUsername();
+        if (configManager.isBloomFilterEnabled() && !snapshot.mightContain(username)) {
+            // Certainly not on the list: skip normalization and the set lookup
+            return isAllowedAddress(player.getRemoteAddress()) || hasBypass(player);
+        }
+        String name = WhitelistManager.normalize(username);
+        if (configManager.isUuidMode()) {
+            // In UUID mode a display name alone must not let a different account in
+            if (snapshot.containsName(name)) {
+                if (whitelistManager.migrateToUuid(uuid, username)) {
+                    configManager.saveConfig();
+                    logger.info("Whitelist entry {} migrated to UUID {}.", username, uuid);
+                }
+                return true;
+            }
+        } else if (snapshot.contains(name)) {
+            return true;
+        }
+        return isAllowedAddress(player.getRemoteAddress()) || hasBypass(player);
+    }
+
+    private boolean isAllowedAddress(InetSocketAddress address) {
+        return address != null && whitelistManager.isWhitelisted(address.getAddress());
+    }
+
+    /**
+     * Only reached when the player is not on the list, so whitelisted players never cost a permission lookup.
+     */
+    private boolean hasBypass(Player player) {
+        boolean bypass = hasBypassPermission(player);
+        if (bypass) {
+            metrics.recordBypass();
+        }
+        return bypass;
+    }
+
+    /**
+     * {@code kekwhitelist.bypass} through {@link BypassCache}; a lookup also refreshes the bypass registry.
+     */
+    public boolean hasBypassPermission(Player player) {
+        UUID uuid = player.getUniqueId();
+        Boolean cached = bypassCache.get(uuid);
+        if (cached != null) {
+            return cached;
+        }
+        boolean bypass = player.hasPermission("kekwhitelist.bypass");
+        bypassCache.put(uuid, bypass);
+        bypassRegistry.update(uuid, player.getUsername(), bypass);
+        return bypass;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
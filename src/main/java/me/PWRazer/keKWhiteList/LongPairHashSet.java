@@ -0,0 +1,87 @@
+package me.PWRazer.keKWhiteList;
+
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Immutable open-addressing hash set of UUIDs stored as pairs of primitive longs.
+ * Lookups do not allocate, and the table is a single {@code long[]} instead of one node and one UUID object per entry.
+ */
+final class LongPairHashSet {
+    private static final long[] EMPTY_TABLE = new long[2];
+
+    private final long[] table;
+    private final int mask;
+    private final boolean containsZero;
+
+    LongPairHashSet(Collection<UUID> uuids) {
+        if (uuids.isEmpty()) {
+            this.table = EMPTY_TABLE;
+            this.mask = 0;
+            this.containsZero = false;
+            return;
+        }
+        // Load factor stays at or below 0.75
+        int capacity = Integer.highestOneBit(Math.max(2, uuids.size() * 4 / 3 + 1) - 1) << 1;
+        long[] table = new long[capacity * 2];
+        int mask = capacity - 1;
+        boolean containsZero = false;
+        for (UUID uuid : uuids) {
+            long msb = uuid.getMostSignificantBits();
+            long lsb = uuid.getLeastSignificantBits();
+            if (msb == 0 && lsb == 0) {
+                containsZero = true;
+                continue;
+            }
+            int slot = hash(msb, lsb) & mask;
+            while (true) {
+                long m = table[slot * 2];
+                long l = table[slot * 2 + 1];
+                if (m == 0 && l == 0) {
+                    table[slot * 2] = msb;
+                    table[slot * 2 + 1] = lsb;
+                    break;
+                }
+                if (m == msb && l == lsb) {
+                    break;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+        this.table = table;
+        this.mask = mask;
+        this.containsZero = containsZero;
+    }
+
+    boolean contains(UUID uuid) {
+        return contains(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+    }
+
+    boolean contains(long msb, long lsb) {
+        if (msb == 0 && lsb == 0) {
+            return containsZero;
+        }
+        if (table == EMPTY_TABLE) {
+            return false;
+        }
+        int slot = hash(msb, lsb) & mask;
+        while (true) {
+            long m = table[slot * 2];
+            long l = table[slot * 2 + 1];
+            if (m == msb && l == lsb) {
+                return true;
+            }
+            if (m == 0 && l == 0) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private static int hash(long msb, long lsb) {
+        long h = msb * 0x9E3779B97F4A7C15L ^ lsb;
+        h ^= h >>> 29;
+        h *= 0xBF58476D1CE4E5B9L;
+        return (int) (h ^ h >>> 32);
+    }
+}
@@ -0,0 +1,124 @@
+package me.PWRazer.keKWhiteList;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextComponent;
+import net.kyori.adventure.text.minimessage.MiniMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A message parsed once, before it is first rendered (see {@link LanguageManager} for when). The text nodes holding {@code {placeholder}}s are located
+ * during compilation, so rendering only rebuilds the path to those nodes and does no parsing
+ * or tree-wide search. Values are inserted as plain text and are never parsed as MiniMessage.
+ */
+public final class MessageTemplate {
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\{([a-z0-9_-]+)}");
+
+    private final Component component;
+    private final Slot slot;
+
+    private MessageTemplate(Component component, Slot slot) {
+        this.component = component;
+        this.slot = slot;
+    }
+
+    public static MessageTemplate compile(MiniMessage miniMessage, String raw) {
+        Component component = miniMessage.deserialize(raw);
+        return new MessageTemplate(component, plan(component));
+    }
+
+    /**
+     * @param placeholders alternating placeholder names (without braces) and values.
+     */
+    public Component render(Object... placeholders) {
+        if (slot == null || placeholders.length == 0) {
+            return component;
+        }
+        return render(component, slot, placeholders);
+    }
+
+    private static Component render(Component node, Slot slot, Object[] placeholders) {
+        Component result = node;
+        if (slot.parts != null) {
+            result = ((TextComponent) node).content(fill(slot.parts, placeholders));
+        }
+        if (slot.childIndexes.length > 0) {
+            List<Component> children = new ArrayList<>(node.children());
+            for (int i = 0; i < slot.childIndexes.length; i++) {
+                int index = slot.childIndexes[i];
+                children.set(index, render(children.get(index), slot.children[i], placeholders));
+            }
+            result = result.children(children);
+        }
+        return result;
+    }
+
+    private static String fill(String[] parts, Object[] placeholders) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < parts.length; i++) {
+            if ((i & 1) == 0) {
+                builder.append(parts[i]);
+                continue;
+            }
+            Object value = lookup(parts[i], placeholders);
+            if (value != null) {
+                builder.append(value);
+            } else {
+                builder.append('{').append(parts[i]).append('}');
+            }
+        }
+        return builder.toString();
+    }
+
+    private static Object lookup(String name, Object[] placeholders) {
+        for (int i = 0; i + 1 < placeholders.length; i += 2) {
+            if (name.equals(placeholders[i])) {
+                return String.valueOf(placeholders[i + 1]);
+            }
+        }
+        return null;
+    }
+
+    private static Slot plan(Component node) {
+        String[] parts = node instanceof TextComponent text ? split(text.content()) : null;
+        List<Component> children = node.children();
+        List<Integer> indexes = new ArrayList<>();
+        List<Slot> slots = new ArrayList<>();
+        for (int i = 0; i < children.size(); i++) {
+            Slot child = plan(children.get(i));
+            if (child != null) {
+                indexes.add(i);
+                slots.add(child);
+            }
+        }
+        if (parts == null && slots.isEmpty()) {
+            return null;
+        }
+        return new Slot(parts, indexes.stream().mapToInt(Integer::intValue).toArray(), slots.toArray(new Slot[0]));
+    }
+
+    /**
+     * @return literal and placeholder-name parts alternating, starting with a literal; null if there are no placeholders.
+     */
+    private static String[] split(String content) {
+        Matcher matcher = PLACEHOLDER.matcher(content);
+        List<String> parts = new ArrayList<>();
+        int last = 0;
+        while (matcher.find()) {
+            parts.add(content.substring(last, matcher.start()));
+            parts.add(matcher.group(1));
+            last = matcher.end();
+        }
+        if (parts.isEmpty()) {
+            return null;
+        }
+        parts.add(content.substring(last));
+        return parts.toArray(new String[0]);
+    }
+
+    private record Slot(String[] parts, int[] childIndexes, Slot[] children) {
+    }
+}
@@ -0,0 +1,126 @@
+package me.PWRazer.keKWhiteList;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.function.LongSupplier;
+
+/**
+ * Serves {@link WhitelistMetrics} in the Prometheus text format on {@code /metrics}.
+ * Off unless {@code metrics-port} is set; binds to loopback by default.
+ */
+public class MetricsServer {
+    private static final String PREFIX = "kekwhitelist_";
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final WhitelistMetrics metrics;
+    private final LongSupplier whitelistSize;
+    private final Logger logger;
+    private HttpServer server;
+
+    public MetricsServer(WhitelistMetrics metrics, LongSupplier whitelistSize, Logger logger) {
+        this.metrics = metrics;
+        this.whitelistSize = whitelistSize;
+        this.logger = logger;
+    }
+
+    public synchronized void start(String host, int port) {
+        try {
+            server = HttpServer.create(new InetSocketAddress(host, port), 0);
+            server.setExecutor(Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "KeKWhiteList-Metrics");
+                thread.setDaemon(true);
+                return thread;
+            }));
+            server.createContext("/metrics", this::handle);
+            server.start();
+            logger.info("Metrics endpoint listening on http://{}:{}/metrics", host, port);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Failed to start metrics endpoint on {}:{}", host, port, e);
+            server = null;
+        }
+    }
+
+    public synchronized void stop() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = render().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    String render() {
+        StringBuilder out = new StringBuilder(2048);
+        type(out, "logins_total", "counter");
+        sample(out, "logins_total{result=\"allowed\"}", metrics.getAllowedLogins());
+        sample(out, "logins_total{result=\"denied\"}", metrics.getDeniedLogins());
+        counter(out, "bypassed_logins_total", metrics.getBypassedLogins());
+        counter(out, "fallback_decisions_total", metrics.getFallbackDecisions());
+        counter(out, "throttled_logins_total", metrics.getThrottledLogins());
+        counter(out, "audit_dropped_total", metrics.getAuditDrops());
+        summary(out, "login_decision_seconds", metrics.getDecisionLatency());
+        counter(out, "saves_total", metrics.getSaves());
+        counter(out, "save_failures_total", metrics.getSaveFailures());
+        summary(out, "save_seconds", metrics.getSaveLatency());
+        counter(out, "reloads_total", metrics.getReloads());
+        summary(out, "reload_seconds", metrics.getReloadLatency());
+        gauge(out, "login_queue_depth", metrics.getLoginQueueDepth());
+        gauge(out, "pending_changes", metrics.getPendingChanges());
+        gauge(out, "journal_bytes", metrics.getJournalBytes());
+        gauge(out, "entries", whitelistSize.getAsLong());
+        return out.toString();
+    }
+
+    private static void counter(StringBuilder out, String name, long value) {
+        type(out, name, "counter");
+        sample(out, name, value);
+    }
+
+    private static void gauge(StringBuilder out, String name, long value) {
+        type(out, name, "gauge");
+        sample(out, name, value);
+    }
+
+    private static void summary(StringBuilder out, String name, LatencyHistogram histogram) {
+        type(out, name, "summary");
+        for (double quantile : QUANTILES) {
+            out.append(PREFIX).append(name).append("{quantile=\"").append(quantile).append("\"} ")
+                    .append(seconds(histogram.percentileNanos(quantile))).append('\n');
+        }
+        out.append(PREFIX).append(name).append("_sum ").append(seconds(histogram.sumNanos())).append('\n');
+        out.append(PREFIX).append(name).append("_count ").append(histogram.count()).append('\n');
+    }
+
+    private static void type(StringBuilder out, String name, String type) {
+        out.append("# TYPE ").append(PREFIX).append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, long value) {
+        out.append(PREFIX).append(name).append(' ').append(value).append('\n');
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.9f", nanos / 1e9);
+    }
+}
@@ -0,0 +1,81 @@
+package me.PWRazer.keKWhiteList;
+
+import java.util.Collection;
+
+/**
+ * Bloom filter over whitelisted names, about 1% false positives at 10 bits per entry.
+ * Hashing lowercases ASCII on the fly, so raw usernames can be tested without allocating a normalized copy.
+ * Names with non-ASCII characters are never rejected, which keeps the filter free of false negatives.
+ */
+final class NameBloomFilter {
+    private static final int BITS_PER_ENTRY = 10;
+    private static final int HASH_COUNT = 7;
+    private static final long NON_ASCII = 0;
+
+    private final long[] bits;
+    private final int bitCount;
+    private final boolean passAll;
+
+    NameBloomFilter(Collection<String> lowercaseNames) {
+        int bitCount = Math.max(64, lowercaseNames.size() * BITS_PER_ENTRY);
+        this.bits = new long[(bitCount + 63) >>> 6];
+        this.bitCount = bits.length << 6;
+        boolean passAll = false;
+        for (String name : lowercaseNames) {
+            long hash = hash(name);
+            if (hash == NON_ASCII) {
+                passAll = true;
+                break;
+            }
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 0; i < HASH_COUNT; i++) {
+                int bit = Math.floorMod(h1 + i * h2, this.bitCount);
+                bits[bit >>> 6] |= 1L << bit;
+            }
+        }
+        this.passAll = passAll;
+    }
+
+    /**
+     * @return false only if the name is certainly not in the set; case-insensitive.
+     */
+    boolean mightContain(String username) {
+        if (passAll) {
+            return true;
+        }
+        long hash = hash(username);
+        if (hash == NON_ASCII) {
+            return true;
+        }
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < HASH_COUNT; i++) {
+            int bit = Math.floorMod(h1 + i * h2, bitCount);
+            if ((bits[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long hash(String value) {
+        long h = 0xCBF29CE484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                return NON_ASCII;
+            }
+            if (c >= 'A' && c <= 'Z') {
+                c += 'a' - 'A';
+            }
+            h = (h ^ c) * 0x100000001B3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h == NON_ASCII ? 1 : h;
+    }
+}
@@ -0,0 +1,52 @@
+package me.PWRazer.keKWhiteList;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Predicate;
+
+/**
+ * Online players by lowercase name, kept up to date from login and disconnect events, so
+ * tab completion can walk a prefix range instead of scanning and lowercasing every player.
+ */
+public class OnlinePlayerIndex {
+    private final ConcurrentSkipListMap<String, Entry> players = new ConcurrentSkipListMap<>();
+
+    public void add(String username, UUID uuid) {
+        players.put(WhitelistManager.normalize(username), new Entry(username, uuid));
+    }
+
+    public void remove(String username, UUID uuid) {
+        String key = WhitelistManager.normalize(username);
+        Entry entry = players.get(key);
+        if (entry != null && entry.uuid().equals(uuid)) {
+            players.remove(key, entry);
+        }
+    }
+
+    /**
+     * @return up to {@code limit} online names starting with the lowercase {@code prefix}, in order,
+     * skipping names rejected by {@code filter}.
+     */
+    public List<String> complete(String prefix, int limit, Predicate<String> filter) {
+        ConcurrentNavigableMap<String, Entry> range = prefix.isEmpty()
+                ? players
+                : players.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+        List<String> result = new ArrayList<>(Math.min(limit, 16));
+        for (Map.Entry<String, Entry> entry : range.entrySet()) {
+            if (result.size() >= limit) {
+                break;
+            }
+            if (filter.test(entry.getKey())) {
+                result.add(entry.getValue().username());
+            }
+        }
+        return result;
+    }
+
+    private record Entry(String username, UUID uuid) {
+    }
+}
@@ -0,0 +1,54 @@
+package me.PWRazer.keKWhiteList;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Sorted array of lowercase names for paging and prefix lookups. Built once per snapshot;
+ * a page or a prefix range costs a binary search plus the size of the slice.
+ */
+public final class SortedNameIndex {
+    private final String[] names;
+
+    SortedNameIndex(Collection<String> lowercaseNames) {
+        this.names = lowercaseNames.toArray(new String[0]);
+        Arrays.sort(this.names);
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * @return index of the first name that is not less than {@code prefix}.
+     */
+    public int lowerBound(String prefix) {
+        int low = 0;
+        int high = names.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (names[mid].compareTo(prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return index just past the last name starting with {@code prefix}.
+     */
+    public int prefixEnd(String prefix) {
+        return prefix.isEmpty() ? names.length : lowerBound(prefix + Character.MAX_VALUE);
+    }
+
+    /**
+     * @return unmodifiable view of names {@code [from, to)}; no copy is made.
+     */
+    public List<String> slice(int from, int to) {
+        return Collections.unmodifiableList(Arrays.asList(names).subList(from, to));
+    }
+}
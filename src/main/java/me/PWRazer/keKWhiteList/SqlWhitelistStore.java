@@ -0,0 +1,518 @@
+package me.PWRazer.keKWhiteList;
+
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Whitelist shared by several proxies through a JDBC database.
+ *
+ * <p>{@code <prefix>entries} holds the current list; every write also appends to {@code <prefix>changes},
+ * whose id only grows. Each proxy keeps its own snapshot in memory and {@link #poll() polls} the change
+ * table for ids above the last one it has seen, so logins never wait for the database and a sync
+ * only transfers what changed.</p>
+ *
+ * <p>Ids are assigned at insert but become visible at commit, so a slower transaction can show up
+ * below ids already seen. Such holes are remembered for {@link #GAP_TIMEOUT_NANOS} and re-queried;
+ * a late change is resolved against the entries table instead of being replayed out of order.
+ * A hole still open after the timeout, or more than {@link #MAX_GAPS} open holes, cannot be told apart
+ * from a change that will never be seen; the store then asks for a full reload
+ * ({@link #isResyncRequired()}) rather than silently dropping ids. A rolled-back insert also leaves a
+ * hole, so a rollback costs one reload a minute later.</p>
+ *
+ * <p>No JDBC driver ships with the plugin, and Velocity's plugin class loader does not see drivers
+ * bundled by other plugins. The driver jar goes into the {@code drivers} directory next to config.yml;
+ * it is loaded from there and found through its service entry, or by {@code sql-driver} if that is set.</p>
+ */
+public class SqlWhitelistStore implements WhitelistStore {
+    private static final Pattern VALID_PREFIX = Pattern.compile("[A-Za-z0-9_]{0,32}");
+    private static final String NAME_KEY_PREFIX = "n:";
+    private static final String UUID_KEY_PREFIX = "u:";
+    private static final int OP_ADD = 1;
+    private static final int OP_REMOVE = 2;
+    private static final int POLL_LIMIT = 10_000;
+    private static final int MAX_GAPS = 1000;
+    private static final long GAP_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(60);
+    private static final long CHANGE_RETENTION_MILLIS = TimeUnit.DAYS.toMillis(1);
+    private static final long PRUNE_INTERVAL_NANOS = TimeUnit.HOURS.toNanos(1);
+
+    private final String url;
+    private final Properties properties = new Properties();
+    private final String driverClass;
+    private final Path driverDirectory;
+    private final String entriesTable;
+    private final String changesTable;
+    private final Logger logger;
+    private final long gapTimeoutNanos;
+    private Connection connection;
+    private URLClassLoader driverLoader;
+    private long lastSeenId;
+    private final Map<Long, Long> gaps = new LinkedHashMap<>();
+    private boolean resyncRequired;
+    private long lastPrune = System.nanoTime();
+
+    public SqlWhitelistStore(String url, String user, String password, String driverClass, Path driverDirectory,
+                             String tablePrefix, Logger logger) {
+        this(url, user, password, driverClass, driverDirectory, tablePrefix, logger, GAP_TIMEOUT_NANOS);
+    }
+
+    SqlWhitelistStore(String url, String user, String password, String driverClass, Path driverDirectory,
+                      String tablePrefix, Logger logger, long gapTimeoutNanos) {
+        if (!VALID_PREFIX.matcher(tablePrefix).matches()) {
+            throw new IllegalArgumentException("Invalid table prefix: " + tablePrefix);
+        }
+        this.url = url;
+        if (user != null) {
+            properties.setProperty("user", user);
+        }
+        if (password != null) {
+            properties.setProperty("password", password);
+        }
+        this.driverClass = driverClass;
+        this.driverDirectory = driverDirectory;
+        this.entriesTable = tablePrefix + "entries";
+        this.changesTable = tablePrefix + "changes";
+        this.logger = logger;
+        this.gapTimeoutNanos = gapTimeoutNanos;
+    }
+
+    @Override
+    public synchronized boolean exists() {
+        // One row is enough; the driver caps the result instead of dialect-specific LIMIT syntax, as in poll()
+        try (Statement statement = connection().createStatement()) {
+            statement.setMaxRows(1);
+            try (ResultSet rows = statement.executeQuery("SELECT 1 FROM " + changesTable)) {
+                return rows.next();
+            }
+        } catch (SQLException | IOException e) {
+            logger.error("Failed to query {}", changesTable, e);
+            // Treat an unreachable database as existing, so config.yml is never migrated over real data
+            return true;
+        }
+    }
+
+    @Override
+    public synchronized WhitelistSnapshot load() throws IOException {
+        try {
+            Connection db = connection();
+            long maxId;
+            try (Statement statement = db.createStatement();
+                 ResultSet rows = statement.executeQuery("SELECT MAX(id) FROM " + changesTable)) {
+                maxId = rows.next() ? rows.getLong(1) : 0;
+            }
+            List<String> names = new ArrayList<>();
+            Map<UUID, String> uuids = new HashMap<>();
+            try (Statement statement = db.createStatement();
+                 ResultSet rows = statement.executeQuery("SELECT uuid, name FROM " + entriesTable)) {
+                while (rows.next()) {
+                    String uuid = rows.getString(1);
+                    if (uuid == null) {
+                        names.add(rows.getString(2));
+                    } else {
+                        uuids.put(UUID.fromString(uuid), rows.getString(2));
+                    }
+                }
+            }
+            lastSeenId = maxId;
+            gaps.clear();
+            resyncRequired = false;
+            return WhitelistSnapshot.of(names, uuids);
+        } catch (SQLException | IllegalArgumentException e) {
+            throw new IOException("Failed to load whitelist from " + entriesTable, e);
+        }
+    }
+
+    @Override
+    public synchronized void write(WhitelistSnapshot snapshot, List<WhitelistChange> changes) throws IOException {
+        if (changes.isEmpty()) {
+            return;
+        }
+        Connection db = connection();
+        try {
+            db.setAutoCommit(false);
+            try (PreparedStatement delete = db.prepareStatement("DELETE FROM " + entriesTable + " WHERE entry_key = ?");
+                 PreparedStatement insert = db.prepareStatement(
+                         "INSERT INTO " + entriesTable + " (entry_key, uuid, name) VALUES (?, ?, ?)");
+                 PreparedStatement log = db.prepareStatement(
+                         "INSERT INTO " + changesTable + " (entry_key, op, uuid, name, changed_at) VALUES (?, ?, ?, ?, ?)")) {
+                long now = System.currentTimeMillis();
+                for (WhitelistChange change : changes) {
+                    String key = key(change);
+                    String uuid = change.uuid() != null ? change.uuid().toString() : null;
+                    boolean add = change.type() == WhitelistChange.Type.ADD;
+                    delete.setString(1, key);
+                    delete.addBatch();
+                    if (add) {
+                        insert.setString(1, key);
+                        insert.setString(2, uuid);
+                        insert.setString(3, change.name());
+                        insert.addBatch();
+                    }
+                    log.setString(1, key);
+                    log.setInt(2, add ? OP_ADD : OP_REMOVE);
+                    log.setString(3, uuid);
+                    log.setString(4, change.name());
+                    log.setLong(5, now);
+                    log.addBatch();
+                }
+                // Deletes first: an entry re-added in the same batch must not hit the primary key
+                delete.executeBatch();
+                insert.executeBatch();
+                log.executeBatch();
+            }
+            db.commit();
+        } catch (SQLException e) {
+            rollback(db);
+            throw new IOException("Failed to write whitelist changes to " + changesTable, e);
+        } finally {
+            restoreAutoCommit(db);
+        }
+    }
+
+    @Override
+    public synchronized void rewrite(WhitelistSnapshot snapshot) throws IOException {
+        Set<String> stored = new HashSet<>();
+        try (Statement statement = connection().createStatement();
+             ResultSet rows = statement.executeQuery("SELECT entry_key FROM " + entriesTable)) {
+            while (rows.next()) {
+                stored.add(rows.getString(1));
+            }
+        } catch (SQLException e) {
+            throw new IOException("Failed to read " + entriesTable, e);
+        }
+        List<WhitelistChange> changes = new ArrayList<>();
+        for (String name : snapshot.names()) {
+            if (!stored.remove(NAME_KEY_PREFIX + name)) {
+                changes.add(WhitelistChange.ofName(WhitelistChange.Type.ADD, name));
+            }
+        }
+        snapshot.uuidEntries().forEach((uuid, name) -> {
+            if (!stored.remove(UUID_KEY_PREFIX + uuid)) {
+                changes.add(WhitelistChange.ofUuid(WhitelistChange.Type.ADD, uuid, name));
+            }
+        });
+        for (String key : stored) {
+            changes.add(key.startsWith(UUID_KEY_PREFIX)
+                    ? WhitelistChange.ofUuid(WhitelistChange.Type.REMOVE, UUID.fromString(key.substring(UUID_KEY_PREFIX.length())), null)
+                    : WhitelistChange.ofName(WhitelistChange.Type.REMOVE, key.substring(NAME_KEY_PREFIX.length())));
+        }
+        write(snapshot, changes);
+    }
+
+    /**
+     * @return changes committed by other proxies (or by this one) since the previous call, in order.
+     * Incomplete if {@link #isResyncRequired()} is true afterwards.
+     */
+    @Override
+    public synchronized List<WhitelistChange> poll() throws IOException {
+        List<WhitelistChange> result = new ArrayList<>();
+        if (resyncRequired) {
+            return result;
+        }
+        try {
+            Connection db = connection();
+            Set<String> lateKeys = new HashSet<>();
+            if (!gaps.isEmpty() && !pollGaps(db, lateKeys)) {
+                return result;
+            }
+            try (PreparedStatement statement = db.prepareStatement("SELECT id, entry_key, op, uuid, name FROM "
+                    + changesTable + " WHERE id > ? ORDER BY id")) {
+                statement.setLong(1, lastSeenId);
+                statement.setMaxRows(POLL_LIMIT);
+                try (ResultSet rows = statement.executeQuery()) {
+                    long now = System.nanoTime();
+                    while (rows.next()) {
+                        long id = rows.getLong(1);
+                        if (gaps.size() + (id - lastSeenId - 1) > MAX_GAPS) {
+                            // Holes beyond the limit would be forgotten along with any late change in them
+                            logger.warn("More than {} missing ids in {}, a full reload is needed.", MAX_GAPS, changesTable);
+                            resyncRequired = true;
+                            return result;
+                        }
+                        for (long missing = lastSeenId + 1; missing < id; missing++) {
+                            gaps.put(missing, now);
+                        }
+                        lastSeenId = id;
+                        result.add(toChange(rows.getInt(3), rows.getString(4), rows.getString(5)));
+                        lateKeys.remove(rows.getString(2));
+                    }
+                }
+            }
+            for (String key : lateKeys) {
+                result.add(currentState(db, key));
+            }
+            pruneIfDue(db);
+        } catch (SQLException | IllegalArgumentException e) {
+            throw new IOException("Failed to poll " + changesTable, e);
+        }
+        return result;
+    }
+
+    /**
+     * Re-queries open holes, then gives up on any still open after the timeout.
+     *
+     * @return false if a hole timed out and a full reload is needed.
+     */
+    private boolean pollGaps(Connection db, Set<String> lateKeys) throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT id, entry_key FROM ").append(changesTable).append(" WHERE id IN (");
+        for (int i = 0; i < gaps.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(')');
+        try (PreparedStatement statement = db.prepareStatement(sql.toString())) {
+            int index = 1;
+            for (Long id : gaps.keySet()) {
+                statement.setLong(index++, id);
+            }
+            try (ResultSet rows = statement.executeQuery()) {
+                while (rows.next()) {
+                    gaps.remove(rows.getLong(1));
+                    lateKeys.add(rows.getString(2));
+                }
+            }
+        }
+        long now = System.nanoTime();
+        for (Map.Entry<Long, Long> gap : gaps.entrySet()) {
+            if (now - gap.getValue() > gapTimeoutNanos) {
+                // Rolled back, or committed too late to be told from a lost change
+                logger.warn("Id {} in {} is still missing after {} s, a full reload is needed.", gap.getKey(),
+                        changesTable, TimeUnit.NANOSECONDS.toSeconds(gapTimeoutNanos));
+                resyncRequired = true;
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A change that committed late may be older than what was already applied for the same entry,
+     * so the entry's current row decides instead.
+     */
+    private WhitelistChange currentState(Connection db, String key) throws SQLException {
+        try (PreparedStatement statement = db.prepareStatement("SELECT uuid, name FROM " + entriesTable + " WHERE entry_key = ?")) {
+            statement.setString(1, key);
+            try (ResultSet rows = statement.executeQuery()) {
+                if (rows.next()) {
+                    return toChange(OP_ADD, rows.getString(1), rows.getString(2));
+                }
+            }
+        }
+        if (key.startsWith(UUID_KEY_PREFIX)) {
+            return toChange(OP_REMOVE, key.substring(UUID_KEY_PREFIX.length()), null);
+        }
+        return toChange(OP_REMOVE, null, key.substring(NAME_KEY_PREFIX.length()));
+    }
+
+    @Override
+    public synchronized boolean isResyncRequired() {
+        return resyncRequired;
+    }
+
+    private void pruneIfDue(Connection db) throws SQLException {
+        if (System.nanoTime() - lastPrune < PRUNE_INTERVAL_NANOS) {
+            return;
+        }
+        lastPrune = System.nanoTime();
+        int pruned = prune(db, System.currentTimeMillis() - CHANGE_RETENTION_MILLIS);
+        if (pruned > 0) {
+            logger.info("Pruned {} old rows from {}.", pruned, changesTable);
+        }
+    }
+
+    /**
+     * Deletes change rows written before {@code cutoffMillis}. Runs on its own from {@link #poll()};
+     * callable directly so the retention can be checked without waiting for it.
+     *
+     * @return number of deleted rows.
+     */
+    synchronized int pruneOlderThan(long cutoffMillis) throws IOException {
+        try {
+            return prune(connection(), cutoffMillis);
+        } catch (SQLException e) {
+            throw new IOException("Failed to prune " + changesTable, e);
+        }
+    }
+
+    private int prune(Connection db, long cutoffMillis) throws SQLException {
+        // Keep the newest row, so the id sequence and exists() survive a quiet period
+        try (PreparedStatement statement = db.prepareStatement("DELETE FROM " + changesTable
+                + " WHERE changed_at < ? AND id < ?")) {
+            statement.setLong(1, cutoffMillis);
+            statement.setLong(2, lastSeenId);
+            return statement.executeUpdate();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            if (connection != null) {
+                connection.close();
+            }
+        } catch (SQLException e) {
+            throw new IOException("Failed to close database connection", e);
+        } finally {
+            connection = null;
+            if (driverLoader != null) {
+                driverLoader.close();
+                driverLoader = null;
+            }
+        }
+    }
+
+    private Connection connection() throws IOException {
+        try {
+            if (connection != null && connection.isValid(2)) {
+                return connection;
+            }
+            if (connection != null) {
+                logger.warn("Database connection lost, reconnecting.");
+                connection.close();
+                connection = null;
+            }
+            Connection db = connect();
+            if (db == null) {
+                throw new IOException("No JDBC driver accepts " + url + "; put the driver jar into " + driverDirectory);
+            }
+            createTables(db);
+            connection = db;
+            return db;
+        } catch (SQLException | ReflectiveOperationException | ClassCastException e) {
+            throw new IOException("Failed to connect to " + url, e);
+        }
+    }
+
+    /**
+     * Drivers are instantiated and asked directly: DriverManager only hands out drivers visible to the
+     * caller's class loader, which the jars in {@link #driverDirectory} are not.
+     *
+     * @return the connection, or null if no driver accepts the URL.
+     */
+    private Connection connect() throws IOException, SQLException, ReflectiveOperationException {
+        ClassLoader loader = driverLoader();
+        if (driverClass != null && !driverClass.isEmpty()) {
+            Driver driver = (Driver) Class.forName(driverClass, true, loader).getDeclaredConstructor().newInstance();
+            return driver.connect(url, properties);
+        }
+        for (Driver driver : ServiceLoader.load(Driver.class, loader)) {
+            if (driver.acceptsURL(url)) {
+                return driver.connect(url, properties);
+            }
+        }
+        Driver driver;
+        try {
+            driver = DriverManager.getDriver(url);
+        } catch (SQLException e) {
+            // "No suitable driver": reported by the caller together with where the driver should go
+            return null;
+        }
+        return driver.connect(url, properties);
+    }
+
+    private ClassLoader driverLoader() throws IOException {
+        if (driverLoader != null) {
+            return driverLoader;
+        }
+        List<URL> jars = new ArrayList<>();
+        if (Files.isDirectory(driverDirectory)) {
+            try (Stream<Path> files = Files.list(driverDirectory)) {
+                for (Path file : files.filter(path -> path.toString().endsWith(".jar")).sorted().toList()) {
+                    jars.add(toUrl(file));
+                }
+            }
+        }
+        if (jars.isEmpty()) {
+            return SqlWhitelistStore.class.getClassLoader();
+        }
+        logger.info("Loading JDBC drivers from {}", jars);
+        driverLoader = new URLClassLoader(jars.toArray(URL[]::new), SqlWhitelistStore.class.getClassLoader());
+        return driverLoader;
+    }
+
+    private static URL toUrl(Path file) throws IOException {
+        try {
+            return file.toUri().toURL();
+        } catch (MalformedURLException e) {
+            throw new IOException("Invalid driver path " + file, e);
+        }
+    }
+
+    private void createTables(Connection db) throws SQLException {
+        db.setAutoCommit(true);
+        try (Statement statement = db.createStatement()) {
+            statement.executeUpdate("CREATE TABLE IF NOT EXISTS " + entriesTable
+                    + " (entry_key VARCHAR(64) NOT NULL PRIMARY KEY, uuid CHAR(36), name VARCHAR(64))");
+            statement.executeUpdate("CREATE TABLE IF NOT EXISTS " + changesTable + " (id " + identityColumn()
+                    + ", entry_key VARCHAR(64) NOT NULL, op SMALLINT NOT NULL, uuid CHAR(36), name VARCHAR(64),"
+                    + " changed_at BIGINT NOT NULL)");
+        }
+    }
+
+    private String identityColumn() {
+        String lower = url.toLowerCase();
+        if (lower.startsWith("jdbc:sqlite:")) {
+            return "INTEGER PRIMARY KEY AUTOINCREMENT";
+        }
+        if (lower.startsWith("jdbc:mysql:") || lower.startsWith("jdbc:mariadb:")) {
+            return "BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY";
+        }
+        // H2, PostgreSQL and other SQL:2003 databases
+        return "BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY";
+    }
+
+    private static String key(WhitelistChange change) {
+        return change.uuid() != null ? UUID_KEY_PREFIX + change.uuid() : NAME_KEY_PREFIX + change.name();
+    }
+
+    private static WhitelistChange toChange(int op, String uuid, String name) {
+        WhitelistChange.Type type = op == OP_ADD ? WhitelistChange.Type.ADD : WhitelistChange.Type.REMOVE;
+        if (uuid != null) {
+            return WhitelistChange.ofUuid(type, UUID.fromString(uuid), name);
+        }
+        return WhitelistChange.ofName(type, name);
+    }
+
+    /**
+     * Reads must run in auto-commit mode: an open transaction could keep showing a snapshot without newer changes.
+     */
+    private void restoreAutoCommit(Connection db) {
+        try {
+            db.setAutoCommit(true);
+        } catch (SQLException e) {
+            logger.warn("Failed to restore auto-commit.", e);
+        }
+    }
+
+    private void rollback(Connection db) {
+        try {
+            db.rollback();
+        } catch (SQLException e) {
+            logger.warn("Rollback failed.", e);
+        }
+    }
+}
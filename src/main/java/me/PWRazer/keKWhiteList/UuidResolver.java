@@ -0,0 +1,18 @@
+package me.PWRazer.keKWhiteList;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Resolves a username to the UUID of the account, for whitelisting players who have not joined yet.
+ * Implementations must not block the calling thread.
+ */
+@FunctionalInterface
+public interface UuidResolver {
+
+    /**
+     * @return a future with the UUID, or an empty optional if the name is unknown.
+     */
+    CompletableFuture<Optional<UUID>> resolve(String username);
+}
@@ -0,0 +1,30 @@
+package me.PWRazer.keKWhiteList;
+
+import java.util.UUID;
+
+/**
+ * One pending add or remove. For name entries {@code uuid} is null; for UUID entries
+ * {@code name} is the display name (null on removal).
+ */
+public record WhitelistChange(Type type, String name, UUID uuid) {
+
+    public static WhitelistChange ofName(Type type, String name) {
+        return new WhitelistChange(type, name, null);
+    }
+
+    public static WhitelistChange ofUuid(Type type, UUID uuid, String displayName) {
+        return new WhitelistChange(type, displayName, uuid);
+    }
+
+    /**
+     * @return the key under which pending changes to the same entry are coalesced.
+     */
+    public Object key() {
+        return uuid != null ? uuid : name;
+    }
+
+    public enum Type {
+        ADD,
+        REMOVE
+    }
+}
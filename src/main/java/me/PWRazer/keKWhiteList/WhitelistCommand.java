@@ -2,12 +2,27 @@ package me.PWRazer.keKWhiteList;
 
 import com.velocitypowered.api.command.CommandSource;
 import com.velocitypowered.api.command.SimpleCommand;
+import com.velocitypowered.api.proxy.Player;
 import com.velocitypowered.api.proxy.ProxyServer;
 import net.kyori.adventure.text.Component;
-import net.kyori.adventure.text.minimessage.MiniMessage;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 public class WhitelistCommand implements SimpleCommand {
@@ -16,7 +31,20 @@ public class WhitelistCommand implements SimpleCommand {
     private final ConfigManager configManager;
     private final WhitelistManager whitelistManager;
     private final LanguageManager languageManager;
-    private final MiniMessage miniMessage = MiniMessage.miniMessage();
+    // Weak keys: a player's entry goes away with the disconnected player object
+    private final Map<CommandSource, LastSuggestion> lastSuggestions = Collections.synchronizedMap(new WeakHashMap<>());
+    private static final List<String> SUBCOMMANDS = List.of("add", "schedule", "remove", "addip", "removeip", "on", "off", "list", "search", "reload", "import", "export", "stats", "group", "history");
+    private static final List<String> GROUP_ACTIONS = List.of("list", "create", "delete", "members", "add", "remove", "assign", "unassign");
+    private static final int PAGE_SIZE = 50;
+    private static final int MAX_SUGGESTIONS = 50;
+    private static final int HISTORY_LIMIT = 10;
+    // A client repeating the same completion gets the last result for this long
+    private static final long SUGGESTION_REUSE_NANOS = TimeUnit.SECONDS.toNanos(1);
+    // Requests closer together than this get the last result even if the arguments changed; a person
+    // types slower, a client flooding completions does not
+    private static final long SUGGESTION_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final DateTimeFormatter HISTORY_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")
+            .withZone(ZoneId.systemDefault());
 
     public WhitelistCommand(KeKWhiteList plugin, ProxyServer server, ConfigManager configManager,
                             WhitelistManager whitelistManager, LanguageManager languageManager) {
@@ -33,133 +61,301 @@ public class WhitelistCommand implements SimpleCommand {
         String[] args = invocation.arguments();
 
         if (args.length == 0) {
-            source.sendMessage(languageManager.getMessage("usage"));
+            source.sendMessage(message(source, "usage"));
             return;
         }
 
         switch (args[0].toLowerCase()) {
             case "add":
                 if (!source.hasPermission("kekwhitelist.add")) {
-                    source.sendMessage(languageManager.getMessage("no-permission"));
+                    source.sendMessage(message(source, "no-permission"));
                     return;
                 }
-                if (args.length != 2) {
-                    source.sendMessage(languageManager.getMessage("add-usage"));
+                if (args.length != 2 && args.length != 3) {
+                    source.sendMessage(message(source, "add-usage"));
                     return;
                 }
                 String playerToAdd = args[1].toLowerCase();
                 if (!isValidUsername(playerToAdd)) {
-                    source.sendMessage(languageManager.getMessage("invalid-username"));
+                    source.sendMessage(message(source, "invalid-username"));
                     return;
                 }
-                if (whitelistManager.isWhitelisted(playerToAdd)) {
-                    source.sendMessage(languageManager.getMessage("already-whitelisted")
-                            .replaceText(builder -> builder.matchLiteral("{player}").replacement(args[1])));
+                String duration = args.length == 3 ? args[2] : null;
+                long durationMillis = duration != null ? ExpiryScheduler.parseDuration(duration) : 0;
+                if (durationMillis < 0) {
+                    source.sendMessage(message(source, "invalid-duration"));
                     return;
                 }
-                whitelistManager.addPlayer(playerToAdd);
-                configManager.saveConfig();
-                source.sendMessage(languageManager.getMessage("added")
-                        .replaceText(builder -> builder.matchLiteral("{player}").replacement(args[1])));
+                if (configManager.isUuidMode()) {
+                    addByUuid(source, args[1], duration, durationMillis);
+                    return;
+                }
+                finishAdd(source, args[1], null, whitelistManager.addPlayer(playerToAdd), duration, durationMillis);
+                break;
+
+            case "schedule":
+                if (!source.hasPermission("kekwhitelist.add")) {
+                    source.sendMessage(message(source, "no-permission"));
+                    return;
+                }
+                if (args.length != 4) {
+                    source.sendMessage(message(source, "schedule-usage"));
+                    return;
+                }
+                if (!isValidUsername(args[1])) {
+                    source.sendMessage(message(source, "invalid-username"));
+                    return;
+                }
+                long delayMillis = ExpiryScheduler.parseDuration(args[2]);
+                long lengthMillis = ExpiryScheduler.parseDuration(args[3]);
+                if (delayMillis < 0 || lengthMillis < 0) {
+                    source.sendMessage(message(source, "invalid-duration"));
+                    return;
+                }
+                schedule(source, args[1], args[2], delayMillis, args[3], lengthMillis);
                 break;
 
             case "remove":
                 if (!source.hasPermission("kekwhitelist.remove")) {
-                    source.sendMessage(languageManager.getMessage("no-permission"));
+                    source.sendMessage(message(source, "no-permission"));
                     return;
                 }
                 if (args.length != 2) {
-                    source.sendMessage(languageManager.getMessage("remove-usage"));
+                    source.sendMessage(message(source, "remove-usage"));
                     return;
                 }
                 String playerToRemove = args[1].toLowerCase();
                 boolean removed = whitelistManager.removePlayer(playerToRemove);
+                audit(source, "remove", playerToRemove, removed ? "removed" : "not-whitelisted");
                 if (!removed) {
-                    source.sendMessage(languageManager.getMessage("not-whitelisted")
-                            .replaceText(builder -> builder.matchLiteral("{player}").replacement(args[1])));
+                    source.sendMessage(message(source, "not-whitelisted", "player", args[1]));
                     return;
                 }
                 configManager.saveConfig();
-                source.sendMessage(languageManager.getMessage("removed")
-                        .replaceText(builder -> builder.matchLiteral("{player}").replacement(args[1])));
+                source.sendMessage(message(source, "removed", "player", args[1]));
+                break;
+
+            case "addip":
+            case "removeip":
+                boolean addIp = args[0].equalsIgnoreCase("addip");
+                if (!source.hasPermission(addIp ? "kekwhitelist.add" : "kekwhitelist.remove")) {
+                    source.sendMessage(message(source, "no-permission"));
+                    return;
+                }
+                if (args.length != 2) {
+                    source.sendMessage(message(source, addIp ? "addip-usage" : "removeip-usage"));
+                    return;
+                }
+                CidrRange range = CidrRange.parse(args[1]);
+                if (range == null) {
+                    source.sendMessage(message(source, "invalid-cidr"));
+                    return;
+                }
+                boolean ipChanged = addIp ? whitelistManager.addIpRule(range) : whitelistManager.removeIpRule(range);
+                if (ipChanged) {
+                    configManager.saveIpRules();
+                }
+                audit(source, args[0].toLowerCase(), range.toString(), ipChanged ? "changed" : "unchanged");
+                source.sendMessage(message(source, addIp ? (ipChanged ? "ip-added" : "ip-already-whitelisted")
+                        : (ipChanged ? "ip-removed" : "ip-not-whitelisted"), "range", range));
                 break;
 
             case "on":
                 if (!source.hasPermission("kekwhitelist.on")) {
-                    source.sendMessage(languageManager.getMessage("no-permission"));
+                    source.sendMessage(message(source, "no-permission"));
                     return;
                 }
                 if (configManager.isWhitelistEnabled()) {
-                    source.sendMessage(languageManager.getMessage("already-enabled"));
+                    source.sendMessage(message(source, "already-enabled"));
                     return;
                 }
                 configManager.setWhitelistEnabled(true);
                 configManager.saveConfig();
-                source.sendMessage(languageManager.getMessage("enabled"));
+                audit(source, "enable", "-", "enabled");
+                source.sendMessage(message(source, "enabled"));
                 break;
 
             case "off":
                 if (!source.hasPermission("kekwhitelist.off")) {
-                    source.sendMessage(languageManager.getMessage("no-permission"));
+                    source.sendMessage(message(source, "no-permission"));
                     return;
                 }
                 if (!configManager.isWhitelistEnabled()) {
-                    source.sendMessage(languageManager.getMessage("already-disabled"));
+                    source.sendMessage(message(source, "already-disabled"));
                     return;
                 }
                 configManager.setWhitelistEnabled(false);
                 configManager.saveConfig();
-                source.sendMessage(languageManager.getMessage("disabled"));
+                audit(source, "disable", "-", "disabled");
+                source.sendMessage(message(source, "disabled"));
                 break;
 
             case "list":
                 if (!source.hasPermission("kekwhitelist.list")) {
-                    source.sendMessage(languageManager.getMessage("no-permission"));
+                    source.sendMessage(message(source, "no-permission"));
                     return;
                 }
-                StringBuilder listMessage = new StringBuilder();
-                listMessage.append(miniMessage.serialize(languageManager.getMessage("list-header")));
-                if (!whitelistManager.getWhitelistedPlayers().isEmpty()) {
-                    listMessage.append(String.join(", ", whitelistManager.getWhitelistedPlayers()));
-                } else {
-                    listMessage.append("None");
+                if (args.length > 2) {
+                    source.sendMessage(message(source, "list-usage"));
+                    return;
+                }
+                sendPage(source, message(source, "list-header"), "",
+                        args.length == 2 ? args[1] : null, "/kekwhitelist list ");
+                break;
+
+            case "search":
+                if (!source.hasPermission("kekwhitelist.list")) {
+                    source.sendMessage(message(source, "no-permission"));
+                    return;
+                }
+                if (args.length < 2 || args.length > 3) {
+                    source.sendMessage(message(source, "search-usage"));
+                    return;
                 }
-                source.sendMessage(miniMessage.deserialize(listMessage.toString()));
+                sendPage(source, message(source, "search-header", "prefix", args[1]),
+                        WhitelistManager.normalize(args[1]), args.length == 3 ? args[2] : null,
+                        "/kekwhitelist search " + args[1] + " ");
                 break;
 
             case "reload":
                 if (!source.hasPermission("kekwhitelist.reload")) {
-                    source.sendMessage(languageManager.getMessage("no-permission"));
+                    source.sendMessage(message(source, "no-permission"));
                     return;
                 }
-                configManager.loadConfig();
-                languageManager.loadLanguage(configManager.getLanguage());
-                source.sendMessage(languageManager.getMessage("reloaded"));
+                plugin.getConfigReloader().reload().whenComplete((diff, throwable) -> {
+                    if (throwable != null || diff == null) {
+                        if (throwable != null) {
+                            plugin.getLogger().error("Reload failed.", throwable);
+                        }
+                        source.sendMessage(message(source, "reload-failed"));
+                        return;
+                    }
+                    source.sendMessage(message(source, "reloaded",
+                            "added", diff.addedCount(), "removed", diff.removedCount()));
+                });
+                break;
+
+            case "import":
+                if (!source.hasPermission("kekwhitelist.import")) {
+                    source.sendMessage(message(source, "no-permission"));
+                    return;
+                }
+                if (args.length != 2) {
+                    source.sendMessage(message(source, "import-usage"));
+                    return;
+                }
+                importFile(source, args[1]);
+                break;
+
+            case "export":
+                if (!source.hasPermission("kekwhitelist.export")) {
+                    source.sendMessage(message(source, "no-permission"));
+                    return;
+                }
+                if (args.length != 2) {
+                    source.sendMessage(message(source, "export-usage"));
+                    return;
+                }
+                exportFile(source, args[1]);
+                break;
+
+            case "stats":
+                if (!source.hasPermission("kekwhitelist.stats")) {
+                    source.sendMessage(message(source, "no-permission"));
+                    return;
+                }
+                sendStats(source);
+                break;
+
+            case "history":
+                if (!source.hasPermission("kekwhitelist.history")) {
+                    source.sendMessage(message(source, "no-permission"));
+                    return;
+                }
+                if (args.length != 2) {
+                    source.sendMessage(message(source, "history-usage"));
+                    return;
+                }
+                sendHistory(source, args[1]);
+                break;
+
+            case "group":
+                if (!source.hasPermission("kekwhitelist.group")) {
+                    source.sendMessage(message(source, "no-permission"));
+                    return;
+                }
+                group(source, args);
                 break;
 
             default:
-                source.sendMessage(languageManager.getMessage("unknown-subcommand"));
+                source.sendMessage(message(source, "unknown-subcommand"));
         }
     }
 
     @Override
     public List<String> suggest(Invocation invocation) {
-        String[] args = invocation.arguments();
+        CommandSource source = invocation.source();
+        String line = String.join(" ", invocation.arguments());
+        long now = System.nanoTime();
+        LastSuggestion last = lastSuggestions.get(source);
+        if (last != null && (now - last.atNanos() < SUGGESTION_INTERVAL_NANOS
+                || now - last.atNanos() < SUGGESTION_REUSE_NANOS && last.line().equals(line))) {
+            return last.suggestions();
+        }
+        List<String> suggestions = List.copyOf(computeSuggestions(invocation.arguments()));
+        lastSuggestions.put(source, new LastSuggestion(line, suggestions, now));
+        return suggestions;
+    }
+
+    /**
+     * Computed synchronously by {@link #suggest}, which also limits how often one source can make it
+     * recompute.
+     */
+    @Override
+    public CompletableFuture<List<String>> suggestAsync(Invocation invocation) {
+        return CompletableFuture.completedFuture(suggest(invocation));
+    }
+
+    /**
+     * Completion cost is bounded by {@value #MAX_SUGGESTIONS}: {@code remove} walks a prefix range of the
+     * snapshot's sorted index, {@code add} a prefix range of the online-player index, skipping names
+     * that are already whitelisted.
+     */
+    private List<String> computeSuggestions(String[] args) {
         List<String> suggestions = new ArrayList<>();
 
         if (args.length == 0) {
-            suggestions.addAll(List.of("add", "remove", "on", "off", "list", "reload"));
+            suggestions.addAll(SUBCOMMANDS);
         } else if (args.length == 1) {
-            suggestions.addAll(List.of("add", "remove", "on", "off", "list", "reload")
+            suggestions.addAll(SUBCOMMANDS
                     .stream()
                     .filter(cmd -> cmd.startsWith(args[0].toLowerCase()))
                     .collect(Collectors.toList()));
-        } else if (args.length == 2 && (args[0].equalsIgnoreCase("add") || args[0].equalsIgnoreCase("remove"))) {
-            suggestions.addAll(server.getAllPlayers()
-                    .stream()
-                    .map(player -> player.getUsername())
-                    .filter(name -> name.toLowerCase().startsWith(args[1].toLowerCase()))
-                    .collect(Collectors.toList()));
+        } else if (args.length == 2 && args[0].equalsIgnoreCase("add")) {
+            WhitelistSnapshot snapshot = whitelistManager.snapshot();
+            suggestions.addAll(plugin.getOnlinePlayers().complete(WhitelistManager.normalize(args[1]),
+                    MAX_SUGGESTIONS, name -> !snapshot.contains(name)));
+        } else if (args.length == 2 && args[0].equalsIgnoreCase("group")) {
+            GROUP_ACTIONS.stream()
+                    .filter(action -> action.startsWith(args[1].toLowerCase()))
+                    .forEach(suggestions::add);
+        } else if (args.length == 3 && args[0].equalsIgnoreCase("group") && !args[1].equalsIgnoreCase("create")) {
+            plugin.getGroupManager().getGroups().keySet().stream()
+                    .filter(group -> group.startsWith(args[2].toLowerCase()))
+                    .limit(MAX_SUGGESTIONS)
+                    .forEach(suggestions::add);
+        } else if (args.length == 2 && args[0].equalsIgnoreCase("removeip")) {
+            whitelistManager.getIpRules().stream()
+                    .map(CidrRange::toString)
+                    .filter(range -> range.startsWith(args[1]))
+                    .sorted()
+                    .limit(MAX_SUGGESTIONS)
+                    .forEach(suggestions::add);
+        } else if (args.length == 2 && args[0].equalsIgnoreCase("remove")) {
+            SortedNameIndex index = whitelistManager.snapshot().sortedNames();
+            String prefix = WhitelistManager.normalize(args[1]);
+            int from = index.lowerBound(prefix);
+            suggestions.addAll(index.slice(from, Math.min(index.prefixEnd(prefix), from + MAX_SUGGESTIONS)));
         }
 
         return suggestions;
@@ -170,7 +366,303 @@ public class WhitelistCommand implements SimpleCommand {
         return invocation.source().hasPermission("kekwhitelist.use");
     }
 
+    private void addByUuid(CommandSource source, String username, String duration, long durationMillis) {
+        plugin.getUuidResolver().resolve(username).whenComplete((uuid, throwable) -> {
+            if (throwable != null) {
+                plugin.getLogger().warn("Could not resolve UUID for {}, adding by name.", username, throwable);
+            }
+            UUID resolved = throwable == null ? uuid.orElse(null) : null;
+            finishAdd(source, username, resolved, whitelistManager.addResolvedPlayer(resolved, username),
+                    duration, durationMillis);
+        });
+    }
+
+    /**
+     * A timed add of a permanent entry is refused; a timed add of a temporary entry moves its expiry.
+     * An add without a duration makes a temporary entry permanent.
+     */
+    private void finishAdd(CommandSource source, String username, UUID uuid, boolean added,
+                           String duration, long durationMillis) {
+        ExpiryScheduler expiries = plugin.getExpiryScheduler();
+        if (durationMillis > 0) {
+            if (!added && !expiries.isScheduled(username)) {
+                source.sendMessage(message(source, "already-whitelisted", "player", username));
+                return;
+            }
+            expiries.expireAt(username, uuid, System.currentTimeMillis() + durationMillis);
+            if (added) {
+                configManager.saveConfig();
+            }
+            audit(source, "add:" + duration, WhitelistManager.normalize(username), added ? "added" : "extended");
+            source.sendMessage(message(source, "added-temporary", "player", username, "duration", duration));
+            return;
+        }
+        boolean madePermanent = expiries.cancel(username);
+        if (added) {
+            configManager.saveConfig();
+        }
+        audit(source, "add", WhitelistManager.normalize(username),
+                added ? "added" : madePermanent ? "made-permanent" : "already-whitelisted");
+        source.sendMessage(message(source, added || madePermanent ? "added" : "already-whitelisted",
+                "player", username));
+    }
+
+    private void schedule(CommandSource source, String username, String delay, long delayMillis,
+                          String duration, long durationMillis) {
+        ExpiryScheduler expiries = plugin.getExpiryScheduler();
+        if (whitelistManager.isWhitelisted(username) && !expiries.isScheduled(username)) {
+            source.sendMessage(message(source, "already-whitelisted", "player", username));
+            return;
+        }
+        CompletableFuture<UUID> uuid = configManager.isUuidMode()
+                ? plugin.getUuidResolver().resolve(username).thenApply(result -> result.orElse(null))
+                        .exceptionally(throwable -> null)
+                : CompletableFuture.completedFuture(null);
+        uuid.thenAccept(resolved -> {
+            long start = System.currentTimeMillis() + delayMillis;
+            expiries.schedule(username, resolved, start, start + durationMillis);
+            audit(source, "schedule:" + delay + "+" + duration, WhitelistManager.normalize(username), "scheduled");
+            source.sendMessage(message(source, "scheduled", "player", username, "delay", delay,
+                    "duration", duration));
+        });
+    }
+
+    private void importFile(CommandSource source, String fileName) {
+        Path file = WhitelistFiles.resolve(plugin.getDataDirectory(), fileName);
+        if (file == null || !Files.isRegularFile(file)) {
+            source.sendMessage(message(source, "file-error", "file", fileName));
+            return;
+        }
+        List<String> valid = new ArrayList<>();
+        int[] invalid = {0};
+        try {
+            WhitelistFiles.readNames(file, name -> {
+                if (isValidUsername(name)) {
+                    valid.add(name);
+                } else {
+                    invalid[0]++;
+                }
+            });
+        } catch (IOException e) {
+            plugin.getLogger().error("Failed to import whitelist from {}", file, e);
+            source.sendMessage(message(source, "file-error", "file", fileName));
+            return;
+        }
+        WhitelistManager.Diff diff = whitelistManager.apply(valid, List.of());
+        if (!diff.isEmpty()) {
+            configManager.saveConfig();
+        }
+        plugin.getLogger().info("Imported {} players into whitelist from {}.", diff.added().size(), file);
+        diff.added().forEach(name -> audit(source, "import:" + fileName, name, "added"));
+        source.sendMessage(message(source, "imported", "file", fileName, "added", diff.added().size(),
+                "skipped", valid.size() - diff.added().size(), "invalid", invalid[0]));
+    }
+
+    private void exportFile(CommandSource source, String fileName) {
+        Path file = WhitelistFiles.resolve(plugin.getDataDirectory(), fileName);
+        if (file == null) {
+            source.sendMessage(message(source, "file-error", "file", fileName));
+            return;
+        }
+        List<String> names = new ArrayList<>(whitelistManager.getWhitelistedPlayers());
+        Collections.sort(names);
+        try {
+            WhitelistFiles.writeNames(file, names);
+        } catch (IOException e) {
+            plugin.getLogger().error("Failed to export whitelist to {}", file, e);
+            source.sendMessage(message(source, "file-error", "file", fileName));
+            return;
+        }
+        source.sendMessage(message(source, "exported", "count", names.size(), "file", fileName));
+    }
+
+    /**
+     * Sends one page of names starting with {@code prefix}. Only the requested slice of the
+     * snapshot's sorted index is touched, so the cost does not depend on the list size.
+     */
+    private void sendPage(CommandSource source, Component header, String prefix, String pageArg, String command) {
+        int page = 1;
+        if (pageArg != null) {
+            try {
+                page = Integer.parseInt(pageArg);
+            } catch (NumberFormatException e) {
+                page = 0;
+            }
+            if (page < 1) {
+                source.sendMessage(message(source, "invalid-page"));
+                return;
+            }
+        }
+        SortedNameIndex index = whitelistManager.snapshot().sortedNames();
+        int from = index.lowerBound(prefix);
+        int to = index.prefixEnd(prefix);
+        int total = to - from;
+        if (total == 0) {
+            source.sendMessage(header.append(message(source, "list-empty")));
+            return;
+        }
+        int pages = (total + PAGE_SIZE - 1) / PAGE_SIZE;
+        page = Math.min(page, pages);
+        int start = from + (page - 1) * PAGE_SIZE;
+        List<String> names = index.slice(start, Math.min(to, start + PAGE_SIZE));
+        source.sendMessage(header.append(Component.text(String.join(", ", names))));
+        source.sendMessage(message(source, "list-page", "page", page, "pages", pages, "total", total));
+        if (page < pages) {
+            source.sendMessage(message(source, "list-next", "command", command + (page + 1)));
+        }
+    }
+
+    private void group(CommandSource source, String[] args) {
+        GroupManager groups = plugin.getGroupManager();
+        String action = args.length >= 2 ? args[1].toLowerCase() : "";
+        if (action.equals("list") && args.length == 2) {
+            Map<String, Set<String>> all = groups.getGroups();
+            if (all.isEmpty()) {
+                source.sendMessage(message(source, "group-list-empty"));
+                return;
+            }
+            all.forEach((group, servers) -> source.sendMessage(message(source, "group-entry", "group", group,
+                    "members", groups.memberCount(group), "servers", servers.isEmpty() ? "-" : String.join(", ", servers))));
+            return;
+        }
+        boolean withTarget = action.equals("add") || action.equals("remove")
+                || action.equals("assign") || action.equals("unassign");
+        if (!GROUP_ACTIONS.contains(action) || args.length != (withTarget ? 4 : 3)) {
+            source.sendMessage(message(source, "group-usage"));
+            return;
+        }
+        String group = args[2].toLowerCase(Locale.ROOT);
+        if (action.equals("create")) {
+            if (!GroupManager.isValidGroupName(group)) {
+                source.sendMessage(message(source, "group-invalid-name"));
+            } else if (groups.createGroup(group)) {
+                audit(source, "group-create", group, "created");
+                source.sendMessage(message(source, "group-created", "group", group));
+            } else {
+                source.sendMessage(message(source, "group-exists", "group", group));
+            }
+            return;
+        }
+        if (!groups.exists(group)) {
+            source.sendMessage(message(source, "group-not-found", "group", group));
+            return;
+        }
+        switch (action) {
+            case "delete" -> {
+                groups.deleteGroup(group);
+                audit(source, "group-delete", group, "deleted");
+                source.sendMessage(message(source, "group-deleted", "group", group));
+            }
+            case "members" -> {
+                List<String> members = groups.getMembers(group);
+                source.sendMessage(message(source, "group-members", "group", group, "count", members.size(),
+                        "members", members.isEmpty() ? "-" : String.join(", ", members)));
+            }
+            case "add", "remove" -> {
+                String player = args[3];
+                if (!isValidUsername(player)) {
+                    source.sendMessage(message(source, "invalid-username"));
+                    return;
+                }
+                if (action.equals("remove")) {
+                    String key = groups.removeMember(group, player) ? "group-removed" : "group-not-member";
+                    audit(source, action + ":" + group, WhitelistManager.normalize(player), key);
+                    source.sendMessage(message(source, key, "player", player, "group", group));
+                    return;
+                }
+                // In UUID mode members are added by account, like whitelist entries
+                CompletableFuture<UUID> uuid = configManager.isUuidMode()
+                        ? plugin.getUuidResolver().resolve(player).thenApply(result -> result.orElse(null))
+                                .exceptionally(throwable -> null)
+                        : CompletableFuture.completedFuture(null);
+                uuid.thenAccept(resolved -> {
+                    String key = groups.addMember(group, resolved, player) ? "group-added" : "group-already-member";
+                    audit(source, action + ":" + group, WhitelistManager.normalize(player), key);
+                    source.sendMessage(message(source, key, "player", player, "group", group));
+                });
+            }
+            default -> {
+                String serverName = args[3];
+                boolean assign = action.equals("assign");
+                boolean changed = assign ? groups.assignServer(group, serverName) : groups.unassignServer(group, serverName);
+                String key = assign ? (changed ? "group-assigned" : "group-already-assigned")
+                        : (changed ? "group-unassigned" : "group-not-assigned");
+                audit(source, action + ":" + serverName, group, key);
+                source.sendMessage(message(source, key, "server", serverName, "group", group));
+            }
+        }
+    }
+
+    /**
+     * Reads the audit log off the command thread; the log is scanned from the end and only as far as needed.
+     */
+    private void sendHistory(CommandSource source, String target) {
+        String name = WhitelistManager.normalize(target);
+        CompletableFuture.supplyAsync(() -> {
+            try {
+                return plugin.getAuditLog().history(name, HISTORY_LIMIT);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }).whenComplete((records, throwable) -> {
+            if (throwable != null) {
+                plugin.getLogger().error("Failed to read audit history for {}", name, throwable);
+                source.sendMessage(message(source, "file-error", "file", "audit"));
+                return;
+            }
+            if (records.isEmpty()) {
+                source.sendMessage(message(source, "history-empty", "player", target));
+                return;
+            }
+            source.sendMessage(message(source, "history-header", "player", target));
+            for (AuditLog.Record record : records) {
+                source.sendMessage(message(source, "history-entry",
+                        "time", HISTORY_TIME.format(Instant.ofEpochMilli(record.timestamp())),
+                        "actor", record.actor(), "action", record.action(), "result", record.result()));
+            }
+        });
+    }
+
+    private void audit(CommandSource source, String action, String target, String result) {
+        plugin.getAuditLog().change(source instanceof Player player ? player.getUsername() : "console",
+                action, target, result);
+    }
+
+    private void sendStats(CommandSource source) {
+        WhitelistMetrics metrics = plugin.getMetrics();
+        LatencyHistogram decisions = metrics.getDecisionLatency();
+        source.sendMessage(message(source, "stats",
+                "allowed", metrics.getAllowedLogins(),
+                "bypassed", metrics.getBypassedLogins(),
+                "denied", metrics.getDeniedLogins(),
+                "fallback", metrics.getFallbackDecisions(),
+                "decision-p50", millis(decisions.percentileNanos(0.5)),
+                "decision-p99", millis(decisions.percentileNanos(0.99)),
+                "decision-max", millis(decisions.maxNanos()),
+                "queue", metrics.getLoginQueueDepth(),
+                "saves", metrics.getSaves(),
+                "save-failures", metrics.getSaveFailures(),
+                "save-p99", millis(metrics.getSaveLatency().percentileNanos(0.99)),
+                "pending", metrics.getPendingChanges(),
+                "journal", metrics.getJournalBytes(),
+                "reloads", metrics.getReloads(),
+                "reload-p99", millis(metrics.getReloadLatency().percentileNanos(0.99)),
+                "size", whitelistManager.snapshot().size()));
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.2f ms", nanos / 1e6);
+    }
+
+    private Component message(CommandSource source, String key, Object... placeholders) {
+        Locale locale = source instanceof Player player ? player.getEffectiveLocale() : null;
+        return languageManager.getMessage(locale, key, placeholders);
+    }
+
     private boolean isValidUsername(String username) {
-        return username != null && username.matches("[a-zA-Z0-9_]{3,16}");
+        return WhitelistManager.isValidUsername(username);
+    }
+
+    private record LastSuggestion(String line, List<String> suggestions, long atNanos) {
     }
-}
\ No newline at end of file
+}
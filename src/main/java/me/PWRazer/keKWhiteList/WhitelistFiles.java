@@ -0,0 +1,86 @@
+package me.PWRazer.keKWhiteList;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * Reading and writing of plain name lists for /kwl import and /kwl export.
+ * Files are newline-delimited or CSV (first column is the name); blank lines and lines starting with # are skipped.
+ */
+public final class WhitelistFiles {
+
+    private WhitelistFiles() {
+    }
+
+    /**
+     * Resolves {@code fileName} inside the data directory.
+     *
+     * @return the path, or null if the name points outside the data directory.
+     */
+    public static Path resolve(Path dataDirectory, String fileName) {
+        Path base = dataDirectory.toAbsolutePath().normalize();
+        Path file = base.resolve(fileName).normalize();
+        return file.startsWith(base) && !file.equals(base) ? file : null;
+    }
+
+    public static void readNames(Path file, Consumer<String> consumer) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String name = parseLine(line);
+                if (name != null) {
+                    consumer.accept(name);
+                }
+            }
+        }
+    }
+
+    public static void writeNames(Path file, Collection<String> names) throws IOException {
+        Files.createDirectories(file.getParent());
+        Path tempPath = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(tempPath, StandardCharsets.UTF_8)) {
+            for (String name : names) {
+                writer.write(name);
+                writer.newLine();
+            }
+        }
+        try {
+            Files.move(tempPath, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempPath, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static String parseLine(String line) {
+        String value = line.strip();
+        if (value.isEmpty() || value.startsWith("#")) {
+            return null;
+        }
+        int separator = indexOfSeparator(value);
+        if (separator >= 0) {
+            value = value.substring(0, separator).strip();
+        }
+        if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+            value = value.substring(1, value.length() - 1);
+        }
+        return value.isEmpty() ? null : value;
+    }
+
+    private static int indexOfSeparator(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == ';' || c == '\t') {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
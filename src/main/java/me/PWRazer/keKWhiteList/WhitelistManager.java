@@ -1,24 +1,463 @@
 package me.PWRazer.keKWhiteList;
 
+import java.net.InetAddress;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
 
 public class WhitelistManager {
-    private final Set<String> whitelistedPlayers = new HashSet<>();
+    private static final Pattern VALID_USERNAME = Pattern.compile("[a-zA-Z0-9_]{3,16}");
+
+    private final AtomicReference<WhitelistSnapshot> snapshot = new AtomicReference<>(WhitelistSnapshot.EMPTY);
+    private final AtomicReference<CidrMatcher> ipRules = new AtomicReference<>(CidrMatcher.EMPTY);
+    private final List<ChangeListener> listeners = new CopyOnWriteArrayList<>();
+    // Held from a swap until listeners return, so they see changes in the order they were applied
+    private final Object publishLock = new Object();
+
+    public static String normalize(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+
+    public static boolean isValidUsername(String username) {
+        return username != null && VALID_USERNAME.matcher(username).matches();
+    }
+
+    public WhitelistSnapshot snapshot() {
+        return snapshot.get();
+    }
+
+    public void addListener(ChangeListener listener) {
+        listeners.add(listener);
+    }
 
     public boolean isWhitelisted(String username) {
-        return whitelistedPlayers.contains(username.toLowerCase());
+        return snapshot.get().contains(normalize(username));
+    }
+
+    public boolean isWhitelisted(UUID uuid) {
+        return snapshot.get().contains(uuid);
+    }
+
+    /**
+     * @return true if the address falls into one of the IP rules.
+     */
+    public boolean isWhitelisted(InetAddress address) {
+        return address != null && ipRules.get().matches(address);
+    }
+
+    public Set<CidrRange> getIpRules() {
+        return ipRules.get().ranges();
     }
 
-    public void addPlayer(String username) {
-        whitelistedPlayers.add(username.toLowerCase());
+    /**
+     * Adds an IP rule. The matcher is rebuilt and swapped, so lookups never see a partial tree.
+     *
+     * @return true if the rule was not there yet.
+     */
+    public boolean addIpRule(CidrRange range) {
+        while (true) {
+            CidrMatcher current = ipRules.get();
+            if (current.ranges().contains(range)) {
+                return false;
+            }
+            Set<CidrRange> ranges = new HashSet<>(current.ranges());
+            ranges.add(range);
+            if (ipRules.compareAndSet(current, CidrMatcher.of(ranges))) {
+                return true;
+            }
+        }
+    }
+
+    public boolean removeIpRule(CidrRange range) {
+        while (true) {
+            CidrMatcher current = ipRules.get();
+            if (!current.ranges().contains(range)) {
+                return false;
+            }
+            Set<CidrRange> ranges = new HashSet<>(current.ranges());
+            ranges.remove(range);
+            if (ipRules.compareAndSet(current, CidrMatcher.of(ranges))) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Removes and adds IP rules with a single rebuild of the matcher.
+     */
+    public void updateIpRules(Collection<CidrRange> toAdd, Collection<CidrRange> toRemove) {
+        if (toAdd.isEmpty() && toRemove.isEmpty()) {
+            return;
+        }
+        while (true) {
+            CidrMatcher current = ipRules.get();
+            Set<CidrRange> ranges = new HashSet<>(current.ranges());
+            ranges.removeAll(toRemove);
+            ranges.addAll(toAdd);
+            if (ipRules.compareAndSet(current, CidrMatcher.of(ranges))) {
+                return;
+            }
+        }
+    }
+
+    public boolean addPlayer(String username) {
+        return !apply(List.of(username), List.of()).isEmpty();
     }
 
     public boolean removePlayer(String username) {
-        return whitelistedPlayers.remove(username.toLowerCase());
+        return !apply(List.of(), List.of(username)).isEmpty();
+    }
+
+    public boolean addPlayer(UUID uuid, String username) {
+        return !update(editor -> editor.addUuid(uuid, username)).isEmpty();
+    }
+
+    public boolean removePlayer(UUID uuid) {
+        return !update(editor -> editor.removeUuid(uuid)).isEmpty();
+    }
+
+    /**
+     * Adds a player whose UUID was looked up by name: as a UUID entry if {@code uuid} is known
+     * (replacing a name entry for the same player), otherwise as a name entry.
+     *
+     * @return true if the list changed.
+     */
+    public boolean addResolvedPlayer(UUID uuid, String username) {
+        if (uuid == null) {
+            return addPlayer(username);
+        }
+        if (isWhitelisted(uuid)) {
+            return false;
+        }
+        return migrateToUuid(uuid, username) || addPlayer(uuid, username);
+    }
+
+    /**
+     * Turns the name entry of a player into a UUID entry, in one swap.
+     *
+     * @return true if a name entry existed and was migrated.
+     */
+    public boolean migrateToUuid(UUID uuid, String username) {
+        String name = normalize(username);
+        return !update(editor -> {
+            if (editor.names.contains(name) && editor.removeName(name)) {
+                editor.addUuid(uuid, username);
+            }
+        }).isEmpty();
+    }
+
+    /**
+     * Replaces the whole list in a single swap, so concurrent readers see either the old or the new list.
+     * Used when loading from storage, so listeners are not notified. If nothing changed the current
+     * snapshot (and the indexes built on it) is kept.
+     *
+     * @return the difference between the previous and the loaded list.
+     */
+    public Diff replaceAll(WhitelistSnapshot loaded) {
+        synchronized (publishLock) {
+            WhitelistSnapshot current = snapshot.get();
+            Diff diff = Diff.between(current, loaded);
+            if (!diff.isEmpty()) {
+                snapshot.set(loaded);
+            }
+            return diff;
+        }
     }
 
+    /**
+     * Applies a batch of adds and removes, in order, in one swap.
+     */
+    public Diff applyChanges(List<WhitelistChange> changes) {
+        if (changes.isEmpty()) {
+            return Diff.EMPTY;
+        }
+        return update(editor -> {
+            for (WhitelistChange change : changes) {
+                boolean add = change.type() == WhitelistChange.Type.ADD;
+                if (change.uuid() != null) {
+                    if (add) {
+                        editor.addUuid(change.uuid(), change.name());
+                    } else {
+                        editor.removeUuid(change.uuid());
+                    }
+                } else if (add) {
+                    editor.addName(normalize(change.name()));
+                } else {
+                    editor.removeName(normalize(change.name()));
+                }
+            }
+        });
+    }
+
+    /**
+     * Applies changes read from storage in one swap, entry by entry as the store recorded them
+     * (see {@link WhitelistSnapshot#with}). Listeners are not notified: the changes are already
+     * stored and must not be written back.
+     */
+    public Diff applyStored(List<WhitelistChange> changes) {
+        if (changes.isEmpty()) {
+            return Diff.EMPTY;
+        }
+        synchronized (publishLock) {
+            WhitelistSnapshot current = snapshot.get();
+            WhitelistSnapshot applied = current.with(changes);
+            Diff diff = Diff.between(current, applied);
+            if (!diff.isEmpty()) {
+                snapshot.set(applied);
+            }
+            return diff;
+        }
+    }
+
+    /**
+     * Removes {@code toRemove} and then adds {@code toAdd} in one swap. Removing a name also removes
+     * a UUID entry with that display name; adding a name that a UUID entry already covers is a no-op.
+     *
+     * @return names that were actually added and removed.
+     */
+    public Diff apply(Collection<String> toAdd, Collection<String> toRemove) {
+        Set<String> add = normalizeAll(toAdd);
+        Set<String> remove = normalizeAll(toRemove);
+        return update(editor -> {
+            remove.forEach(editor::removeName);
+            add.forEach(editor::addName);
+        });
+    }
+
+    /**
+     * Makes the list equal to {@code usernames} in one swap and notifies listeners with the difference.
+     * UUID entries are kept if their display name is in {@code usernames}.
+     */
+    public Diff replaceWith(Collection<String> usernames) {
+        Set<String> target = normalizeAll(usernames);
+        return update(editor -> {
+            for (String name : List.copyOf(editor.names)) {
+                if (!target.contains(name)) {
+                    editor.removeName(name);
+                }
+            }
+            for (Map.Entry<UUID, String> entry : List.copyOf(editor.uuidNames.entrySet())) {
+                if (!target.contains(normalize(entry.getValue()))) {
+                    editor.removeUuid(entry.getKey());
+                }
+            }
+            target.forEach(editor::addName);
+        });
+    }
+
+    /**
+     * @return all whitelisted names, including display names of UUID entries.
+     */
     public Set<String> getWhitelistedPlayers() {
-        return new HashSet<>(whitelistedPlayers);
+        return snapshot.get().allNames();
+    }
+
+    private Diff update(Mutation mutation) {
+        // Without the lock two writers could swap A then B and notify B then A, and persistence
+        // (which keeps the last change per entry) would end up with A while memory has B.
+        // Silent swaps take it too, so a stored change cannot slip between a swap and its notification.
+        // Writers are serialized here; readers still never lock and see either snapshot.
+        synchronized (publishLock) {
+            Editor editor = new Editor(snapshot.get());
+            mutation.apply(editor);
+            Diff diff = editor.diff();
+            if (diff.isEmpty()) {
+                return Diff.EMPTY;
+            }
+            snapshot.set(WhitelistSnapshot.of(editor.names, editor.uuidNames));
+            for (ChangeListener listener : listeners) {
+                listener.onChange(diff);
+            }
+            return diff;
+        }
+    }
+
+    private static Set<String> normalizeAll(Collection<String> usernames) {
+        Set<String> names = new HashSet<>(usernames.size() * 2);
+        usernames.stream()
+                .filter(Objects::nonNull)
+                .map(WhitelistManager::normalize)
+                .forEach(names::add);
+        return names;
+    }
+
+    /**
+     * Mutable copy of a snapshot that records what changed.
+     */
+    private static final class Editor {
+        private final WhitelistSnapshot base;
+        private final Set<String> names;
+        private final Map<UUID, String> uuidNames;
+        private final Map<String, UUID> uuidsByName = new HashMap<>();
+        private final Set<String> added = new HashSet<>();
+        private final Set<String> removed = new HashSet<>();
+        private final Map<UUID, String> addedUuids = new HashMap<>();
+        private final Set<UUID> removedUuids = new HashSet<>();
+        // Names in removed only because a UUID entry with that display name went, already counted as the UUID
+        private final Set<String> removedAliases = new HashSet<>();
+
+        Editor(WhitelistSnapshot base) {
+            this.base = base;
+            this.names = new HashSet<>(base.names());
+            this.uuidNames = new HashMap<>(base.uuidEntries());
+        }
+
+        boolean addName(String name) {
+            if (uuidByName(name) != null || !names.add(name)) {
+                return false;
+            }
+            if (!removed.remove(name)) {
+                added.add(name);
+            }
+            removedAliases.remove(name);
+            return true;
+        }
+
+        boolean removeName(String name) {
+            boolean changed = false;
+            if (names.remove(name)) {
+                if (!added.remove(name)) {
+                    removed.add(name);
+                }
+                changed = true;
+            }
+            UUID uuid = uuidByName(name);
+            if (uuid != null && removeUuid(uuid)) {
+                if (removed.add(name)) {
+                    removedAliases.add(name);
+                }
+                changed = true;
+            }
+            return changed;
+        }
+
+        boolean addUuid(UUID uuid, String displayName) {
+            String previous = uuidNames.put(uuid, displayName);
+            if (displayName.equals(previous)) {
+                return false;
+            }
+            if (previous != null) {
+                uuidsByName.put(normalize(previous), null);
+            }
+            uuidsByName.put(normalize(displayName), uuid);
+            removedUuids.remove(uuid);
+            addedUuids.put(uuid, displayName);
+            return true;
+        }
+
+        boolean removeUuid(UUID uuid) {
+            String displayName = uuidNames.remove(uuid);
+            if (displayName == null) {
+                return false;
+            }
+            uuidsByName.put(normalize(displayName), null);
+            if (addedUuids.remove(uuid) == null || base.uuidEntries().containsKey(uuid)) {
+                removedUuids.add(uuid);
+            }
+            return true;
+        }
+
+        private UUID uuidByName(String name) {
+            if (uuidsByName.containsKey(name)) {
+                return uuidsByName.get(name);
+            }
+            return base.uuidByName(name);
+        }
+
+        Diff diff() {
+            if (added.isEmpty() && removed.isEmpty() && addedUuids.isEmpty() && removedUuids.isEmpty()) {
+                return Diff.EMPTY;
+            }
+            int removedCount = removed.size() + removedUuids.size();
+            for (String alias : removedAliases) {
+                if (removed.contains(alias)) {
+                    removedCount--;
+                }
+            }
+            return new Diff(Set.copyOf(added), Set.copyOf(removed), Map.copyOf(addedUuids), Set.copyOf(removedUuids),
+                    removedCount);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Mutation {
+        void apply(Editor editor);
+    }
+
+    /**
+     * What a single swap changed. Names are lowercase; UUID additions carry their display names.
+     * Removing a UUID entry by name puts the name in {@code removed} and the UUID in {@code removedUuids};
+     * {@code removedCount} counts such an entry once.
+     */
+    public record Diff(Set<String> added, Set<String> removed, Map<UUID, String> addedUuids, Set<UUID> removedUuids,
+                       int removedCount) {
+        static final Diff EMPTY = new Diff(Set.of(), Set.of(), Map.of(), Set.of());
+
+        public Diff(Set<String> added, Set<String> removed, Map<UUID, String> addedUuids, Set<UUID> removedUuids) {
+            this(added, removed, addedUuids, removedUuids, removed.size() + removedUuids.size());
+        }
+
+        public boolean isEmpty() {
+            return added.isEmpty() && removed.isEmpty() && addedUuids.isEmpty() && removedUuids.isEmpty();
+        }
+
+        /**
+         * @return number of added entries, names and UUIDs together.
+         */
+        public int addedCount() {
+            return added.size() + addedUuids.size();
+        }
+
+        static Diff between(WhitelistSnapshot from, WhitelistSnapshot to) {
+            if (from == to) {
+                return EMPTY;
+            }
+            Set<String> added = new HashSet<>();
+            for (String name : to.names()) {
+                if (!from.containsName(name)) {
+                    added.add(name);
+                }
+            }
+            Set<String> removed = new HashSet<>();
+            for (String name : from.names()) {
+                if (!to.containsName(name)) {
+                    removed.add(name);
+                }
+            }
+            Map<UUID, String> addedUuids = new HashMap<>();
+            to.uuidEntries().forEach((uuid, name) -> {
+                if (!name.equals(from.uuidEntries().get(uuid))) {
+                    addedUuids.put(uuid, name);
+                }
+            });
+            Set<UUID> removedUuids = new HashSet<>();
+            for (UUID uuid : from.uuidEntries().keySet()) {
+                if (!to.uuidEntries().containsKey(uuid)) {
+                    removedUuids.add(uuid);
+                }
+            }
+            if (added.isEmpty() && removed.isEmpty() && addedUuids.isEmpty() && removedUuids.isEmpty()) {
+                return EMPTY;
+            }
+            return new Diff(Set.copyOf(added), Set.copyOf(removed), Map.copyOf(addedUuids), Set.copyOf(removedUuids));
+        }
+    }
+
+    /**
+     * Called on the thread that made the change, one change at a time and in the order the changes
+     * were applied. Listeners must be quick and must not change the whitelist themselves.
+     */
+    @FunctionalInterface
+    public interface ChangeListener {
+        void onChange(Diff diff);
     }
-}
\ No newline at end of file
+}
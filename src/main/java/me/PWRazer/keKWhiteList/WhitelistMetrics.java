@@ -0,0 +1,149 @@
+package me.PWRazer.keKWhiteList;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Counters and latency histograms for login decisions and persistence. Updates are contention-free;
+ * readers ({@code /kwl stats}, the API, the Prometheus endpoint) sum them on demand.
+ */
+public class WhitelistMetrics {
+    private final LongAdder allowedLogins = new LongAdder();
+    private final LongAdder deniedLogins = new LongAdder();
+    private final LongAdder bypassedLogins = new LongAdder();
+    private final LongAdder fallbackDecisions = new LongAdder();
+    private final LongAdder throttledLogins = new LongAdder();
+    private final LongAdder auditDrops = new LongAdder();
+    private final LongAdder saves = new LongAdder();
+    private final LongAdder saveFailures = new LongAdder();
+    private final LongAdder reloads = new LongAdder();
+    private final LatencyHistogram decisionLatency = new LatencyHistogram();
+    private final LatencyHistogram saveLatency = new LatencyHistogram();
+    private final LatencyHistogram reloadLatency = new LatencyHistogram();
+    private volatile LongSupplier loginQueueDepth = () -> 0;
+    private volatile LongSupplier pendingChanges = () -> 0;
+    private volatile LongSupplier journalBytes = () -> 0;
+
+    public void recordLogin(boolean allowed, long nanos) {
+        (allowed ? allowedLogins : deniedLogins).increment();
+        decisionLatency.record(nanos);
+    }
+
+    /**
+     * Denial made before the full check (pre-login); counted without a latency sample.
+     */
+    public void recordEarlyDenial() {
+        deniedLogins.increment();
+    }
+
+    /**
+     * Connection rejected by the admission throttle before any whitelist check.
+     */
+    public void recordThrottled() {
+        throttledLogins.increment();
+    }
+
+    /**
+     * Audit record dropped because the audit buffer was full.
+     */
+    public void recordAuditDrop() {
+        auditDrops.increment();
+    }
+
+    public void recordBypass() {
+        bypassedLogins.increment();
+    }
+
+    /**
+     * The fail-open/fail-closed policy decided instead of the whitelist (timeout, full queue, error).
+     */
+    public void recordFallback() {
+        fallbackDecisions.increment();
+    }
+
+    public void recordSave(long nanos, boolean success) {
+        if (success) {
+            saves.increment();
+            saveLatency.record(nanos);
+        } else {
+            saveFailures.increment();
+        }
+    }
+
+    public void recordReload(long nanos) {
+        reloads.increment();
+        reloadLatency.record(nanos);
+    }
+
+    void setLoginQueueDepth(LongSupplier supplier) {
+        this.loginQueueDepth = supplier;
+    }
+
+    void setPendingChanges(LongSupplier supplier) {
+        this.pendingChanges = supplier;
+    }
+
+    void setJournalBytes(LongSupplier supplier) {
+        this.journalBytes = supplier;
+    }
+
+    public long getAllowedLogins() {
+        return allowedLogins.sum();
+    }
+
+    public long getDeniedLogins() {
+        return deniedLogins.sum();
+    }
+
+    public long getBypassedLogins() {
+        return bypassedLogins.sum();
+    }
+
+    public long getFallbackDecisions() {
+        return fallbackDecisions.sum();
+    }
+
+    public long getThrottledLogins() {
+        return throttledLogins.sum();
+    }
+
+    public long getAuditDrops() {
+        return auditDrops.sum();
+    }
+
+    public long getSaves() {
+        return saves.sum();
+    }
+
+    public long getSaveFailures() {
+        return saveFailures.sum();
+    }
+
+    public long getReloads() {
+        return reloads.sum();
+    }
+
+    public LatencyHistogram getDecisionLatency() {
+        return decisionLatency;
+    }
+
+    public LatencyHistogram getSaveLatency() {
+        return saveLatency;
+    }
+
+    public LatencyHistogram getReloadLatency() {
+        return reloadLatency;
+    }
+
+    public long getLoginQueueDepth() {
+        return loginQueueDepth.getAsLong();
+    }
+
+    public long getPendingChanges() {
+        return pendingChanges.getAsLong();
+    }
+
+    public long getJournalBytes() {
+        return journalBytes.getAsLong();
+    }
+}
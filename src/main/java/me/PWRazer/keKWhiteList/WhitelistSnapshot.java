@@ -0,0 +1,156 @@
+package me.PWRazer.keKWhiteList;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Immutable view of the whitelist at one point in time. Readers get it from
+ * {@link WhitelistManager#snapshot()} and never need a lock; writers build a new instance and swap it.
+ *
+ * <p>Entries are either lowercase names or UUIDs. UUID entries keep the last known username
+ * only as a display index; membership by UUID is checked against a {@link LongPairHashSet}.</p>
+ *
+ * <p>The indexes the login path reads are built here, before the snapshot is swapped in, so a login never
+ * pays for building them.</p>
+ */
+public final class WhitelistSnapshot {
+    static final WhitelistSnapshot EMPTY = new WhitelistSnapshot(Set.of(), Map.of());
+
+    private final Set<String> names;
+    private final Map<UUID, String> uuidNames;
+    private final Map<String, UUID> uuidsByName;
+    private final LongPairHashSet uuids;
+    private final Set<String> allNames;
+    private final NameBloomFilter bloomFilter;
+    private volatile SortedNameIndex sortedNames;
+
+    private WhitelistSnapshot(Set<String> names, Map<UUID, String> uuidNames) {
+        this.names = names;
+        this.uuidNames = uuidNames;
+        Map<String, UUID> uuidsByName = new HashMap<>(uuidNames.size() * 2);
+        uuidNames.forEach((uuid, name) -> uuidsByName.put(WhitelistManager.normalize(name), uuid));
+        this.uuidsByName = Map.copyOf(uuidsByName);
+        this.uuids = new LongPairHashSet(uuidNames.keySet());
+        if (this.uuidsByName.isEmpty()) {
+            this.allNames = names;
+        } else {
+            Set<String> union = new HashSet<>(names);
+            union.addAll(this.uuidsByName.keySet());
+            this.allNames = Set.copyOf(union);
+        }
+        this.bloomFilter = new NameBloomFilter(allNames);
+    }
+
+    public static WhitelistSnapshot of(Collection<String> lowercaseNames) {
+        return of(lowercaseNames, Map.of());
+    }
+
+    /**
+     * @param names     name entries; normalized to lowercase here.
+     * @param uuidNames UUID entries with their display names.
+     */
+    public static WhitelistSnapshot of(Collection<String> names, Map<UUID, String> uuidNames) {
+        Set<String> normalized = new HashSet<>(names.size() * 2);
+        names.stream()
+                .filter(Objects::nonNull)
+                .map(WhitelistManager::normalize)
+                .forEach(normalized::add);
+        return new WhitelistSnapshot(Set.copyOf(normalized), Map.copyOf(uuidNames));
+    }
+
+    /**
+     * Applies changes entry by entry, the way stores replay them: removing a name touches only the name
+     * entry, never a UUID entry with that display name.
+     *
+     * @return a new snapshot, or this one if {@code changes} is empty.
+     */
+    WhitelistSnapshot with(List<WhitelistChange> changes) {
+        if (changes.isEmpty()) {
+            return this;
+        }
+        Set<String> newNames = new HashSet<>(names);
+        Map<UUID, String> newUuidNames = new HashMap<>(uuidNames);
+        for (WhitelistChange change : changes) {
+            boolean add = change.type() == WhitelistChange.Type.ADD;
+            if (change.uuid() != null) {
+                if (add) {
+                    newUuidNames.put(change.uuid(), change.name());
+                } else {
+                    newUuidNames.remove(change.uuid());
+                }
+            } else if (add) {
+                newNames.add(WhitelistManager.normalize(change.name()));
+            } else {
+                newNames.remove(WhitelistManager.normalize(change.name()));
+            }
+        }
+        return new WhitelistSnapshot(Set.copyOf(newNames), Map.copyOf(newUuidNames));
+    }
+
+    /**
+     * @return true if the name is whitelisted either as a name entry or as the display name of a UUID entry.
+     */
+    public boolean contains(String lowercaseName) {
+        return names.contains(lowercaseName) || uuidsByName.containsKey(lowercaseName);
+    }
+
+    /**
+     * Case-insensitive pre-check on a raw username. A false result means the name is certainly not
+     * whitelisted (neither as a name entry nor as a UUID display name).
+     */
+    public boolean mightContain(String username) {
+        return bloomFilter.mightContain(username);
+    }
+
+    public boolean contains(UUID uuid) {
+        return uuids.contains(uuid);
+    }
+
+    public boolean containsName(String lowercaseName) {
+        return names.contains(lowercaseName);
+    }
+
+    public UUID uuidByName(String lowercaseName) {
+        return uuidsByName.get(lowercaseName);
+    }
+
+    /**
+     * @return name entries only, without UUID entries.
+     */
+    public Set<String> names() {
+        return names;
+    }
+
+    public Map<UUID, String> uuidEntries() {
+        return uuidNames;
+    }
+
+    /**
+     * @return name entries plus display names of UUID entries, lowercase.
+     */
+    public Set<String> allNames() {
+        return allNames;
+    }
+
+    /**
+     * @return {@link #allNames()} in sorted order, for paged listings and prefix search. Built on first use.
+     */
+    public SortedNameIndex sortedNames() {
+        SortedNameIndex index = sortedNames;
+        if (index == null) {
+            index = new SortedNameIndex(allNames());
+            sortedNames = index;
+        }
+        return index;
+    }
+
+    public int size() {
+        return names.size() + uuidNames.size();
+    }
+}
@@ -0,0 +1,54 @@
+package me.PWRazer.keKWhiteList;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Storage backend for whitelist entries kept outside config.yml.
+ * Implementations are only called from the config writer thread or under the ConfigManager lock.
+ */
+public interface WhitelistStore {
+
+    /**
+     * @return true if the store already holds data (used to decide whether to migrate from config.yml).
+     */
+    boolean exists();
+
+    WhitelistSnapshot load() throws IOException;
+
+    /**
+     * Persists the changes made since the previous call. {@code snapshot} is what the store holds once
+     * {@code changes} are applied, for stores that rewrite themselves from time to time.
+     */
+    void write(WhitelistSnapshot snapshot, List<WhitelistChange> changes) throws IOException;
+
+    /**
+     * Replaces the stored contents with {@code snapshot}.
+     */
+    void rewrite(WhitelistSnapshot snapshot) throws IOException;
+
+    /**
+     * Returns changes made to the stored list by someone else (another proxy sharing the store) since the
+     * previous call. Stores that only this proxy writes return nothing.
+     */
+    default List<WhitelistChange> poll() throws IOException {
+        return List.of();
+    }
+
+    /**
+     * @return true if {@link #poll()} lost track of individual changes and the caller has to {@link #load()}
+     * the store in full; loading clears it.
+     */
+    default boolean isResyncRequired() {
+        return false;
+    }
+
+    /**
+     * @return bytes written since the last compaction, for metrics; 0 if the store does not compact.
+     */
+    default long backlogBytes() {
+        return 0;
+    }
+
+    void close() throws IOException;
+}
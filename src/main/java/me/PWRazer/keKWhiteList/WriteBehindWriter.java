@@ -0,0 +1,91 @@
+package me.PWRazer.keKWhiteList;
+
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Coalesces save requests: any number of {@link #markDirty()} calls inside the delay window
+ * result in a single write on a background thread. {@link #flush()} writes immediately on the caller's thread.
+ */
+public class WriteBehindWriter {
+    private final String name;
+    private final WriteAction writeAction;
+    private final Logger logger;
+    private final ScheduledExecutorService executor;
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private volatile long delayMillis;
+
+    public WriteBehindWriter(String name, long delayMillis, WriteAction writeAction, Logger logger) {
+        this.name = name;
+        this.delayMillis = delayMillis;
+        this.writeAction = writeAction;
+        this.logger = logger;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "KeKWhiteList-Writer-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void setDelayMillis(long delayMillis) {
+        this.delayMillis = Math.max(0, delayMillis);
+    }
+
+    public void markDirty() {
+        dirty.set(true);
+        if (scheduled.compareAndSet(false, true)) {
+            try {
+                executor.schedule(this::flushScheduled, delayMillis, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                scheduled.set(false);
+                flush();
+            }
+        }
+    }
+
+    public boolean isDirty() {
+        return dirty.get();
+    }
+
+    /**
+     * Writes pending changes now. Waits for a write already in progress, so on return everything
+     * marked dirty before the call is on disk (unless the write failed, in which case it is retried later).
+     */
+    public synchronized void flush() {
+        if (!dirty.getAndSet(false)) {
+            return;
+        }
+        try {
+            writeAction.write();
+        } catch (IOException | RuntimeException e) {
+            logger.error("Failed to write {}, will retry.", name, e);
+            if (!executor.isShutdown()) {
+                markDirty();
+            } else {
+                dirty.set(true);
+            }
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+        flush();
+    }
+
+    private void flushScheduled() {
+        scheduled.set(false);
+        flush();
+    }
+
+    @FunctionalInterface
+    public interface WriteAction {
+        void write() throws IOException;
+    }
+}
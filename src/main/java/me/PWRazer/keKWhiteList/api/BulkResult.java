@@ -0,0 +1,55 @@
+package me.PWRazer.keKWhiteList.api;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Результат пакетной операции с белым списком: статус для каждого переданного имени.
+ */
+public final class BulkResult {
+
+    /**
+     * Статус обработки одного имени.
+     */
+    public enum Status {
+        ADDED,
+        REMOVED,
+        ALREADY_WHITELISTED,
+        NOT_WHITELISTED,
+        INVALID
+    }
+
+    private final Map<String, Status> results;
+    private final Map<Status, Integer> counts;
+
+    BulkResult(Map<String, Status> results) {
+        this.results = Collections.unmodifiableMap(new LinkedHashMap<>(results));
+        Map<Status, Integer> counts = new EnumMap<>(Status.class);
+        results.values().forEach(status -> counts.merge(status, 1, Integer::sum));
+        this.counts = Collections.unmodifiableMap(counts);
+    }
+
+    /**
+     * @return Статусы по именам в порядке их передачи.
+     */
+    public Map<String, Status> getResults() {
+        return results;
+    }
+
+    /**
+     * @param status Статус.
+     * @return Количество имён с этим статусом.
+     */
+    public int count(Status status) {
+        return counts.getOrDefault(status, 0);
+    }
+
+    /**
+     * @return true, если белый список был изменён.
+     */
+    public boolean isChanged() {
+        return count(Status.ADDED) > 0 || count(Status.REMOVED) > 0;
+    }
+}
@@ -1,14 +1,32 @@
 package me.PWRazer.keKWhiteList.api;
 
+import me.PWRazer.keKWhiteList.CidrRange;
 import me.PWRazer.keKWhiteList.ConfigManager;
+import me.PWRazer.keKWhiteList.ExpiryScheduler;
 import me.PWRazer.keKWhiteList.WhitelistManager;
 import me.PWRazer.keKWhiteList.KeKWhiteList;
+import me.PWRazer.keKWhiteList.UuidResolver;
 
+import java.net.InetAddress;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
 /**
  * API для управления постоянным белым списком в плагине KeKWhiteList.
  * Все изменения белого списка сохраняются только в config.yml плагина KeKWhiteList.
+ * Запись на диск выполняется в фоне; используйте {@link #flush()}, если изменения должны быть на диске сразу.
  */
 public class KeKWhiteListAPI {
     private final KeKWhiteList plugin;
@@ -29,8 +47,51 @@ public class KeKWhiteListAPI {
      */
     public boolean isWhitelisted(String username) {
         if (username == null) return false;
-        String lowercaseUsername = username.toLowerCase();
-        return whitelistManager.isWhitelisted(lowercaseUsername);
+        return whitelistManager.isWhitelisted(username);
+    }
+
+    /**
+     * Проверяет, находится ли игрок в белом списке по UUID. Проверка не выделяет память.
+     *
+     * @param uuid UUID игрока.
+     * @return true, если UUID игрока в белом списке, иначе false.
+     */
+    public boolean isWhitelisted(UUID uuid) {
+        if (uuid == null) return false;
+        return whitelistManager.isWhitelisted(uuid);
+    }
+
+    /**
+     * Добавляет игрока в белый список по UUID. Имя хранится только для отображения.
+     *
+     * @param uuid     UUID игрока.
+     * @param username Имя игрока для отображения.
+     * @return true, если запись добавлена или обновлена, false, если она уже была такой же или имя некорректно.
+     */
+    public boolean addPlayer(UUID uuid, String username) {
+        if (uuid == null || !isValidUsername(username) || !whitelistManager.addPlayer(uuid, username)) {
+            return false;
+        }
+        configManager.saveConfig();
+        plugin.getLogger().info("Добавлен игрок {} ({}) в whitelist через API.", username, uuid);
+        audit("add", WhitelistManager.normalize(username), "added");
+        return true;
+    }
+
+    /**
+     * Удаляет игрока из белого списка по UUID.
+     *
+     * @param uuid UUID игрока.
+     * @return true, если игрок был удалён, false, если его UUID не было в белом списке.
+     */
+    public boolean removePlayer(UUID uuid) {
+        if (uuid == null || !whitelistManager.removePlayer(uuid)) {
+            return false;
+        }
+        configManager.saveConfig();
+        plugin.getLogger().info("Удалён игрок {} из whitelist через API.", uuid);
+        audit("remove", uuid.toString(), "removed");
+        return true;
     }
 
     /**
@@ -41,15 +102,125 @@ public class KeKWhiteListAPI {
      * @return true, если игрок успешно добавлен, false, если игрок уже в белом списке или имя некорректно.
      */
     public boolean addPlayer(String username) {
-        if (username == null || !isValidUsername(username) || isWhitelisted(username)) {
+        if (username == null || !isValidUsername(username) || !whitelistManager.addPlayer(username)) {
             return false;
         }
-        whitelistManager.addPlayer(username.toLowerCase());
         configManager.saveConfig(); // Сохраняет только в config.yml плагина KeKWhiteList
         plugin.getLogger().info("Добавлен игрок {} в whitelist через API.", username);
+        audit("add", WhitelistManager.normalize(username), "added");
         return true;
     }
 
+    /**
+     * Добавляет игрока, предварительно определив его UUID через резолвер плагина.
+     * Если UUID найден, игрок добавляется по UUID, иначе по имени. Вызывающий поток не блокируется.
+     *
+     * @param username Имя игрока.
+     * @return Future с true, если игрок добавлен, false, если он уже в белом списке или имя некорректно.
+     */
+    public CompletableFuture<Boolean> addPlayerAsync(String username) {
+        if (!isValidUsername(username)) {
+            return CompletableFuture.completedFuture(false);
+        }
+        return plugin.getUuidResolver().resolve(username)
+                .handle((uuid, throwable) -> throwable == null ? uuid.orElse(null) : null)
+                .thenApply(uuid -> {
+                    boolean added = whitelistManager.addResolvedPlayer(uuid, username);
+                    if (added) {
+                        configManager.saveConfig();
+                        plugin.getLogger().info("Добавлен игрок {} ({}) в whitelist через API.", username,
+                                uuid != null ? uuid : "по имени");
+                        audit("add", WhitelistManager.normalize(username), "added");
+                    }
+                    return added;
+                });
+    }
+
+    /**
+     * Добавляет игрока по имени на ограниченный срок. Если игрок уже добавлен временно, срок переносится.
+     *
+     * @param username Имя игрока.
+     * @param duration Срок, по истечении которого игрок будет удалён.
+     * @return true, если игрок добавлен или срок перенесён, false, если игрок уже в постоянном списке,
+     * имя некорректно или срок не положительный.
+     */
+    public boolean addTemporaryPlayer(String username, Duration duration) {
+        if (!isValidUsername(username) || duration == null || duration.isNegative() || duration.isZero()) {
+            return false;
+        }
+        ExpiryScheduler expiries = plugin.getExpiryScheduler();
+        boolean added = whitelistManager.addPlayer(username);
+        if (!added && !expiries.isScheduled(username)) {
+            return false;
+        }
+        expiries.expireAt(username, null, System.currentTimeMillis() + duration.toMillis());
+        if (added) {
+            configManager.saveConfig();
+        }
+        plugin.getLogger().info("Игрок {} добавлен в whitelist на {} через API.", username, duration);
+        audit("add:" + duration, WhitelistManager.normalize(username), added ? "added" : "extended");
+        return true;
+    }
+
+    /**
+     * Планирует добавление игрока по имени на интервал [start, end). Если start уже наступил,
+     * игрок добавляется сразу. Заменяет предыдущее расписание для этого имени.
+     *
+     * @param username Имя игрока.
+     * @param start    Момент добавления.
+     * @param end      Момент удаления.
+     * @return true, если расписание сохранено, false, если имя некорректно, интервал пустой
+     * или игрок уже в постоянном списке.
+     */
+    public boolean schedulePlayer(String username, Instant start, Instant end) {
+        if (!isValidUsername(username) || start == null || end == null || !end.isAfter(start)) {
+            return false;
+        }
+        ExpiryScheduler expiries = plugin.getExpiryScheduler();
+        if (whitelistManager.isWhitelisted(username) && !expiries.isScheduled(username)) {
+            return false;
+        }
+        expiries.schedule(username, null, start.toEpochMilli(), end.toEpochMilli());
+        audit("schedule:" + start + "/" + end, WhitelistManager.normalize(username), "scheduled");
+        return true;
+    }
+
+    /**
+     * Возвращает момент, когда временная запись игрока будет удалена.
+     *
+     * @param username Имя игрока.
+     * @return Момент удаления или пустой Optional, если запись постоянная или игрока нет в списке.
+     */
+    public Optional<Instant> getExpiry(String username) {
+        if (username == null) return Optional.empty();
+        long expiry = plugin.getExpiryScheduler().getExpiry(username);
+        return expiry < 0 ? Optional.empty() : Optional.of(Instant.ofEpochMilli(expiry));
+    }
+
+    /**
+     * Делает временную запись постоянной или отменяет ещё не начавшееся расписание.
+     *
+     * @param username Имя игрока.
+     * @return true, если у игрока было расписание.
+     */
+    public boolean cancelExpiry(String username) {
+        if (username == null || !plugin.getExpiryScheduler().cancel(username)) {
+            return false;
+        }
+        audit("cancel-expiry", WhitelistManager.normalize(username), "cancelled");
+        return true;
+    }
+
+    /**
+     * Заменяет резолвер имён в UUID, например на реализацию с запросами к Mojang API.
+     * Результаты резолвера кешируются плагином, одновременные запросы одного имени объединяются.
+     *
+     * @param resolver Новый резолвер.
+     */
+    public void setUuidResolver(UuidResolver resolver) {
+        plugin.setUuidResolver(resolver);
+    }
+
     /**
      * Удаляет игрока из постоянного белого списка.
      * Сохраняет изменения только в config.yml плагина KeKWhiteList.
@@ -59,15 +230,74 @@ public class KeKWhiteListAPI {
      */
     public boolean removePlayer(String username) {
         if (username == null) return false;
-        String lowercaseUsername = username.toLowerCase();
-        boolean removed = whitelistManager.removePlayer(lowercaseUsername);
+        boolean removed = whitelistManager.removePlayer(username);
         if (removed) {
             configManager.saveConfig(); // Сохраняет только в config.yml плагина KeKWhiteList
             plugin.getLogger().info("Удалён игрок {} из whitelist через API.", username);
+            audit("remove", WhitelistManager.normalize(username), "removed");
         }
         return removed;
     }
 
+    /**
+     * Добавляет несколько игроков за одну операцию: имена проверяются за один проход,
+     * список меняется одной атомарной заменой и сохраняется один раз.
+     *
+     * @param usernames Имена игроков.
+     * @return Статус для каждого имени: ADDED, ALREADY_WHITELISTED или INVALID.
+     */
+    public BulkResult addPlayers(Collection<String> usernames) {
+        Map<String, BulkResult.Status> results = new LinkedHashMap<>();
+        List<String> valid = validate(usernames, results);
+        WhitelistManager.Diff diff = whitelistManager.apply(valid, List.of());
+        for (String username : valid) {
+            boolean added = diff.added().contains(WhitelistManager.normalize(username));
+            results.putIfAbsent(username, added ? BulkResult.Status.ADDED : BulkResult.Status.ALREADY_WHITELISTED);
+        }
+        return finishBulk("добавлено", diff.added().size(), results);
+    }
+
+    /**
+     * Удаляет несколько игроков за одну операцию с одним сохранением.
+     *
+     * @param usernames Имена игроков.
+     * @return Статус для каждого имени: REMOVED или NOT_WHITELISTED.
+     */
+    public BulkResult removePlayers(Collection<String> usernames) {
+        Map<String, BulkResult.Status> results = new LinkedHashMap<>();
+        List<String> names = new ArrayList<>();
+        for (String username : usernames) {
+            if (username != null) {
+                names.add(username);
+            }
+        }
+        WhitelistManager.Diff diff = whitelistManager.apply(List.of(), names);
+        for (String username : names) {
+            boolean removed = diff.removed().contains(WhitelistManager.normalize(username));
+            results.putIfAbsent(username, removed ? BulkResult.Status.REMOVED : BulkResult.Status.NOT_WHITELISTED);
+        }
+        return finishBulk("удалено", diff.removed().size(), results);
+    }
+
+    /**
+     * Заменяет весь белый список переданным набором имён одной атомарной операцией.
+     * Некорректные имена пропускаются. В отчёт попадают и игроки, удалённые из списка.
+     *
+     * @param usernames Новый состав белого списка.
+     * @return Статус для каждого имени: ADDED, ALREADY_WHITELISTED, REMOVED или INVALID.
+     */
+    public BulkResult replaceAll(Collection<String> usernames) {
+        Map<String, BulkResult.Status> results = new LinkedHashMap<>();
+        List<String> valid = validate(usernames, results);
+        WhitelistManager.Diff diff = whitelistManager.replaceWith(valid);
+        for (String username : valid) {
+            boolean added = diff.added().contains(WhitelistManager.normalize(username));
+            results.putIfAbsent(username, added ? BulkResult.Status.ADDED : BulkResult.Status.ALREADY_WHITELISTED);
+        }
+        diff.removed().forEach(name -> results.putIfAbsent(name, BulkResult.Status.REMOVED));
+        return finishBulk("заменено", diff.added().size() + diff.removed().size(), results);
+    }
+
     /**
      * Получает список игроков в постоянном белом списке.
      *
@@ -96,15 +326,257 @@ public class KeKWhiteListAPI {
         configManager.setWhitelistEnabled(enabled);
         configManager.saveConfig();
         plugin.getLogger().info("Состояние whitelist изменено на {} через API.", enabled);
+        audit(enabled ? "enable" : "disable", "-", enabled ? "enabled" : "disabled");
     }
 
     /**
-     * Перезагружает конфигурацию и языковые файлы плагина KeKWhiteList.
+     * Возвращает счётчики входов и сохранений и перцентили их длительности.
+     * Вызов дешёвый и не блокирует проверки входа.
+     *
+     * @return Снимок метрик.
+     */
+    public WhitelistStats getStats() {
+        return new WhitelistStats(plugin.getMetrics(), whitelistManager.snapshot().size());
+    }
+
+    /**
+     * Немедленно записывает на диск все отложенные изменения белого списка и настроек.
+     */
+    public void flush() {
+        configManager.flush();
+    }
+
+    /**
+     * Перезагружает конфигурацию, группы и языковые файлы плагина KeKWhiteList и ждёт завершения.
+     * Во время перезагрузки проверки входа используют прежний список.
      */
     public void reload() {
-        configManager.loadConfig();
-        plugin.getLanguageManager().loadLanguage(configManager.getLanguage());
-        plugin.getLogger().info("Конфигурация KeKWhiteList перезагружена через API.");
+        reloadAsync().join();
+    }
+
+    /**
+     * Перезагружает конфигурацию и языковые файлы в фоновом потоке плагина.
+     *
+     * @return Future с true, если config.yml загружен, false, если загрузить не удалось и оставлен текущий список.
+     */
+    public CompletableFuture<Boolean> reloadAsync() {
+        return plugin.getConfigReloader().reload().thenApply(diff -> {
+            if (diff == null) {
+                return false;
+            }
+            plugin.getLogger().info("Конфигурация KeKWhiteList перезагружена через API: добавлено {}, удалено {}.",
+                    diff.addedCount(), diff.removedCount());
+            return true;
+        });
+    }
+
+    /**
+     * Сбрасывает закешированное решение о праве kekwhitelist.bypass для игрока. Вызывайте после изменения
+     * его прав, чтобы новое значение учитывалось при следующем входе, а не по истечении bypass-cache-ttl-seconds.
+     *
+     * @param uuid UUID игрока.
+     */
+    public void invalidateBypass(UUID uuid) {
+        if (uuid != null) {
+            plugin.getBypassCache().invalidate(uuid);
+        }
+    }
+
+    /**
+     * Сбрасывает все закешированные решения о праве kekwhitelist.bypass.
+     */
+    public void invalidateAllBypass() {
+        plugin.getBypassCache().invalidateAll();
+    }
+
+    /**
+     * Проверяет, попадает ли адрес в один из IP-диапазонов белого списка.
+     *
+     * @param address Адрес подключения, например {@code player.getRemoteAddress().getAddress()}.
+     * @return true, если адрес входит в один из диапазонов.
+     */
+    public boolean isWhitelisted(InetAddress address) {
+        return whitelistManager.isWhitelisted(address);
+    }
+
+    /**
+     * Добавляет IP-диапазон в белый список. Диапазоны хранятся в config.yml.
+     *
+     * @param cidr Адрес или диапазон, например {@code 10.0.0.0/8} или {@code 2001:db8::/32}.
+     * @return true, если диапазон добавлен, false, если он уже есть или записан некорректно.
+     */
+    public boolean addIpRule(String cidr) {
+        CidrRange range = CidrRange.parse(cidr);
+        if (range == null || !whitelistManager.addIpRule(range)) {
+            return false;
+        }
+        configManager.saveIpRules();
+        plugin.getLogger().info("Добавлен диапазон {} в whitelist через API.", range);
+        audit("addip", range.toString(), "changed");
+        return true;
+    }
+
+    /**
+     * Удаляет IP-диапазон из белого списка.
+     *
+     * @param cidr Диапазон в том же виде, в каком он был добавлен (адрес без префикса означает /32 или /128).
+     * @return true, если диапазон был удалён.
+     */
+    public boolean removeIpRule(String cidr) {
+        CidrRange range = CidrRange.parse(cidr);
+        if (range == null || !whitelistManager.removeIpRule(range)) {
+            return false;
+        }
+        configManager.saveIpRules();
+        plugin.getLogger().info("Удалён диапазон {} из whitelist через API.", range);
+        audit("removeip", range.toString(), "changed");
+        return true;
+    }
+
+    /**
+     * Возвращает IP-диапазоны белого списка.
+     *
+     * @return Диапазоны в виде {@code адрес/префикс}.
+     */
+    public Set<String> getIpRules() {
+        return whitelistManager.getIpRules().stream()
+                .map(CidrRange::toString)
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    /**
+     * Создаёт группу whitelist для backend-серверов.
+     *
+     * @param group Имя группы: 1-32 символа, строчные буквы, цифры, '_' и '-'.
+     * @return true, если группа создана, false, если имя некорректно или группа уже есть.
+     */
+    public boolean createGroup(String group) {
+        return audited(plugin.getGroupManager().createGroup(group), "group-create", group, "created");
+    }
+
+    /**
+     * Удаляет группу. Серверы, для которых она была единственной, становятся открытыми.
+     *
+     * @param group Имя группы.
+     * @return true, если группа была удалена.
+     */
+    public boolean deleteGroup(String group) {
+        return audited(plugin.getGroupManager().deleteGroup(group), "group-delete", group, "deleted");
+    }
+
+    /**
+     * Добавляет игрока в группу по имени.
+     *
+     * @param group    Имя группы.
+     * @param username Имя игрока.
+     * @return true, если игрок добавлен, false, если группы нет, имя некорректно или игрок уже в группе.
+     */
+    public boolean addToGroup(String group, String username) {
+        return addToGroup(group, null, username);
+    }
+
+    /**
+     * Добавляет игрока в группу по UUID: участник остаётся в группе после смены ника,
+     * а новый владелец старого ника в неё не попадает.
+     *
+     * @param group    Имя группы.
+     * @param uuid     UUID аккаунта или null, чтобы добавить по имени.
+     * @param username Имя игрока, хранится для списка участников.
+     * @return true, если игрок добавлен, false, если группы нет, имя некорректно или игрок уже в группе.
+     */
+    public boolean addToGroup(String group, UUID uuid, String username) {
+        return audited(plugin.getGroupManager().addMember(group, uuid, username), "group-add:" + group,
+                username, "group-added");
+    }
+
+    /**
+     * Удаляет игрока из группы.
+     *
+     * @param group    Имя группы.
+     * @param username Имя игрока.
+     * @return true, если игрок был в группе и удалён.
+     */
+    public boolean removeFromGroup(String group, String username) {
+        return username != null && audited(plugin.getGroupManager().removeMember(group, username),
+                "group-remove:" + group, username, "group-removed");
+    }
+
+    /**
+     * Назначает группу backend-серверу: на сервер пускаются только участники назначенных ему групп.
+     *
+     * @param group  Имя группы.
+     * @param server Имя сервера из конфигурации Velocity.
+     * @return true, если назначение добавлено, false, если группы нет или она уже назначена.
+     */
+    public boolean assignServer(String group, String server) {
+        return server != null && audited(plugin.getGroupManager().assignServer(group, server),
+                "group-assign:" + server, group, "group-assigned");
+    }
+
+    /**
+     * Снимает группу с backend-сервера.
+     *
+     * @param group  Имя группы.
+     * @param server Имя сервера.
+     * @return true, если назначение было снято.
+     */
+    public boolean unassignServer(String group, String server) {
+        return server != null && audited(plugin.getGroupManager().unassignServer(group, server),
+                "group-unassign:" + server, group, "group-unassigned");
+    }
+
+    /**
+     * Проверяет, состоит ли игрок в группе.
+     *
+     * @param group    Имя группы.
+     * @param username Имя игрока.
+     * @return true, если игрок в группе.
+     */
+    public boolean isInGroup(String group, String username) {
+        return username != null && plugin.getGroupManager().isMember(group, username);
+    }
+
+    /**
+     * Проверяет, пустят ли игрока на backend-сервер по группам (без учёта права kekwhitelist.bypass).
+     *
+     * @param username Имя игрока.
+     * @param server   Имя сервера.
+     * @return true, если у сервера нет групп или игрок состоит хотя бы в одной из них.
+     */
+    public boolean canJoinServer(String username, String server) {
+        return canJoinServer(null, username, server);
+    }
+
+    /**
+     * Проверяет, пустят ли игрока на backend-сервер по группам, учитывая участников, добавленных по UUID
+     * (без учёта права kekwhitelist.bypass).
+     *
+     * @param uuid     UUID игрока или null, чтобы проверить только по имени.
+     * @param username Имя игрока.
+     * @param server   Имя сервера.
+     * @return true, если у сервера нет групп или игрок состоит хотя бы в одной из них по UUID или по имени.
+     */
+    public boolean canJoinServer(UUID uuid, String username, String server) {
+        return username != null && server != null && plugin.getGroupManager().canJoin(uuid, username, server);
+    }
+
+    /**
+     * Возвращает группы и назначенные им серверы.
+     *
+     * @return Неизменяемая карта: имя группы -> серверы, отсортированная по имени группы.
+     */
+    public Map<String, Set<String>> getGroups() {
+        return Collections.unmodifiableMap(plugin.getGroupManager().getGroups());
+    }
+
+    /**
+     * Возвращает участников группы.
+     *
+     * @param group Имя группы.
+     * @return Имена участников в нижнем регистре по алфавиту, пустой список, если группы нет.
+     */
+    public List<String> getGroupMembers(String group) {
+        return List.copyOf(plugin.getGroupManager().getMembers(group));
     }
 
     /**
@@ -114,6 +586,47 @@ public class KeKWhiteListAPI {
      * @return true, если имя валидно, иначе false.
      */
     private boolean isValidUsername(String username) {
-        return username != null && username.matches("[a-zA-Z0-9_]{3,16}");
+        return WhitelistManager.isValidUsername(username);
+    }
+
+    private List<String> validate(Collection<String> usernames, Map<String, BulkResult.Status> results) {
+        List<String> valid = new ArrayList<>(usernames.size());
+        for (String username : usernames) {
+            if (username == null) {
+                continue;
+            }
+            if (isValidUsername(username)) {
+                valid.add(username);
+            } else {
+                results.put(username, BulkResult.Status.INVALID);
+            }
+        }
+        return valid;
+    }
+
+    private BulkResult finishBulk(String action, int changed, Map<String, BulkResult.Status> results) {
+        if (changed > 0) {
+            configManager.saveConfig();
+            plugin.getLogger().info("Пакетная операция через API: {} {} записей whitelist.", action, changed);
+            results.forEach((username, status) -> {
+                if (status == BulkResult.Status.ADDED) {
+                    audit("bulk-add", WhitelistManager.normalize(username), "added");
+                } else if (status == BulkResult.Status.REMOVED) {
+                    audit("bulk-remove", WhitelistManager.normalize(username), "removed");
+                }
+            });
+        }
+        return new BulkResult(results);
+    }
+
+    private void audit(String action, String target, String result) {
+        plugin.getAuditLog().change("api", action, target, result);
+    }
+
+    private boolean audited(boolean changed, String action, String target, String result) {
+        if (changed) {
+            audit(action, target.toLowerCase(Locale.ROOT), result);
+        }
+        return changed;
     }
 }
\ No newline at end of file
@@ -0,0 +1,135 @@
+package me.PWRazer.keKWhiteList.api;
+
+import me.PWRazer.keKWhiteList.LatencyHistogram;
+import me.PWRazer.keKWhiteList.WhitelistMetrics;
+
+/**
+ * Снимок метрик плагина на момент вызова {@link KeKWhiteListAPI#getStats()}.
+ * Счётчики накапливаются с запуска прокси, длительности указаны в наносекундах.
+ */
+public class WhitelistStats {
+    private final long allowedLogins;
+    private final long deniedLogins;
+    private final long bypassedLogins;
+    private final long fallbackDecisions;
+    private final long decisionP50Nanos;
+    private final long decisionP99Nanos;
+    private final long decisionMaxNanos;
+    private final long saves;
+    private final long saveFailures;
+    private final long saveP99Nanos;
+    private final long reloads;
+    private final long reloadP99Nanos;
+    private final long loginQueueDepth;
+    private final long pendingChanges;
+    private final long journalBytes;
+    private final int whitelistSize;
+
+    WhitelistStats(WhitelistMetrics metrics, int whitelistSize) {
+        LatencyHistogram decisions = metrics.getDecisionLatency();
+        this.allowedLogins = metrics.getAllowedLogins();
+        this.deniedLogins = metrics.getDeniedLogins();
+        this.bypassedLogins = metrics.getBypassedLogins();
+        this.fallbackDecisions = metrics.getFallbackDecisions();
+        this.decisionP50Nanos = decisions.percentileNanos(0.5);
+        this.decisionP99Nanos = decisions.percentileNanos(0.99);
+        this.decisionMaxNanos = decisions.maxNanos();
+        this.saves = metrics.getSaves();
+        this.saveFailures = metrics.getSaveFailures();
+        this.saveP99Nanos = metrics.getSaveLatency().percentileNanos(0.99);
+        this.reloads = metrics.getReloads();
+        this.reloadP99Nanos = metrics.getReloadLatency().percentileNanos(0.99);
+        this.loginQueueDepth = metrics.getLoginQueueDepth();
+        this.pendingChanges = metrics.getPendingChanges();
+        this.journalBytes = metrics.getJournalBytes();
+        this.whitelistSize = whitelistSize;
+    }
+
+    /**
+     * @return Число разрешённых входов, включая входы по праву kekwhitelist.bypass.
+     */
+    public long getAllowedLogins() {
+        return allowedLogins;
+    }
+
+    /**
+     * @return Число отклонённых входов, включая отказы на этапе PreLoginEvent.
+     */
+    public long getDeniedLogins() {
+        return deniedLogins;
+    }
+
+    /**
+     * @return Число входов, разрешённых только по праву kekwhitelist.bypass.
+     */
+    public long getBypassedLogins() {
+        return bypassedLogins;
+    }
+
+    /**
+     * @return Число входов, решённых политикой login-check-fail-open из-за таймаута, переполнения очереди или ошибки.
+     */
+    public long getFallbackDecisions() {
+        return fallbackDecisions;
+    }
+
+    public long getDecisionP50Nanos() {
+        return decisionP50Nanos;
+    }
+
+    public long getDecisionP99Nanos() {
+        return decisionP99Nanos;
+    }
+
+    public long getDecisionMaxNanos() {
+        return decisionMaxNanos;
+    }
+
+    /**
+     * @return Число успешных записей на диск.
+     */
+    public long getSaves() {
+        return saves;
+    }
+
+    public long getSaveFailures() {
+        return saveFailures;
+    }
+
+    public long getSaveP99Nanos() {
+        return saveP99Nanos;
+    }
+
+    public long getReloads() {
+        return reloads;
+    }
+
+    public long getReloadP99Nanos() {
+        return reloadP99Nanos;
+    }
+
+    /**
+     * @return Число проверок входа, ожидающих в очереди.
+     */
+    public long getLoginQueueDepth() {
+        return loginQueueDepth;
+    }
+
+    /**
+     * @return Число изменений белого списка, ещё не записанных на диск.
+     */
+    public long getPendingChanges() {
+        return pendingChanges;
+    }
+
+    /**
+     * @return Размер журнала с момента последнего сжатия; 0 при storage: yaml.
+     */
+    public long getJournalBytes() {
+        return journalBytes;
+    }
+
+    public int getWhitelistSize() {
+        return whitelistSize;
+    }
+}
@@ -0,0 +1,111 @@
+package me.PWRazer.keKWhiteList;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.helpers.NOPLogger;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdmissionThrottleTest {
+
+    @TempDir
+    Path directory;
+
+    private ConfigManager configManager;
+
+    @AfterEach
+    void shutdown() {
+        if (configManager != null) {
+            configManager.shutdown();
+        }
+    }
+
+    @Test
+    void addressIsThrottledAfterBurst() throws IOException {
+        AdmissionThrottle throttle = throttle("throttle-burst: 3\nthrottle-per-minute: 60\n");
+        InetAddress address = InetAddress.getByName("203.0.113.7");
+        for (int i = 0; i < 3; i++) {
+            throttle.recordDenial(address);
+            assertFalse(throttle.isThrottled(address), "after " + (i + 1) + " denials");
+        }
+        throttle.recordDenial(address);
+        assertTrue(throttle.isThrottled(address));
+        assertFalse(throttle.isThrottled(InetAddress.getByName("203.0.113.8")));
+        assertEquals(1, throttle.getTrackedAddresses());
+    }
+
+    @Test
+    void ipv6AddressesShareTheirSlash64() throws IOException {
+        AdmissionThrottle throttle = throttle("throttle-burst: 1\nthrottle-per-minute: 60\n");
+        throttle.recordDenial(InetAddress.getByName("2001:db8:1:2::1"));
+        throttle.recordDenial(InetAddress.getByName("2001:db8:1:2::ffff"));
+        assertTrue(throttle.isThrottled(InetAddress.getByName("2001:db8:1:2:abcd::5")));
+        assertFalse(throttle.isThrottled(InetAddress.getByName("2001:db8:1:3::1")));
+    }
+
+    @Test
+    void reconnectLoopDrainsWithinOneIntervalOfStopping() throws Exception {
+        // 10 ms per token, so a capped bucket is full again after at most (burst + 1) x 10 ms
+        AdmissionThrottle throttle = throttle("throttle-burst: 2\nthrottle-per-minute: 6000\n");
+        InetAddress address = InetAddress.getByName("198.51.100.1");
+        for (int i = 0; i < 1000; i++) {
+            throttle.recordDenial(address);
+        }
+        assertTrue(throttle.isThrottled(address));
+        Thread.sleep(60);
+        assertFalse(throttle.isThrottled(address));
+        throttle.evictIdle();
+        assertEquals(0, throttle.getTrackedAddresses());
+    }
+
+    @Test
+    void trackedAddressesAreCapped() throws IOException {
+        AdmissionThrottle throttle = throttle("throttle-burst: 1\nthrottle-per-minute: 60\nthrottle-max-tracked: 2\n");
+        for (int i = 1; i <= 5; i++) {
+            InetAddress address = InetAddress.getByName("192.0.2." + i);
+            throttle.recordDenial(address);
+            throttle.recordDenial(address);
+        }
+        assertEquals(2, throttle.getTrackedAddresses());
+        assertTrue(throttle.isThrottled(InetAddress.getByName("192.0.2.1")));
+        assertFalse(throttle.isThrottled(InetAddress.getByName("192.0.2.5")));
+    }
+
+    @Test
+    void manyAddressesOverloadTheGlobalBucket() throws IOException {
+        AdmissionThrottle throttle = throttle("throttle-global-denials-per-second: 5\n");
+        for (int i = 1; i <= 5; i++) {
+            throttle.recordDenial(InetAddress.getByName("192.0.2." + i));
+        }
+        assertFalse(throttle.isOverloaded());
+        throttle.recordDenial(null);
+        assertTrue(throttle.isOverloaded());
+    }
+
+    @Test
+    void disabledThrottleNeverRejects() throws IOException {
+        AdmissionThrottle throttle = throttle("throttle: false\nthrottle-burst: 1\nthrottle-global-denials-per-second: 1\n");
+        InetAddress address = InetAddress.getByName("203.0.113.7");
+        for (int i = 0; i < 10; i++) {
+            throttle.recordDenial(address);
+        }
+        assertFalse(throttle.isThrottled(address));
+        assertFalse(throttle.isOverloaded());
+        assertEquals(0, throttle.getTrackedAddresses());
+    }
+
+    private AdmissionThrottle throttle(String settings) throws IOException {
+        Files.writeString(directory.resolve("config.yml"), "whitelist: true\n" + settings);
+        configManager = new ConfigManager(directory, NOPLogger.NOP_LOGGER, new WhitelistManager(), new WhitelistMetrics());
+        configManager.loadConfig();
+        return new AdmissionThrottle(configManager);
+    }
+}
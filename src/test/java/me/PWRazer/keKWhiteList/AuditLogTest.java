@@ -0,0 +1,173 @@
+package me.PWRazer.keKWhiteList;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.helpers.NOPLogger;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AuditLogTest {
+
+    @TempDir
+    Path directory;
+
+    private ConfigManager configManager;
+    private AuditLog auditLog;
+
+    @AfterEach
+    void shutdown() {
+        if (auditLog != null) {
+            auditLog.shutdown();
+        }
+        if (configManager != null) {
+            configManager.shutdown();
+        }
+    }
+
+    @Test
+    void loginsLeaveRoomForChangesWhenTheBufferFills() throws IOException {
+        WhitelistMetrics metrics = new WhitelistMetrics();
+        // Capacity rounds up to 32 slots; logins may use 24 of them
+        auditLog = auditLog("", metrics, 32);
+        for (int i = 0; i < 40; i++) {
+            auditLog.login("Bot" + i, "denied");
+        }
+        assertEquals(16, metrics.getAuditDrops());
+        for (int i = 0; i < 10; i++) {
+            auditLog.change("console", "add", "player" + i, "added");
+        }
+        assertEquals(18, metrics.getAuditDrops());
+
+        auditLog.start();
+        auditLog.shutdown();
+        List<String> lines = Files.readAllLines(directory.resolve("audit/audit.ndjson"));
+        assertEquals(32, lines.size());
+        assertTrue(lines.get(0).contains("\"target\":\"bot0\""), lines.get(0));
+        assertTrue(lines.get(31).contains("\"target\":\"player7\""), lines.get(31));
+    }
+
+    @Test
+    void bulkChangesLargerThanTheBufferWaitInsteadOfDropping() throws IOException {
+        WhitelistMetrics metrics = new WhitelistMetrics();
+        auditLog = auditLog("", metrics, 32);
+        auditLog.start();
+        // One record per name, as an import of a large file writes them
+        for (int i = 0; i < 5000; i++) {
+            auditLog.change("console", "import:players.txt", "player" + i, "added");
+        }
+        auditLog.shutdown();
+
+        assertEquals(0, metrics.getAuditDrops());
+        List<String> lines = Files.readAllLines(directory.resolve("audit/audit.ndjson"));
+        assertEquals(5000, lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            assertEquals("player" + i, AuditLog.Record.parse(lines.get(i)).target());
+        }
+    }
+
+    @Test
+    void historyIsNewestFirstAndStopsAtLimit() throws IOException {
+        auditLog = auditLog("", new WhitelistMetrics(), 1024);
+        auditLog.start();
+        for (int i = 0; i < 20; i++) {
+            auditLog.change("console", i % 2 == 0 ? "add" : "remove", "alice", "r" + i);
+            auditLog.change("console", "add", "bob", "r" + i);
+        }
+        auditLog.shutdown();
+
+        List<AuditLog.Record> history = auditLog.history("alice", 5);
+        assertEquals(List.of("r19", "r18", "r17", "r16", "r15"), history.stream().map(AuditLog.Record::result).toList());
+        assertEquals("remove", history.get(0).action());
+        assertEquals(20, auditLog.history("bob", 100).size());
+        assertTrue(auditLog.history("carol", 10).isEmpty());
+    }
+
+    @Test
+    void rotationLimitsFileSizeInUtf8Bytes() throws IOException {
+        auditLog = auditLog("audit-max-file-bytes: 4096\naudit-max-files: 2\n", new WhitelistMetrics(), 4096);
+        auditLog.start();
+        String target = "игрок-" + "ж".repeat(40);
+        for (int i = 0; i < 300; i++) {
+            auditLog.change("console", "add", target, "r" + i);
+        }
+        auditLog.shutdown();
+
+        int lineBytes = Files.readAllLines(directory.resolve("audit/audit.1.ndjson")).get(0).getBytes(StandardCharsets.UTF_8).length + 1;
+        for (String name : List.of("audit.ndjson", "audit.1.ndjson", "audit.2.ndjson")) {
+            long size = Files.size(directory.resolve("audit").resolve(name));
+            assertTrue(size < 4096 + lineBytes, name + " is " + size + " bytes");
+        }
+        assertFalse(Files.exists(directory.resolve("audit/audit.3.ndjson")));
+
+        // The newest records survive rotation, read across files in order
+        List<AuditLog.Record> history = auditLog.history(target, 40);
+        assertEquals(40, history.size());
+        for (int i = 0; i < history.size(); i++) {
+            assertEquals("r" + (299 - i), history.get(i).result());
+        }
+    }
+
+    @Test
+    void concurrentProducersLoseNothing() throws Exception {
+        WhitelistMetrics metrics = new WhitelistMetrics();
+        auditLog = auditLog("", metrics, 65536);
+        auditLog.start();
+        int threads = 4;
+        int perThread = 5000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> producers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            String actor = "producer" + t;
+            Thread producer = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    auditLog.change(actor, "add", actor + "-" + i, "added");
+                }
+            });
+            producer.start();
+            producers.add(producer);
+        }
+        start.countDown();
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        auditLog.shutdown();
+
+        assertEquals(0, metrics.getAuditDrops());
+        List<String> lines = Files.readAllLines(directory.resolve("audit/audit.ndjson"));
+        assertEquals(threads * perThread, lines.size());
+        Set<String> targets = new HashSet<>();
+        int[] next = new int[threads];
+        for (String line : lines) {
+            AuditLog.Record record = AuditLog.Record.parse(line);
+            assertTrue(targets.add(record.target()), record.target());
+            int producer = record.actor().charAt(record.actor().length() - 1) - '0';
+            // Each producer's records keep their order
+            assertEquals(record.actor() + "-" + next[producer]++, record.target());
+        }
+    }
+
+    private AuditLog auditLog(String settings, WhitelistMetrics metrics, int capacity) throws IOException {
+        Files.writeString(directory.resolve("config.yml"), "whitelist: true\n" + settings);
+        configManager = new ConfigManager(directory, NOPLogger.NOP_LOGGER, new WhitelistManager(), metrics);
+        configManager.loadConfig();
+        return new AuditLog(directory, configManager, metrics, NOPLogger.NOP_LOGGER, capacity);
+    }
+}
@@ -0,0 +1,139 @@
+package me.PWRazer.keKWhiteList;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CidrMatcherTest {
+
+    @Test
+    void shorterRangeInsertedLaterCoversLongerOne() throws UnknownHostException {
+        for (List<String> order : List.of(List.of("10.1.2.0/24", "10.1.0.0/16"), List.of("10.1.0.0/16", "10.1.2.0/24"))) {
+            CidrMatcher matcher = matcher(order);
+            assertTrue(matcher.matches(address("10.1.2.3")), order.toString());
+            assertTrue(matcher.matches(address("10.1.200.1")), order.toString());
+            assertFalse(matcher.matches(address("10.2.0.1")), order.toString());
+        }
+    }
+
+    @Test
+    void siblingRangesShareABranch() throws UnknownHostException {
+        CidrMatcher matcher = matcher(List.of("192.168.1.0/24", "192.168.2.0/24", "192.168.1.128/25", "192.168.2.7"));
+        assertTrue(matcher.matches(address("192.168.1.1")));
+        assertTrue(matcher.matches(address("192.168.2.255")));
+        // The branch point 192.168.0.0/22 is not itself a range
+        assertFalse(matcher.matches(address("192.168.0.1")));
+        assertFalse(matcher.matches(address("192.168.3.1")));
+    }
+
+    @Test
+    void singleAddressesAndWholeSpace() throws UnknownHostException {
+        CidrMatcher matcher = matcher(List.of("1.2.3.4", "1.2.3.6"));
+        assertTrue(matcher.matches(address("1.2.3.4")));
+        assertFalse(matcher.matches(address("1.2.3.5")));
+        assertTrue(matcher.matches(address("1.2.3.6")));
+
+        CidrMatcher everything = matcher(List.of("1.2.3.4", "0.0.0.0/0"));
+        assertTrue(everything.matches(address("255.255.255.255")));
+        assertFalse(everything.matches(address("::1")));
+    }
+
+    @Test
+    void familiesAreSeparate() throws UnknownHostException {
+        CidrMatcher matcher = matcher(List.of("2001:db8::/32", "10.0.0.0/8"));
+        assertTrue(matcher.matches(address("2001:db8:1::5")));
+        assertFalse(matcher.matches(address("2001:db9::1")));
+        assertTrue(matcher.matches(address("10.9.9.9")));
+        // IPv4-compatible IPv6 form of 10.0.0.1
+        assertFalse(matcher.matches(address("::a00:1")));
+        assertFalse(CidrMatcher.EMPTY.matches(address("10.0.0.1")));
+    }
+
+    @Test
+    void invalidRangesAreRejected() {
+        assertNull(CidrRange.parse("10.0.0.0/33"));
+        assertNull(CidrRange.parse("2001:db8::/129"));
+        assertNull(CidrRange.parse("example.com"));
+        assertNull(CidrRange.parse("10.0.0/8"));
+    }
+
+    /**
+     * Random overlapping IPv4 ranges packed into a small space, inserted in several orders, against a linear scan.
+     */
+    @Test
+    void overlappingIpv4RangesMatchLinearScan() throws UnknownHostException {
+        Random random = new Random(42);
+        for (int round = 0; round < 200; round++) {
+            List<CidrRange> ranges = new ArrayList<>();
+            int count = 1 + random.nextInt(20);
+            for (int i = 0; i < count; i++) {
+                int length = 16 + random.nextInt(17);
+                ranges.add(CidrRange.parse("10.7." + random.nextInt(4) + "." + random.nextInt(256) + "/" + length));
+            }
+            for (int shuffle = 0; shuffle < 3; shuffle++) {
+                Collections.shuffle(ranges, random);
+                CidrMatcher matcher = CidrMatcher.of(ranges);
+                for (int probe = 0; probe < 200; probe++) {
+                    InetAddress address = address("10.7." + random.nextInt(5) + "." + random.nextInt(256));
+                    assertEquals(linearScan(ranges, address), matcher.matches(address), ranges + " " + address);
+                }
+            }
+        }
+    }
+
+    @Test
+    void overlappingIpv6RangesAcrossTheHalfBoundaryMatchLinearScan() throws UnknownHostException {
+        Random random = new Random(7);
+        for (int round = 0; round < 200; round++) {
+            List<CidrRange> ranges = new ArrayList<>();
+            int count = 1 + random.nextInt(20);
+            for (int i = 0; i < count; i++) {
+                // Prefixes of 56..72 bits put branch points on both sides of bit 64
+                int length = 56 + random.nextInt(17);
+                ranges.add(CidrRange.parse("2001:db8:0:" + Integer.toHexString(random.nextInt(4)) + ":"
+                        + Integer.toHexString(random.nextInt(0x400)) + "::/" + length));
+            }
+            CidrMatcher matcher = CidrMatcher.of(ranges);
+            for (int probe = 0; probe < 200; probe++) {
+                InetAddress address = address("2001:db8:0:" + Integer.toHexString(random.nextInt(5)) + ":"
+                        + Integer.toHexString(random.nextInt(0x400)) + "::" + Integer.toHexString(random.nextInt(16)));
+                assertEquals(linearScan(ranges, address), matcher.matches(address), ranges + " " + address);
+            }
+        }
+    }
+
+    private static boolean linearScan(List<CidrRange> ranges, InetAddress address) {
+        CidrRange single = CidrRange.parse(address.getHostAddress());
+        for (CidrRange range : ranges) {
+            if (range.ipv6() == single.ipv6() && contains(range, single.hi(), single.lo())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean contains(CidrRange range, long hi, long lo) {
+        int length = range.prefixLength();
+        long hiMask = CidrRange.mask(Math.min(length, 64));
+        long loMask = CidrRange.mask(Math.max(length - 64, 0));
+        return (hi & hiMask) == range.hi() && (lo & loMask) == range.lo();
+    }
+
+    private static CidrMatcher matcher(List<String> ranges) {
+        return CidrMatcher.of(ranges.stream().map(CidrRange::parse).toList());
+    }
+
+    private static InetAddress address(String literal) throws UnknownHostException {
+        return InetAddress.getByName(literal);
+    }
+}
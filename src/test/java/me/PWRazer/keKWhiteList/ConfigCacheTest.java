@@ -0,0 +1,102 @@
+package me.PWRazer.keKWhiteList;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.helpers.NOPLogger;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ConfigCacheTest {
+    private static final String PLAYERS_KEY = "whitelisted-players";
+    private static final String UUIDS_KEY = "whitelisted-uuids";
+    private static final FileTime MODIFIED = FileTime.fromMillis(1_700_000_000_000L);
+    private static final byte[] CONFIG_BYTES = "whitelist: true\nwhitelisted-players:\n- Alice\n".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path directory;
+
+    private ConfigCache cache;
+
+    @BeforeEach
+    void createCache() {
+        cache = new ConfigCache(directory, PLAYERS_KEY, UUIDS_KEY, NOPLogger.NOP_LOGGER);
+    }
+
+    @Test
+    void missingCacheReadsAsNull() {
+        assertNull(cache.read(MODIFIED, CONFIG_BYTES));
+    }
+
+    @Test
+    void writtenConfigIsReadBack() {
+        Map<String, Object> config = new LinkedHashMap<>();
+        config.put("whitelist", true);
+        config.put("language", "ru");
+        config.put("metrics-port", 9225);
+        config.put("ip-whitelist", List.of("10.0.0.0/8"));
+        config.put(PLAYERS_KEY, List.of("Alice", "Бобр", "x".repeat(300)));
+        config.put(UUIDS_KEY, Map.of("5c7ab2d4-0000-4000-8000-000000000001", "Carol"));
+        cache.write(MODIFIED, CONFIG_BYTES, config);
+
+        assertEquals(config, cache.read(MODIFIED, CONFIG_BYTES));
+    }
+
+    @Test
+    void absentWhitelistKeysStayAbsent() {
+        Map<String, Object> config = Map.of("whitelist", false);
+        cache.write(MODIFIED, CONFIG_BYTES, config);
+
+        Map<String, Object> read = cache.read(MODIFIED, CONFIG_BYTES);
+        assertEquals(config, read);
+        assertFalse(read.containsKey(PLAYERS_KEY));
+        assertFalse(read.containsKey(UUIDS_KEY));
+    }
+
+    @Test
+    void changedConfigIsNotServedFromCache() {
+        cache.write(MODIFIED, CONFIG_BYTES, Map.of(PLAYERS_KEY, List.of("Alice")));
+
+        assertNull(cache.read(FileTime.fromMillis(MODIFIED.toMillis() + 1), CONFIG_BYTES));
+        assertNull(cache.read(MODIFIED, Arrays.copyOf(CONFIG_BYTES, CONFIG_BYTES.length + 1)));
+        // Same time and length, different contents: only the checksum tells them apart
+        byte[] edited = CONFIG_BYTES.clone();
+        edited[edited.length - 2] = 'X';
+        assertNull(cache.read(MODIFIED, edited));
+    }
+
+    @Test
+    void damagedCacheIsIgnored() throws IOException {
+        cache.write(MODIFIED, CONFIG_BYTES, Map.of("whitelist", true, PLAYERS_KEY, List.of("Alice", "Bob")));
+        Path file = directory.resolve("config.cache");
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 3));
+
+        assertNull(cache.read(MODIFIED, CONFIG_BYTES));
+
+        Files.write(file, new byte[0]);
+        assertNull(cache.read(MODIFIED, CONFIG_BYTES));
+    }
+
+    @Test
+    void rewriteReplacesPreviousCache() {
+        cache.write(MODIFIED, CONFIG_BYTES, Map.of(PLAYERS_KEY, List.of("Alice")));
+        FileTime later = FileTime.fromMillis(MODIFIED.toMillis() + 5_000);
+        cache.write(later, CONFIG_BYTES, Map.of(PLAYERS_KEY, List.of("Bob")));
+
+        assertNull(cache.read(MODIFIED, CONFIG_BYTES));
+        assertEquals(Map.of(PLAYERS_KEY, List.of("Bob")), cache.read(later, CONFIG_BYTES));
+    }
+}
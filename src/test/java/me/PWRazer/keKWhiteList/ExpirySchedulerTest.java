@@ -0,0 +1,184 @@
+package me.PWRazer.keKWhiteList;
+
+import com.velocitypowered.api.scheduler.ScheduledTask;
+import com.velocitypowered.api.scheduler.Scheduler;
+import com.velocitypowered.api.scheduler.TaskStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.helpers.NOPLogger;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExpirySchedulerTest {
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    @TempDir
+    Path directory;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    private WhitelistManager whitelistManager;
+    private ConfigManager configManager;
+    private ExpiryScheduler expiries;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Files.writeString(directory.resolve("config.yml"), "whitelist: true\nwhitelisted: []\n");
+        whitelistManager = new WhitelistManager();
+        configManager = new ConfigManager(directory, NOPLogger.NOP_LOGGER, whitelistManager, new WhitelistMetrics());
+        configManager.loadConfig();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (expiries != null) {
+            expiries.shutdown();
+        }
+        configManager.shutdown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void pastStartIsAppliedAtOnce() throws InterruptedException {
+        expiries = expiryScheduler();
+        long now = System.currentTimeMillis();
+        expiries.schedule("Alice", null, now - HOUR, now + HOUR);
+        awaitTrue(() -> whitelistManager.isWhitelisted("alice"));
+        assertEquals(now + HOUR, expiries.getExpiry("alice"));
+    }
+
+    @Test
+    void futureStartIsAppliedWhenDue() throws InterruptedException {
+        expiries = expiryScheduler();
+        long now = System.currentTimeMillis();
+        expiries.schedule("Bob", null, now + 300, now + HOUR);
+        assertFalse(whitelistManager.isWhitelisted("bob"));
+        awaitTrue(() -> whitelistManager.isWhitelisted("bob"));
+    }
+
+    @Test
+    void windowEndRemovesEntry() throws InterruptedException {
+        expiries = expiryScheduler();
+        long now = System.currentTimeMillis();
+        expiries.schedule("Carol", null, now - HOUR, now + 300);
+        awaitTrue(() -> whitelistManager.isWhitelisted("carol"));
+        awaitTrue(() -> !whitelistManager.isWhitelisted("carol"));
+        assertFalse(expiries.isScheduled("carol"));
+    }
+
+    @Test
+    void replacedScheduleDropsEarlierTimers() throws InterruptedException {
+        expiries = expiryScheduler();
+        long now = System.currentTimeMillis();
+        expiries.schedule("Dave", null, now + 100, now + HOUR);
+        expiries.schedule("Dave", null, now + HOUR, now + 2 * HOUR);
+        Thread.sleep(400);
+        assertFalse(whitelistManager.isWhitelisted("dave"));
+        assertEquals(now + 2 * HOUR, expiries.getExpiry("dave"));
+    }
+
+    @Test
+    void cancelledScheduleNeverStarts() throws InterruptedException {
+        expiries = expiryScheduler();
+        long now = System.currentTimeMillis();
+        expiries.schedule("Erin", null, now + 100, now + HOUR);
+        assertTrue(expiries.cancel("erin"));
+        assertFalse(expiries.cancel("erin"));
+        Thread.sleep(400);
+        assertFalse(whitelistManager.isWhitelisted("erin"));
+        assertFalse(expiries.isScheduled("erin"));
+    }
+
+    @Test
+    void expireAtOnlyRemoves() throws InterruptedException {
+        expiries = expiryScheduler();
+        expiries.expireAt("Frank", null, System.currentTimeMillis() + 300);
+        Thread.sleep(100);
+        assertFalse(whitelistManager.isWhitelisted("frank"));
+        assertTrue(expiries.isScheduled("frank"));
+        awaitTrue(() -> !expiries.isScheduled("frank"));
+        assertFalse(whitelistManager.isWhitelisted("frank"));
+    }
+
+    @Test
+    void windowsThatOpenedDuringDowntimeAreAppliedOnLoad() throws Exception {
+        long now = System.currentTimeMillis();
+        UUID uuid = UUID.randomUUID();
+        Files.writeString(directory.resolve("temporary.txt"),
+                "gina - " + (now - HOUR) + " " + (now + HOUR) + "\n"
+                        + "hank - " + (now - 2 * HOUR) + " " + (now - HOUR) + "\n"
+                        + "ivan " + uuid + " " + (now - HOUR) + " " + (now + HOUR) + "\n"
+                        + "jack - " + (now + HOUR) + " " + (now + 2 * HOUR) + "\n");
+        expiries = expiryScheduler();
+        expiries.load();
+
+        awaitTrue(() -> whitelistManager.isWhitelisted("gina") && whitelistManager.isWhitelisted(uuid));
+        // A window that both opened and closed during the downtime is not opened after the fact
+        awaitTrue(() -> !expiries.isScheduled("hank"));
+        assertFalse(whitelistManager.isWhitelisted("hank"));
+        assertFalse(whitelistManager.isWhitelisted("jack"));
+        assertTrue(expiries.isScheduled("jack"));
+    }
+
+    private ExpiryScheduler expiryScheduler() {
+        AuditLog auditLog = new AuditLog(directory, configManager, new WhitelistMetrics(), NOPLogger.NOP_LOGGER, 64);
+        return new ExpiryScheduler(directory, whitelistManager, configManager, auditLog, scheduler(), this,
+                NOPLogger.NOP_LOGGER);
+    }
+
+    /**
+     * Velocity's scheduler backed by a single-thread executor; only one-shot delayed tasks are supported.
+     */
+    private Scheduler scheduler() {
+        return (Scheduler) Proxy.newProxyInstance(Scheduler.class.getClassLoader(), new Class<?>[]{Scheduler.class},
+                (proxy, method, args) -> {
+                    if (!method.getName().equals("buildTask")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    Runnable task = (Runnable) args[1];
+                    long[] delayMillis = {0};
+                    return Proxy.newProxyInstance(Scheduler.class.getClassLoader(), new Class<?>[]{Scheduler.TaskBuilder.class},
+                            (builder, builderMethod, builderArgs) -> switch (builderMethod.getName()) {
+                                case "delay" -> {
+                                    delayMillis[0] = ((TimeUnit) builderArgs[1]).toMillis((Long) builderArgs[0]);
+                                    yield builder;
+                                }
+                                case "schedule" -> scheduledTask(executor.schedule(task, delayMillis[0], TimeUnit.MILLISECONDS));
+                                default -> throw new UnsupportedOperationException(builderMethod.getName());
+                            });
+                });
+    }
+
+    private ScheduledTask scheduledTask(ScheduledFuture<?> future) {
+        return (ScheduledTask) Proxy.newProxyInstance(ScheduledTask.class.getClassLoader(), new Class<?>[]{ScheduledTask.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "cancel" -> future.cancel(false);
+                    case "status" -> future.isCancelled() ? TaskStatus.CANCELLED
+                            : future.isDone() ? TaskStatus.FINISHED : TaskStatus.SCHEDULED;
+                    case "plugin" -> this;
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met in time");
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package me.PWRazer.keKWhiteList;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.helpers.NOPLogger;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GroupManagerTest {
+    private static final UUID ALICE = UUID.fromString("5c7ab2d4-0000-4000-8000-000000000001");
+    private static final UUID SOMEONE_ELSE = UUID.fromString("5c7ab2d4-0000-4000-8000-000000000002");
+
+    @TempDir
+    Path directory;
+
+    private GroupManager groups;
+
+    @BeforeEach
+    void createGroup() {
+        groups = new GroupManager(directory, NOPLogger.NOP_LOGGER);
+        groups.load();
+        assertTrue(groups.createGroup("staff"));
+        assertTrue(groups.assignServer("staff", "Admin"));
+    }
+
+    @AfterEach
+    void shutdown() {
+        groups.shutdown();
+    }
+
+    @Test
+    void uuidMemberKeepsAccessAfterRenameAndOldNameDoesNot() {
+        assertTrue(groups.addMember("staff", ALICE, "Alice"));
+        assertFalse(groups.addMember("staff", ALICE, "Alice"));
+
+        assertTrue(groups.canJoin(ALICE, "Alice", "admin"));
+        assertTrue(groups.canJoin(ALICE, "Alice2", "admin"));
+        assertFalse(groups.canJoin(SOMEONE_ELSE, "Alice", "admin"));
+        assertFalse(groups.canJoin(null, "Alice", "admin"));
+        assertTrue(groups.canJoin(SOMEONE_ELSE, "Alice", "lobby"));
+        assertTrue(groups.isMember("staff", "alice"));
+    }
+
+    @Test
+    void nameMemberMatchesAnyAccountWithThatName() {
+        assertTrue(groups.addMember("staff", null, "Bob"));
+
+        assertTrue(groups.canJoin(SOMEONE_ELSE, "bob", "admin"));
+        assertTrue(groups.canJoin(null, "BOB", "admin"));
+        assertFalse(groups.canJoin(SOMEONE_ELSE, "carol", "admin"));
+    }
+
+    @Test
+    void removeByNameRemovesBothKindsOfMember() {
+        groups.addMember("staff", ALICE, "Alice");
+        groups.addMember("staff", null, "alice");
+        assertEquals(List.of("alice", "alice"), groups.getMembers("staff"));
+
+        assertTrue(groups.removeMember("staff", "Alice"));
+        assertFalse(groups.canJoin(ALICE, "Alice", "admin"));
+        assertFalse(groups.removeMember("staff", "Alice"));
+        assertEquals(0, groups.memberCount("staff"));
+    }
+
+    @Test
+    void uuidMembersSurviveReload() {
+        groups.addMember("staff", ALICE, "Alice");
+        groups.addMember("staff", null, "Bob");
+        groups.flush();
+
+        GroupManager reloaded = new GroupManager(directory, NOPLogger.NOP_LOGGER);
+        try {
+            reloaded.load();
+            assertTrue(reloaded.canJoin(ALICE, "Renamed", "admin"));
+            assertFalse(reloaded.canJoin(SOMEONE_ELSE, "Alice", "admin"));
+            assertTrue(reloaded.canJoin(SOMEONE_ELSE, "Bob", "admin"));
+            assertEquals(List.of("alice", "bob"), reloaded.getMembers("staff"));
+        } finally {
+            reloaded.shutdown();
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package me.PWRazer.keKWhiteList;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.helpers.NOPLogger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JournalWhitelistStoreTest {
+    private static final long NO_COMPACTION = Long.MAX_VALUE;
+
+    @TempDir
+    Path directory;
+
+    private JournalWhitelistStore store;
+
+    @AfterEach
+    void closeStore() throws IOException {
+        if (store != null) {
+            store.close();
+        }
+    }
+
+    @Test
+    void journalIsReplayedOnLoad() throws IOException {
+        UUID uuid = UUID.randomUUID();
+        reopen(NO_COMPACTION);
+        assertFalse(store.exists());
+        store.load();
+        store.write(null, List.of(add("alice"), add("bob"), addUuid(uuid, "Carol")));
+        store.write(null, List.of(remove("alice"), WhitelistChange.ofUuid(WhitelistChange.Type.REMOVE, uuid, null),
+                addUuid(uuid, "Caroline")));
+        assertTrue(store.exists());
+
+        reopen(NO_COMPACTION);
+        WhitelistSnapshot loaded = store.load();
+        assertEquals(Set.of("bob"), loaded.names());
+        assertEquals(Map.of(uuid, "Caroline"), loaded.uuidEntries());
+    }
+
+    @Test
+    void damagedTailIsTruncated() throws IOException {
+        reopen(NO_COMPACTION);
+        store.load();
+        store.write(null, List.of(add("alice")));
+        store.write(null, List.of(add("bob")));
+        Path journal = directory.resolve("whitelist.journal");
+        long validLength = Files.size(journal);
+        // A record cut short by a crash: its header promises more bytes than were written
+        Files.write(journal, new byte[]{0, 0, 0, 10, 1, 2, 3, 4, 1, 'x'}, StandardOpenOption.APPEND);
+
+        reopen(NO_COMPACTION);
+        assertEquals(Set.of("alice", "bob"), store.load().names());
+        assertEquals(validLength, Files.size(journal));
+        // New records go after the valid prefix, not after the garbage
+        store.write(null, List.of(add("carol")));
+        reopen(NO_COMPACTION);
+        assertEquals(Set.of("alice", "bob", "carol"), store.load().names());
+    }
+
+    @Test
+    void recordWithBadChecksumEndsReplay() throws IOException {
+        reopen(NO_COMPACTION);
+        store.load();
+        store.write(null, List.of(add("alice")));
+        store.write(null, List.of(add("bob")));
+        store.write(null, List.of(add("carol")));
+        Path journal = directory.resolve("whitelist.journal");
+        byte[] bytes = Files.readAllBytes(journal);
+        int recordLength = 8 + 1 + "alice".length();
+        // Flip a name byte of the second record; it and everything after it are dropped
+        bytes[recordLength + 9] ^= 0x20;
+        Files.write(journal, bytes);
+
+        reopen(NO_COMPACTION);
+        assertEquals(Set.of("alice"), store.load().names());
+        assertEquals(recordLength, Files.size(journal));
+    }
+
+    @Test
+    void compactionMovesJournalIntoSnapshot() throws Exception {
+        UUID uuid = UUID.randomUUID();
+        reopen(64);
+        store.load();
+        WhitelistSnapshot snapshot = WhitelistSnapshot.of(List.of("alice", "bob"), Map.of(uuid, "Carol"));
+        store.write(snapshot, List.of(add("alice"), add("bob"), addUuid(uuid, "Carol"), add("dave"), remove("dave")));
+        // Compaction runs in the background; write() only queues it
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (store.backlogBytes() != 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, store.backlogBytes());
+        assertEquals(0, Files.size(directory.resolve("whitelist.journal")));
+        reopen(NO_COMPACTION);
+        WhitelistSnapshot loaded = store.load();
+        assertEquals(Set.of("alice", "bob"), loaded.names());
+        assertEquals(Map.of(uuid, "Carol"), loaded.uuidEntries());
+    }
+
+    @Test
+    void writesDuringCompactionAreKept() throws IOException {
+        reopen(256);
+        store.load();
+        Set<String> expected = new HashSet<>();
+        for (int i = 0; i < 2000; i++) {
+            WhitelistChange change = i % 3 == 2 ? remove("player" + (i - 1)) : add("player" + i);
+            if (change.type() == WhitelistChange.Type.ADD) {
+                expected.add(change.name());
+            } else {
+                expected.remove(change.name());
+            }
+            store.write(WhitelistSnapshot.of(expected), List.of(change));
+        }
+        // close() waits for a compaction in progress
+        reopen(NO_COMPACTION);
+        assertEquals(expected, store.load().names());
+        assertTrue(Files.size(directory.resolve("whitelist.snapshot")) > 0);
+    }
+
+    @Test
+    void journalLeftOverAfterSnapshotIsReplayedIdempotently() throws IOException {
+        reopen(NO_COMPACTION);
+        store.load();
+        store.write(null, List.of(add("alice"), add("bob"), remove("alice")));
+        Path journal = directory.resolve("whitelist.journal");
+        byte[] journalBytes = Files.readAllBytes(journal);
+        reopen(NO_COMPACTION);
+        store.load();
+        store.rewrite(WhitelistSnapshot.of(List.of("bob")));
+        // Crash between writing the snapshot and truncating the journal
+        Files.write(journal, journalBytes);
+
+        reopen(NO_COMPACTION);
+        assertEquals(Set.of("bob"), store.load().names());
+    }
+
+    @Test
+    void versionOneSnapshotIsRead() throws IOException {
+        writeVersionOneSnapshot(List.of("alice", "bob"));
+        reopen(NO_COMPACTION);
+        store.load();
+        store.write(null, List.of(add("carol")));
+
+        reopen(NO_COMPACTION);
+        WhitelistSnapshot loaded = store.load();
+        assertEquals(Set.of("alice", "bob", "carol"), loaded.names());
+        assertTrue(loaded.uuidEntries().isEmpty());
+        // Compaction upgrades the file to the current version
+        store.rewrite(loaded);
+        reopen(NO_COMPACTION);
+        assertEquals(Set.of("alice", "bob", "carol"), store.load().names());
+        assertEquals(2, Files.readAllBytes(directory.resolve("whitelist.snapshot"))[7]);
+    }
+
+    @Test
+    void damagedSnapshotIsRejected() throws IOException {
+        reopen(NO_COMPACTION);
+        store.load();
+        store.rewrite(WhitelistSnapshot.of(List.of("alice")));
+        Path snapshot = directory.resolve("whitelist.snapshot");
+        byte[] bytes = Files.readAllBytes(snapshot);
+        bytes[14] ^= 0x01;
+        Files.write(snapshot, bytes);
+
+        reopen(NO_COMPACTION);
+        assertThrows(IOException.class, store::load);
+    }
+
+    /**
+     * Closes the current store and opens a new one on the same files, as a proxy restart would.
+     */
+    private void reopen(long compactThresholdBytes) throws IOException {
+        closeStore();
+        store = new JournalWhitelistStore(directory, compactThresholdBytes, NOPLogger.NOP_LOGGER);
+    }
+
+    private void writeVersionOneSnapshot(List<String> names) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0x4B574C53);
+        out.writeInt(1);
+        out.writeInt(names.size());
+        for (String name : names) {
+            byte[] utf8 = name.getBytes(StandardCharsets.UTF_8);
+            out.writeShort(utf8.length);
+            out.write(utf8);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        out.writeLong(crc.getValue());
+        Files.write(directory.resolve("whitelist.snapshot"), bytes.toByteArray());
+    }
+
+    private static WhitelistChange add(String name) {
+        return WhitelistChange.ofName(WhitelistChange.Type.ADD, name);
+    }
+
+    private static WhitelistChange remove(String name) {
+        return WhitelistChange.ofName(WhitelistChange.Type.REMOVE, name);
+    }
+
+    private static WhitelistChange addUuid(UUID uuid, String name) {
+        return WhitelistChange.ofUuid(WhitelistChange.Type.ADD, uuid, name);
+    }
+}
@@ -0,0 +1,77 @@
+package me.PWRazer.keKWhiteList;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LongPairHashSetTest {
+    private static final UUID ZERO = new UUID(0, 0);
+
+    @Test
+    void emptySetContainsNothing() {
+        LongPairHashSet set = new LongPairHashSet(List.of());
+        assertFalse(set.contains(UUID.randomUUID()));
+        assertFalse(set.contains(ZERO));
+    }
+
+    @Test
+    void zeroUuidIsStoredApartFromEmptySlots() {
+        UUID other = UUID.randomUUID();
+        LongPairHashSet set = new LongPairHashSet(List.of(ZERO, other));
+        assertTrue(set.contains(ZERO));
+        assertTrue(set.contains(other));
+        assertFalse(new LongPairHashSet(List.of(other)).contains(ZERO));
+    }
+
+    @Test
+    void duplicatesAreStoredOnce() {
+        UUID uuid = UUID.randomUUID();
+        LongPairHashSet set = new LongPairHashSet(List.of(uuid, uuid, new UUID(uuid.getMostSignificantBits(),
+                uuid.getLeastSignificantBits())));
+        assertTrue(set.contains(uuid));
+    }
+
+    @Test
+    void matchesHashSetForEverySize() {
+        Random random = new Random(1);
+        for (int size = 1; size <= 600; size += 7) {
+            List<UUID> uuids = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                uuids.add(new UUID(random.nextLong(), random.nextLong()));
+            }
+            Set<UUID> expected = new HashSet<>(uuids);
+            LongPairHashSet set = new LongPairHashSet(uuids);
+            for (UUID uuid : uuids) {
+                assertTrue(set.contains(uuid), uuid.toString());
+            }
+            for (int i = 0; i < 1000; i++) {
+                UUID probe = new UUID(random.nextLong(), random.nextLong());
+                assertEquals(expected.contains(probe), set.contains(probe));
+            }
+        }
+    }
+
+    @Test
+    void sequentialUuidsSharingHighBitsAreAllFound() {
+        // Offline-mode and test UUIDs often differ only in a few low bits, which must not cluster into long probe runs
+        List<UUID> uuids = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            uuids.add(new UUID(0x1234_5678_9ABC_4DEFL, 0x8000_0000_0000_0000L | i));
+        }
+        LongPairHashSet set = new LongPairHashSet(uuids);
+        for (UUID uuid : uuids) {
+            assertTrue(set.contains(uuid));
+        }
+        assertFalse(set.contains(new UUID(0x1234_5678_9ABC_4DEFL, 0x8000_0000_0000_0000L | 10_000)));
+        assertFalse(set.contains(new UUID(0x1234_5678_9ABC_4DEEL, 0x8000_0000_0000_0000L)));
+    }
+}
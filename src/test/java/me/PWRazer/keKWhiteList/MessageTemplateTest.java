@@ -0,0 +1,61 @@
+package me.PWRazer.keKWhiteList;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextComponent;
+import net.kyori.adventure.text.minimessage.MiniMessage;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class MessageTemplateTest {
+    private static final MiniMessage MINI_MESSAGE = MiniMessage.miniMessage();
+
+    @Test
+    void messageWithoutPlaceholdersIsReturnedAsIs() {
+        MessageTemplate template = MessageTemplate.compile(MINI_MESSAGE, "<green>You are whitelisted</green>");
+        assertSame(template.render("player", "Alice"), template.render());
+        assertEquals(MINI_MESSAGE.deserialize("<green>You are whitelisted</green>"), template.render("player", "Alice"));
+    }
+
+    @Test
+    void placeholdersKeepTheirStyle() {
+        String raw = "<red>Player {player} was <bold>{action}</bold></red> by {sender}.";
+        MessageTemplate template = MessageTemplate.compile(MINI_MESSAGE, raw);
+        assertEquals(MINI_MESSAGE.deserialize("<red>Player Alice was <bold>added</bold></red> by Console."),
+                template.render("player", "Alice", "action", "added", "sender", "Console"));
+    }
+
+    @Test
+    void renderingLeavesTemplateUnchanged() {
+        MessageTemplate template = MessageTemplate.compile(MINI_MESSAGE, "<gray>Hello, <white>{player}</white>!");
+        assertEquals("Hello, Alice!", plainText(template.render("player", "Alice")));
+        assertEquals("Hello, Bob!", plainText(template.render("player", "Bob")));
+        assertEquals("Hello, {player}!", plainText(template.render()));
+    }
+
+    @Test
+    void valuesAreNotParsedAsMiniMessage() {
+        MessageTemplate template = MessageTemplate.compile(MINI_MESSAGE, "Welcome {player}");
+        Component rendered = template.render("player", "<red><click:run_command:/op>x");
+        assertEquals("Welcome <red><click:run_command:/op>x", plainText(rendered));
+        assertEquals(0, rendered.children().size());
+    }
+
+    @Test
+    void unknownPlaceholdersAreLeftInPlace() {
+        MessageTemplate template = MessageTemplate.compile(MINI_MESSAGE, "{count} of {total} on page {page}");
+        assertEquals("3 of {total} on page 1", plainText(template.render("count", 3, "page", 1, "dangling")));
+    }
+
+    private static String plainText(Component component) {
+        StringBuilder text = new StringBuilder();
+        if (component instanceof TextComponent content) {
+            text.append(content.content());
+        }
+        for (Component child : component.children()) {
+            text.append(plainText(child));
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,71 @@
+package me.PWRazer.keKWhiteList;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NameBloomFilterTest {
+    private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyz0123456789_";
+
+    @Test
+    void everyListedNameMightBeContainedInAnyCase() {
+        List<String> names = randomNames(new Random(3), 5_000);
+        NameBloomFilter filter = new NameBloomFilter(names);
+        for (String name : names) {
+            assertTrue(filter.mightContain(name), name);
+            assertTrue(filter.mightContain(name.toUpperCase(Locale.ROOT)), name);
+        }
+    }
+
+    @Test
+    void falsePositiveRateIsNearDesign() {
+        Random random = new Random(4);
+        NameBloomFilter filter = new NameBloomFilter(randomNames(random, 10_000));
+        int falsePositives = 0;
+        int probes = 100_000;
+        for (int i = 0; i < probes; i++) {
+            // Longer than any listed name, so never actually in the set
+            if (filter.mightContain(randomName(random, 17))) {
+                falsePositives++;
+            }
+        }
+        // About 1% by design; allow some slack for the hash
+        assertTrue(falsePositives < probes / 40, falsePositives + " false positives");
+    }
+
+    @Test
+    void emptyFilterRejectsAsciiNames() {
+        NameBloomFilter filter = new NameBloomFilter(List.of());
+        assertFalse(filter.mightContain("alice"));
+        assertFalse(filter.mightContain(""));
+    }
+
+    @Test
+    void nonAsciiNamesAreNeverRejected() {
+        NameBloomFilter filter = new NameBloomFilter(List.of("alice"));
+        assertTrue(filter.mightContain("Алиса"));
+        assertTrue(new NameBloomFilter(List.of("алиса", "bob")).mightContain("carol"));
+    }
+
+    private static List<String> randomNames(Random random, int count) {
+        List<String> names = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            names.add(randomName(random, 3 + random.nextInt(14)));
+        }
+        return names;
+    }
+
+    private static String randomName(Random random, int length) {
+        StringBuilder name = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            name.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return name.toString();
+    }
+}
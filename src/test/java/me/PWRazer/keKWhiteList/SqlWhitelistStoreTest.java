@@ -0,0 +1,258 @@
+package me.PWRazer.keKWhiteList;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.helpers.NOPLogger;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SqlWhitelistStoreTest {
+    private static final String PREFIX = "kwl_";
+
+    @TempDir
+    Path driverDirectory;
+
+    private String url;
+    private final List<SqlWhitelistStore> stores = new ArrayList<>();
+
+    @BeforeEach
+    void createDatabase() {
+        url = "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+    }
+
+    @AfterEach
+    void closeStores() throws Exception {
+        for (SqlWhitelistStore store : stores) {
+            store.close();
+        }
+        try (Connection db = DriverManager.getConnection(url); Statement statement = db.createStatement()) {
+            statement.execute("SHUTDOWN");
+        }
+    }
+
+    @Test
+    void pollReturnsChangesWrittenByAnotherStore() throws IOException {
+        SqlWhitelistStore first = store();
+        SqlWhitelistStore second = store();
+        assertTrue(first.load().names().isEmpty());
+        assertTrue(second.load().names().isEmpty());
+
+        UUID uuid = UUID.randomUUID();
+        first.write(null, List.of(add("alice"), WhitelistChange.ofUuid(WhitelistChange.Type.ADD, uuid, "Bob")));
+        first.write(null, List.of(remove("alice")));
+
+        assertEquals(List.of(add("alice"), WhitelistChange.ofUuid(WhitelistChange.Type.ADD, uuid, "Bob"), remove("alice")),
+                second.poll());
+        assertEquals(List.of(), second.poll());
+        WhitelistSnapshot loaded = store().load();
+        assertFalse(loaded.contains("alice"));
+        assertEquals("Bob", loaded.uuidEntries().get(uuid));
+    }
+
+    @Test
+    void lateCommitInGapIsResolvedAgainstEntries() throws Exception {
+        SqlWhitelistStore writer = store();
+        SqlWhitelistStore reader = store();
+        writer.write(null, List.of(add("first")));
+        reader.load();
+
+        // Ids 2..4 were handed out to transactions that have not committed yet
+        insertChange(5, "n:fifth", "fifth", true);
+        assertEquals(List.of(add("fifth")), reader.poll());
+
+        // Id 3 re-adds an entry that id 4 removed again before anyone saw either
+        insertChange(3, "n:flip", "flip", true);
+        insertChange(4, "n:flip", "flip", false);
+        assertEquals(List.of(remove("flip")), reader.poll());
+
+        insertChange(2, "n:late", "late", true);
+        assertEquals(List.of(add("late")), reader.poll());
+        assertEquals(List.of(), reader.poll());
+    }
+
+    @Test
+    void tooManyGapsRequireFullReload() throws Exception {
+        SqlWhitelistStore writer = store();
+        SqlWhitelistStore reader = store();
+        writer.write(null, List.of(add("first")));
+        reader.load();
+
+        insertChange(1 + 1001 + 1, "n:far", "far", true);
+        assertEquals(List.of(), reader.poll());
+        assertTrue(reader.isResyncRequired());
+        // Stays flagged until loaded, even if later changes would fit
+        writer.write(null, List.of(add("next")));
+        assertEquals(List.of(), reader.poll());
+        assertTrue(reader.isResyncRequired());
+
+        WhitelistSnapshot loaded = reader.load();
+        assertFalse(reader.isResyncRequired());
+        assertTrue(loaded.contains("far"));
+        assertTrue(loaded.contains("next"));
+        assertEquals(List.of(), reader.poll());
+        writer.write(null, List.of(remove("first")));
+        assertEquals(List.of(remove("first")), reader.poll());
+    }
+
+    @Test
+    void gapOpenPastTimeoutRequiresFullReload() throws Exception {
+        SqlWhitelistStore writer = store();
+        SqlWhitelistStore reader = new SqlWhitelistStore(url, null, null, "", driverDirectory, PREFIX,
+                NOPLogger.NOP_LOGGER, TimeUnit.MILLISECONDS.toNanos(50));
+        stores.add(reader);
+        writer.write(null, List.of(add("first")));
+        reader.load();
+
+        // Id 2 was rolled back, or its transaction is stuck
+        insertChange(3, "n:third", "third", true);
+        assertEquals(List.of(add("third")), reader.poll());
+        assertFalse(reader.isResyncRequired());
+        Thread.sleep(100);
+
+        assertEquals(List.of(), reader.poll());
+        assertTrue(reader.isResyncRequired());
+        insertChange(2, "n:late", "late", true);
+        WhitelistSnapshot loaded = reader.load();
+        assertFalse(reader.isResyncRequired());
+        assertTrue(loaded.contains("late"));
+        assertTrue(loaded.contains("third"));
+        assertEquals(List.of(), reader.poll());
+    }
+
+    @Test
+    void existsOnlyOnceChangesWereWritten() throws IOException {
+        SqlWhitelistStore store = store();
+        assertFalse(store.exists());
+        store.write(null, List.of(add("alice"), add("bob")));
+        assertTrue(store.exists());
+    }
+
+    @Test
+    void gapsUpToLimitAreTracked() throws Exception {
+        SqlWhitelistStore writer = store();
+        SqlWhitelistStore reader = store();
+        writer.write(null, List.of(add("first")));
+        reader.load();
+
+        insertChange(1 + 1000 + 1, "n:far", "far", true);
+        assertEquals(List.of(add("far")), reader.poll());
+        assertFalse(reader.isResyncRequired());
+        insertChange(500, "n:middle", "middle", true);
+        assertEquals(List.of(add("middle")), reader.poll());
+    }
+
+    @Test
+    void pruneKeepsNewestChange() throws Exception {
+        SqlWhitelistStore store = store();
+        store.load();
+        for (int i = 0; i < 5; i++) {
+            store.write(null, List.of(add("player" + i)));
+        }
+        assertEquals(5, store.poll().size());
+
+        assertEquals(0, store.pruneOlderThan(0));
+        assertEquals(4, store.pruneOlderThan(Long.MAX_VALUE));
+        assertEquals(1, changeCount());
+        assertTrue(store.exists());
+
+        store.write(null, List.of(add("player5")));
+        assertEquals(List.of(add("player5")), store.poll());
+        assertEquals(6, store().load().names().size());
+    }
+
+    @Test
+    void explicitDriverClassIsLoaded() throws IOException {
+        SqlWhitelistStore store = new SqlWhitelistStore(url, null, null, "org.h2.Driver", driverDirectory, PREFIX,
+                NOPLogger.NOP_LOGGER);
+        stores.add(store);
+        assertFalse(store.exists());
+        store.write(null, List.of(add("alice")));
+        assertTrue(store.load().contains("alice"));
+    }
+
+    @Test
+    void missingDriverPointsToDriverDirectory() {
+        SqlWhitelistStore store = new SqlWhitelistStore("jdbc:nosuchdb://localhost/kwl", null, null, "",
+                driverDirectory, PREFIX, NOPLogger.NOP_LOGGER);
+        stores.add(store);
+        IOException error = assertThrows(IOException.class, store::load);
+        assertTrue(error.getMessage().contains(driverDirectory.toString()), error.getMessage());
+    }
+
+    private SqlWhitelistStore store() {
+        SqlWhitelistStore store = new SqlWhitelistStore(url, null, null, "", driverDirectory, PREFIX,
+                NOPLogger.NOP_LOGGER);
+        stores.add(store);
+        return store;
+    }
+
+    /**
+     * Commits a change row with a chosen id together with the matching entries row, as a slow writer would.
+     */
+    private void insertChange(long id, String key, String name, boolean add) throws SQLException {
+        try (Connection db = DriverManager.getConnection(url)) {
+            db.setAutoCommit(false);
+            try (PreparedStatement delete = db.prepareStatement("DELETE FROM " + PREFIX + "entries WHERE entry_key = ?");
+                 PreparedStatement insert = db.prepareStatement(
+                         "INSERT INTO " + PREFIX + "entries (entry_key, uuid, name) VALUES (?, NULL, ?)");
+                 PreparedStatement log = db.prepareStatement("INSERT INTO " + PREFIX
+                         + "changes (id, entry_key, op, uuid, name, changed_at) VALUES (?, ?, ?, NULL, ?, ?)")) {
+                delete.setString(1, key);
+                delete.executeUpdate();
+                if (add) {
+                    insert.setString(1, key);
+                    insert.setString(2, name);
+                    insert.executeUpdate();
+                }
+                log.setLong(1, id);
+                log.setString(2, key);
+                log.setInt(3, add ? 1 : 2);
+                log.setString(4, name);
+                log.setLong(5, System.currentTimeMillis());
+                log.executeUpdate();
+            }
+            db.commit();
+            try (Statement statement = db.createStatement();
+                 ResultSet rows = statement.executeQuery("SELECT MAX(id) FROM " + PREFIX + "changes")) {
+                rows.next();
+                // The skipped ids were allocated already, so the next writer continues above them
+                statement.executeUpdate("ALTER TABLE " + PREFIX + "changes ALTER COLUMN id RESTART WITH " + (rows.getLong(1) + 1));
+            }
+        }
+    }
+
+    private long changeCount() throws SQLException {
+        try (Connection db = DriverManager.getConnection(url);
+             Statement statement = db.createStatement();
+             ResultSet rows = statement.executeQuery("SELECT COUNT(*) FROM " + PREFIX + "changes")) {
+            rows.next();
+            return rows.getLong(1);
+        }
+    }
+
+    private static WhitelistChange add(String name) {
+        return WhitelistChange.ofName(WhitelistChange.Type.ADD, name);
+    }
+
+    private static WhitelistChange remove(String name) {
+        return WhitelistChange.ofName(WhitelistChange.Type.REMOVE, name);
+    }
+}